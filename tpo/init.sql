@@ -49,8 +49,15 @@ CREATE TABLE IF NOT EXISTS producto (
     installments_quantity INT,
     installments_amount DECIMAL(15,2),
     created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME,
     FOREIGN KEY (category_id) REFERENCES categoria(id),
-    FOREIGN KEY (seller_id) REFERENCES usuario(id)
+    FOREIGN KEY (seller_id) REFERENCES usuario(id),
+    -- Listados por cursor (ORDER BY created_at DESC, id DESC)
+    INDEX idx_producto_created_at_id (created_at, id),
+    -- Exportación incremental (updated_at >= ?)
+    INDEX idx_producto_updated_at (updated_at),
+    INDEX idx_producto_category_created_at_id (category_id, created_at, id),
+    INDEX idx_producto_seller_created_at_id (seller_id, created_at, id)
 );
 
 CREATE TABLE IF NOT EXISTS producto_imagen (
@@ -85,7 +92,9 @@ CREATE TABLE IF NOT EXISTS carrito_item (
     precio_unitario DECIMAL(15,2) NOT NULL,
     added_at DATETIME DEFAULT CURRENT_TIMESTAMP,
     FOREIGN KEY (carrito_id) REFERENCES carrito(id) ON DELETE CASCADE,
-    FOREIGN KEY (producto_id) REFERENCES producto(id) ON DELETE CASCADE
+    FOREIGN KEY (producto_id) REFERENCES producto(id) ON DELETE CASCADE,
+    -- Un ítem por producto y carrito: agregar es un INSERT ... ON DUPLICATE KEY UPDATE sobre esta clave
+    UNIQUE KEY unique_carrito_producto (carrito_id, producto_id)
 );
 
 CREATE TABLE IF NOT EXISTS favorito (
@@ -98,6 +107,45 @@ CREATE TABLE IF NOT EXISTS favorito (
     UNIQUE KEY unique_favorito (usuario_id, producto_id)
 );
 
+CREATE TABLE IF NOT EXISTS pedidos (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    fecha DATETIME NOT NULL,
+    estado VARCHAR(255) NOT NULL,
+    total DECIMAL(15,2),
+    usuario_id BIGINT,
+    FOREIGN KEY (usuario_id) REFERENCES usuario(id)
+);
+
+-- Líneas de pedido: título y precio copiados al confirmar, sin FK a producto para que un pedido
+-- sobreviva a la baja del producto
+CREATE TABLE IF NOT EXISTS pedido_item (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    pedido_id BIGINT NOT NULL,
+    producto_id BIGINT NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    cantidad INT NOT NULL,
+    precio_unitario DECIMAL(15,2) NOT NULL,
+    FOREIGN KEY (pedido_id) REFERENCES pedidos(id) ON DELETE CASCADE,
+    INDEX idx_pedido_item_pedido (pedido_id)
+);
+
+-- Ids por bloques de las entidades (@TableGenerator). Al iniciar, el backend ubica cada fila
+-- después del mayor id de su tabla, así que los datos de abajo pueden seguir usando AUTO_INCREMENT.
+CREATE TABLE IF NOT EXISTS id_generador (
+    entidad VARCHAR(255) NOT NULL PRIMARY KEY,
+    siguiente BIGINT
+);
+
+-- Feed de cambios del catálogo (/api/productos/changes): una fila por alta, modificación o baja
+CREATE TABLE IF NOT EXISTS producto_cambio (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    producto_id BIGINT NOT NULL,
+    tipo VARCHAR(16) NOT NULL,
+    created_at DATETIME(3) NOT NULL,
+    orden BIGINT NULL,
+    UNIQUE KEY uk_producto_cambio_orden (orden)
+);
+
 -- INSERTAR CATEGORÍAS (sin IDs específicos)
 INSERT IGNORE INTO categoria (name, description, image, created_at) VALUES
 ('Electrónica', 'Dispositivos electrónicos y tecnología', 'https://via.placeholder.com/300x200?text=Electronics', NOW()),
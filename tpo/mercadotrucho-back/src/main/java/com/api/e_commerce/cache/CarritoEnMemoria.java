@@ -0,0 +1,104 @@
+package com.api.e_commerce.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Carrito de un usuario mientras vive en CarritoStore. No es thread-safe: se modifica solo con el monitor
+// del objeto tomado (CarritoStore.conCarrito); afuera de eso se trabaja con una copia.
+public class CarritoEnMemoria {
+
+    @Data
+    @AllArgsConstructor
+    public static class Item {
+        private Long id;
+        private Long productoId;
+        private int cantidad;
+        private BigDecimal precioUnitario;
+        private LocalDateTime addedAt;
+    }
+
+    private final Long id;
+    private final Long usuarioId;
+    private final LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    // productoId -> ítem, en orden de alta (como ORDER BY id en la base)
+    private final Map<Long, Item> items = new LinkedHashMap<>();
+
+    // Con cambios que todavía no se escribieron en la base
+    boolean sucio;
+    // Sacado del store: quien lo tenía en la mano tiene que volver a buscarlo
+    boolean descartado;
+    long ultimoAcceso = System.currentTimeMillis();
+
+    public CarritoEnMemoria(Long id, Long usuarioId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.usuarioId = usuarioId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUsuarioId() {
+        return usuarioId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public List<Item> getItems() {
+        return new ArrayList<>(items.values());
+    }
+
+    public Item getItem(Long productoId) {
+        return items.get(productoId);
+    }
+
+    public Item buscarItem(Long itemId) {
+        for (Item item : items.values()) {
+            if (item.getId().equals(itemId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    void poner(Item item, LocalDateTime momento) {
+        items.put(item.getProductoId(), item);
+        updatedAt = momento;
+    }
+
+    void quitar(Long productoId, LocalDateTime momento) {
+        items.remove(productoId);
+        updatedAt = momento;
+    }
+
+    void vaciar(LocalDateTime momento) {
+        items.clear();
+        updatedAt = momento;
+    }
+
+    // Foto independiente del original, para leerla o escribirla en la base sin el monitor tomado
+    public CarritoEnMemoria copiar() {
+        CarritoEnMemoria copia = new CarritoEnMemoria(id, usuarioId, createdAt, updatedAt);
+        for (Item item : items.values()) {
+            copia.items.put(item.getProductoId(), new Item(item.getId(), item.getProductoId(), item.getCantidad(),
+                item.getPrecioUnitario(), item.getAddedAt()));
+        }
+        return copia;
+    }
+}
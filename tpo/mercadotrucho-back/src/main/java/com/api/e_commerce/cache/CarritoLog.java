@@ -0,0 +1,201 @@
+package com.api.e_commerce.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Log de modificaciones de carritos en disco, un registro JSON por línea. Se escribe antes de aplicar el
+// cambio en memoria y de responder, así que lo que no llegó a la base se recupera releyéndolo al arrancar.
+// Se divide en segmentos: CarritoStore rota al segmento siguiente antes de cada volcado y borra los
+// anteriores cuando la base ya tiene todo lo que contenían.
+class CarritoLog implements AutoCloseable {
+
+    enum Operacion { PONER, QUITAR, VACIAR, CHECKOUT }
+
+    // Cada registro lleva el estado final del ítem (no la diferencia): reaplicarlo es idempotente,
+    // y da lo mismo si el volcado que lo incluía llegó o no a la base antes de una caída
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Registro {
+        private Operacion op;
+        private Long usuarioId;
+        private Long carritoId;
+        private Long itemId;
+        private Long productoId;
+        private Integer cantidad;
+        private BigDecimal precioUnitario;
+        private LocalDateTime addedAt;
+        private LocalDateTime momento;
+        // Solo en CHECKOUT: al reaplicarlo el carrito se vacía si el pedido quedó confirmado en la base
+        private Long pedidoId;
+    }
+
+    private static final String PREFIJO = "carrito-";
+    private static final String EXTENSION = ".log";
+
+    private final Path directorio;
+    private final boolean fsync;
+    private final ObjectMapper objectMapper;
+
+    private FileChannel actual;
+    private long segmento;
+    // Bytes escritos y bytes ya forzados a disco, contando todos los segmentos
+    private long escrito;
+    private long sincronizado;
+    // Se toma antes que el monitor del log: un solo force a la vez, y la rotación no cierra un
+    // canal que otro hilo está forzando
+    private final Object sincronizacion = new Object();
+
+    CarritoLog(Path directorio, boolean fsync, ObjectMapper objectMapper) throws IOException {
+        this.directorio = directorio;
+        this.fsync = fsync;
+        this.objectMapper = objectMapper;
+        Files.createDirectories(directorio);
+        List<Long> existentes = segmentos();
+        this.segmento = existentes.isEmpty() ? 1 : existentes.get(existentes.size() - 1) + 1;
+        this.actual = abrir(segmento);
+        sincronizarDirectorio();
+    }
+
+    // Vuelve cuando el registro está en disco. Varios hilos que escriben a la vez comparten un mismo
+    // force: el que lo hace cubre todo lo escrito hasta ese momento y los demás no necesitan otro.
+    void escribir(Registro registro) {
+        long hasta;
+        try {
+            ByteBuffer linea = ByteBuffer.wrap((objectMapper.writeValueAsString(registro) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+            synchronized (this) {
+                while (linea.hasRemaining()) {
+                    actual.write(linea);
+                }
+                escrito += linea.limit();
+                hasta = escrito;
+            }
+            if (fsync) {
+                sincronizar(hasta);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el log de carritos", e);
+        }
+    }
+
+    private void sincronizar(long hasta) throws IOException {
+        synchronized (sincronizacion) {
+            if (sincronizado >= hasta) {
+                return;
+            }
+            FileChannel canal;
+            long cubierto;
+            synchronized (this) {
+                canal = actual;
+                cubierto = escrito;
+            }
+            canal.force(false);
+            sincronizado = cubierto;
+        }
+    }
+
+    // Cierra el segmento actual y pasa al siguiente; devuelve el número del cerrado
+    long rotar() throws IOException {
+        synchronized (sincronizacion) {
+            synchronized (this) {
+                actual.force(false);
+                actual.close();
+                sincronizado = escrito;
+                long cerrado = segmento;
+                segmento++;
+                actual = abrir(segmento);
+                sincronizarDirectorio();
+                return cerrado;
+            }
+        }
+    }
+
+    // Borra los segmentos hasta el indicado (inclusive), ya volcados a la base
+    void borrarHasta(long hasta) throws IOException {
+        for (Long numero : segmentos()) {
+            if (numero <= hasta) {
+                Files.deleteIfExists(archivo(numero));
+            }
+        }
+    }
+
+    // Todos los registros de los segmentos cerrados y del actual, en orden. Una última línea cortada
+    // (caída a mitad de una escritura) se ignora: esa modificación nunca se confirmó al cliente.
+    List<Registro> leer() throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        for (Long numero : segmentos()) {
+            try (BufferedReader lector = Files.newBufferedReader(archivo(numero), StandardCharsets.UTF_8)) {
+                String linea;
+                while ((linea = lector.readLine()) != null) {
+                    if (linea.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        registros.add(objectMapper.readValue(linea, Registro.class));
+                    } catch (IOException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return registros;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        actual.close();
+    }
+
+    private List<Long> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos
+                .map(path -> path.getFileName().toString())
+                .filter(nombre -> nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION))
+                .map(nombre -> Long.valueOf(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length())))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private FileChannel abrir(long numero) throws IOException {
+        return FileChannel.open(archivo(numero),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // El force del segmento no cubre su entrada en el directorio: sin esto, un segmento recién creado
+    // puede no aparecer después de una caída aunque sus registros se hayan forzado
+    private void sincronizarDirectorio() throws IOException {
+        if (!fsync) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(directorio, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows no permite abrir un directorio como canal; ahí la entrada se persiste con el archivo
+        }
+    }
+
+    private Path archivo(long numero) {
+        return directorio.resolve(String.format("%s%012d%s", PREFIJO, numero, EXTENSION));
+    }
+}
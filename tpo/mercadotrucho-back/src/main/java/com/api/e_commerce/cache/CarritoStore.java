@@ -0,0 +1,325 @@
+package com.api.e_commerce.cache;
+
+import com.api.e_commerce.dao.CarritoDAO;
+import com.api.e_commerce.dao.IdGeneradorDAO;
+import com.api.e_commerce.exception.InsufficientStockException;
+import com.api.e_commerce.exception.NotFoundException;
+import com.api.e_commerce.model.Carrito;
+import com.api.e_commerce.model.Producto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Carritos activos en memoria con escritura diferida (write-behind), activado con carrito.write-behind.enabled.
+// Cada modificación se escribe en CarritoLog, se aplica al carrito en memoria y se confirma al cliente sin
+// pasar por MySQL; cada flush-interval-ms los carritos modificados se vuelcan juntos con CarritoDAO.guardar.
+// Los carritos sin cambios pendientes que no se usan hace idle-minutes se descartan y se releen de la base.
+// El estado vive en el proceso: con más de una instancia de la API este modo tiene que quedar apagado.
+@Slf4j
+@Component
+public class CarritoStore {
+
+    private final CarritoDAO carritoDAO;
+    private final IdGeneradorDAO idGeneradorDAO;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaccion;
+    private final boolean activo;
+    private final Path directorioLog;
+    private final boolean fsync;
+    private final long intervaloMs;
+    private final long inactivoMs;
+
+    // usuarioId -> carrito
+    private final Map<Long, CarritoEnMemoria> carritos = new ConcurrentHashMap<>();
+    // Un volcado a la vez: dos fotos del mismo carrito no pueden llegar a la base en desorden
+    private final ReentrantLock volcado = new ReentrantLock();
+
+    private CarritoLog carritoLog;
+    private ScheduledExecutorService volcador;
+
+    public CarritoStore(CarritoDAO carritoDAO, IdGeneradorDAO idGeneradorDAO, ObjectMapper objectMapper,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${carrito.write-behind.enabled:false}") boolean activo,
+                        @Value("${carrito.write-behind.log-dir:data/carrito-log}") String directorioLog,
+                        @Value("${carrito.write-behind.fsync:true}") boolean fsync,
+                        @Value("${carrito.write-behind.flush-interval-ms:2000}") long intervaloMs,
+                        @Value("${carrito.write-behind.idle-minutes:30}") long inactivoMinutos) {
+        this.carritoDAO = carritoDAO;
+        this.idGeneradorDAO = idGeneradorDAO;
+        this.objectMapper = objectMapper;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.activo = activo;
+        this.directorioLog = Path.of(directorioLog);
+        this.fsync = fsync;
+        this.intervaloMs = intervaloMs;
+        this.inactivoMs = TimeUnit.MINUTES.toMillis(inactivoMinutos);
+    }
+
+    // Antes de atender requests: lo que quedó en el log de una ejecución anterior se reaplica y se vuelca
+    @PostConstruct
+    public void iniciar() throws IOException {
+        if (!activo) {
+            return;
+        }
+        carritoLog = new CarritoLog(directorioLog, fsync, objectMapper);
+        List<CarritoLog.Registro> pendientes = carritoLog.leer();
+        if (!pendientes.isEmpty()) {
+            recuperar(pendientes);
+            log.info("Carritos: {} modificaciones recuperadas del log", pendientes.size());
+        }
+        volcar();
+
+        volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "carrito-volcador");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcador.scheduleWithFixedDelay(this::volcarProgramado, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (!activo) {
+            return;
+        }
+        volcador.shutdown();
+        volcar();
+        carritoLog.close();
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    // Ejecuta la operación con el carrito del usuario tomado en exclusiva, cargándolo de la base si no
+    // está en memoria (carritoDeLaBase lo busca o lo crea, y puede fallar con la excepción que corresponda).
+    // Se llama fuera de una transacción: la operación en memoria no ocupa una conexión, y solo la carga
+    // abre una transacción propia (un carrito recién creado queda confirmado en la base, adonde se van a
+    // volcar sus ítems, aunque después falle la operación).
+    public <T> T conCarrito(Long usuarioId, Supplier<Carrito> carritoDeLaBase, Function<CarritoEnMemoria, T> operacion) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("conCarrito no se puede llamar dentro de una transacción");
+        }
+        while (true) {
+            CarritoEnMemoria carrito = carritos.get(usuarioId);
+            if (carrito == null) {
+                CarritoEnMemoria cargado = transaccion.execute(status -> {
+                    Carrito entidad = carritoDeLaBase.get();
+                    CarritoEnMemoria nuevo = new CarritoEnMemoria(entidad.getId(), usuarioId,
+                        entidad.getCreatedAt(), entidad.getUpdatedAt());
+                    for (CarritoEnMemoria.Item item : carritoDAO.cargarItems(entidad.getId())) {
+                        nuevo.poner(item, entidad.getUpdatedAt());
+                    }
+                    return nuevo;
+                });
+                CarritoEnMemoria anterior = carritos.putIfAbsent(usuarioId, cargado);
+                carrito = anterior != null ? anterior : cargado;
+            }
+            synchronized (carrito) {
+                if (!carrito.descartado) {
+                    carrito.ultimoAcceso = System.currentTimeMillis();
+                    return operacion.apply(carrito);
+                }
+            }
+        }
+    }
+
+    // Suma la cantidad al ítem del producto (o lo crea con el precio actual) sin pasar el stock del producto
+    public void sumar(CarritoEnMemoria carrito, Producto producto, int cantidad) {
+        CarritoEnMemoria.Item actual = carrito.getItem(producto.getId());
+        int total = (actual != null ? actual.getCantidad() : 0) + cantidad;
+        if (producto.getStock() < total) {
+            throw new InsufficientStockException(producto.getTitle(), producto.getStock(), total);
+        }
+        CarritoEnMemoria.Item item = actual != null ?
+            new CarritoEnMemoria.Item(actual.getId(), actual.getProductoId(), total, actual.getPrecioUnitario(),
+                actual.getAddedAt()) :
+            new CarritoEnMemoria.Item(idGeneradorDAO.siguiente("carrito_item"), producto.getId(), total,
+                producto.getPrice(), LocalDateTime.now());
+        poner(carrito, item);
+    }
+
+    public void cambiarCantidad(CarritoEnMemoria carrito, Long itemId, int cantidad) {
+        CarritoEnMemoria.Item actual = buscarItem(carrito, itemId);
+        poner(carrito, new CarritoEnMemoria.Item(actual.getId(), actual.getProductoId(), cantidad,
+            actual.getPrecioUnitario(), actual.getAddedAt()));
+    }
+
+    public void quitar(CarritoEnMemoria carrito, Long itemId) {
+        CarritoEnMemoria.Item item = buscarItem(carrito, itemId);
+        LocalDateTime momento = LocalDateTime.now();
+        registrar(carrito, new CarritoLog.Registro(CarritoLog.Operacion.QUITAR, carrito.getUsuarioId(),
+            carrito.getId(), item.getId(), item.getProductoId(), null, null, null, momento, null));
+        carrito.quitar(item.getProductoId(), momento);
+    }
+
+    public void vaciar(CarritoEnMemoria carrito) {
+        LocalDateTime momento = LocalDateTime.now();
+        registrar(carrito, new CarritoLog.Registro(CarritoLog.Operacion.VACIAR, carrito.getUsuarioId(),
+            carrito.getId(), null, null, null, null, null, momento, null));
+        carrito.vaciar(momento);
+    }
+
+    // Checkout en dos pasos. marcarCheckout escribe en el log, antes del commit del pedido, que el carrito
+    // se compró con ese pedido: si el proceso cae entre el commit y aplicarCheckout, al reaplicar el log el
+    // carrito se vacía porque el pedido existe. Si el pedido hace rollback la marca no tiene efecto.
+    public void marcarCheckout(CarritoEnMemoria carrito, Long pedidoId) {
+        registrar(carrito, new CarritoLog.Registro(CarritoLog.Operacion.CHECKOUT, carrito.getUsuarioId(),
+            carrito.getId(), null, null, null, null, null, LocalDateTime.now(), pedidoId));
+    }
+
+    // Después del commit: vacía el carrito en memoria (el log ya tiene la marca del checkout)
+    public void aplicarCheckout(CarritoEnMemoria carrito) {
+        if (!Thread.holdsLock(carrito)) {
+            throw new IllegalStateException("El carrito se modifica solo dentro de conCarrito");
+        }
+        carrito.vaciar(LocalDateTime.now());
+        carrito.sucio = true;
+    }
+
+    // Vuelca todos los carritos con cambios. El log se rota antes de tomar las fotos: todo lo que quedó en
+    // los segmentos cerrados ya está aplicado en memoria (se escribe y aplica con el carrito tomado), así
+    // que esos segmentos se pueden borrar cuando la base confirma. Si falla, quedan para el próximo volcado.
+    public void volcar() {
+        if (!activo) {
+            return;
+        }
+        volcado.lock();
+        try {
+            long cerrado = carritoLog.rotar();
+            List<CarritoEnMemoria> fotos = new ArrayList<>();
+            long limiteInactivo = System.currentTimeMillis() - inactivoMs;
+            for (CarritoEnMemoria carrito : carritos.values()) {
+                synchronized (carrito) {
+                    if (carrito.sucio) {
+                        fotos.add(carrito.copiar());
+                        carrito.sucio = false;
+                    } else if (carrito.ultimoAcceso < limiteInactivo) {
+                        carrito.descartado = true;
+                        carritos.remove(carrito.getUsuarioId(), carrito);
+                    }
+                }
+            }
+            guardar(fotos);
+            carritoLog.borrarHasta(cerrado);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo rotar el log de carritos", e);
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    private void volcarProgramado() {
+        try {
+            volcar();
+        } catch (RuntimeException e) {
+            log.error("Carritos: falló el volcado a la base, se reintenta en el próximo intervalo", e);
+        }
+    }
+
+    // Si la base rechaza el lote, los carritos vuelven a quedar pendientes
+    private void guardar(List<CarritoEnMemoria> fotos) {
+        try {
+            carritoDAO.guardar(fotos);
+        } catch (RuntimeException e) {
+            for (CarritoEnMemoria foto : fotos) {
+                CarritoEnMemoria carrito = carritos.get(foto.getUsuarioId());
+                if (carrito != null) {
+                    synchronized (carrito) {
+                        carrito.sucio = true;
+                    }
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void poner(CarritoEnMemoria carrito, CarritoEnMemoria.Item item) {
+        LocalDateTime momento = LocalDateTime.now();
+        registrar(carrito, new CarritoLog.Registro(CarritoLog.Operacion.PONER, carrito.getUsuarioId(),
+            carrito.getId(), item.getId(), item.getProductoId(), item.getCantidad(), item.getPrecioUnitario(),
+            item.getAddedAt(), momento, null));
+        carrito.poner(item, momento);
+    }
+
+    // Primero el log y después la memoria: si la escritura falla, el cambio no se aplica ni se confirma
+    private void registrar(CarritoEnMemoria carrito, CarritoLog.Registro registro) {
+        if (!Thread.holdsLock(carrito)) {
+            throw new IllegalStateException("El carrito se modifica solo dentro de conCarrito");
+        }
+        carritoLog.escribir(registro);
+        carrito.sucio = true;
+    }
+
+    private CarritoEnMemoria.Item buscarItem(CarritoEnMemoria carrito, Long itemId) {
+        CarritoEnMemoria.Item item = carrito.buscarItem(itemId);
+        if (item == null) {
+            throw new NotFoundException("Item no encontrado");
+        }
+        return item;
+    }
+
+    // Reaplica los registros sobre el estado de la base de cada carrito. Como cada registro trae el
+    // estado final del ítem, da igual que parte de ellos ya se hubiera volcado antes de la caída.
+    private void recuperar(List<CarritoLog.Registro> registros) {
+        Map<Long, CarritoEnMemoria> porCarrito = new HashMap<>();
+        for (CarritoLog.Registro registro : registros) {
+            CarritoEnMemoria carrito = porCarrito.computeIfAbsent(registro.getCarritoId(), id ->
+                carritoDAO.cargar(id).map(cargado -> {
+                    for (CarritoEnMemoria.Item item : carritoDAO.cargarItems(id)) {
+                        cargado.poner(item, cargado.getUpdatedAt());
+                    }
+                    return cargado;
+                }).orElse(null));
+            if (carrito == null) {
+                // El carrito se borró de la base: sus modificaciones ya no tienen dónde ir
+                continue;
+            }
+            switch (registro.getOp()) {
+                case PONER:
+                    carrito.poner(new CarritoEnMemoria.Item(registro.getItemId(), registro.getProductoId(),
+                        registro.getCantidad(), registro.getPrecioUnitario(), registro.getAddedAt()),
+                        registro.getMomento());
+                    break;
+                case QUITAR:
+                    carrito.quitar(registro.getProductoId(), registro.getMomento());
+                    break;
+                case VACIAR:
+                    carrito.vaciar(registro.getMomento());
+                    break;
+                case CHECKOUT:
+                    if (carritoDAO.existePedido(registro.getPedidoId())) {
+                        carrito.vaciar(registro.getMomento());
+                    }
+                    break;
+            }
+            carrito.sucio = true;
+        }
+        for (CarritoEnMemoria carrito : porCarrito.values()) {
+            if (carrito != null) {
+                carritos.put(carrito.getUsuarioId(), carrito);
+            }
+        }
+    }
+}
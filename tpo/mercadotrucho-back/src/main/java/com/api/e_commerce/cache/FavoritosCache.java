@@ -0,0 +1,84 @@
+package com.api.e_commerce.cache;
+
+import com.api.e_commerce.datasource.LecturaPrimaria;
+import com.api.e_commerce.event.FavoritoChangedEvent;
+import com.api.e_commerce.repository.FavoritoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Favoritos de los usuarios activos en memoria, para marcar esFavorito sin ir a la base por cada producto.
+// Cada usuario se guarda como un long[] ordenado de ids de producto, se carga la primera vez que se consulta
+// y se descarta por LRU o cuando cambia alguno de sus favoritos.
+@Component
+public class FavoritosCache {
+    
+    private static final long[] VACIO = new long[0];
+    private static final int FRANJAS = 1024;
+    
+    private final FavoritoRepository favoritoRepository;
+    private final LecturaPrimaria lecturaPrimaria;
+    private final int maxUsuarios;
+    
+    private final LinkedHashMap<Long, long[]> porUsuario;
+    // Generación por franja de usuarios: se incrementa en cada cambio, y una carga que se cruzó
+    // con un cambio del mismo usuario (o de su franja) no se guarda
+    private final AtomicLongArray generaciones = new AtomicLongArray(FRANJAS);
+    
+    public FavoritosCache(FavoritoRepository favoritoRepository, LecturaPrimaria lecturaPrimaria,
+                          @Value("${favoritos.cache.max-usuarios:100000}") int maxUsuarios) {
+        this.favoritoRepository = favoritoRepository;
+        this.lecturaPrimaria = lecturaPrimaria;
+        this.maxUsuarios = maxUsuarios;
+        this.porUsuario = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+                return size() > FavoritosCache.this.maxUsuarios;
+            }
+        };
+    }
+    
+    public boolean esFavorito(Long usuarioId, Long productoId) {
+        return usuarioId != null && Arrays.binarySearch(favoritosDe(usuarioId), productoId) >= 0;
+    }
+    
+    // Se descarta el conjunto en lugar de aplicarle el cambio: los eventos AFTER_COMMIT de dos cambios
+    // concurrentes pueden llegar en otro orden que sus commits, y la próxima consulta lo relee de la base
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFavoritoChanged(FavoritoChangedEvent event) {
+        synchronized (porUsuario) {
+            generaciones.incrementAndGet(franja(event.getUsuarioId()));
+            porUsuario.remove(event.getUsuarioId());
+        }
+    }
+    
+    private long[] favoritosDe(Long usuarioId) {
+        synchronized (porUsuario) {
+            long[] favoritos = porUsuario.get(usuarioId);
+            if (favoritos != null) {
+                return favoritos;
+            }
+        }
+        
+        long generacionInicial = generaciones.get(franja(usuarioId));
+        List<Long> ids = lecturaPrimaria.leer(() -> favoritoRepository.findProductoIdsByUsuarioId(usuarioId));
+        long[] favoritos = ids.isEmpty() ? VACIO : ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        synchronized (porUsuario) {
+            if (generaciones.get(franja(usuarioId)) == generacionInicial) {
+                porUsuario.put(usuarioId, favoritos);
+            }
+        }
+        return favoritos;
+    }
+    
+    private static int franja(Long usuarioId) {
+        return (int) (usuarioId & (FRANJAS - 1));
+    }
+}
@@ -0,0 +1,108 @@
+package com.api.e_commerce.cache;
+
+import com.api.e_commerce.dto.producto.ProductoDTO;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.StockDescontadoEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Cache local (LRU + TTL) de la vista de detalle de producto. Guarda el DTO sin datos del usuario
+// (esFavorito = false) para que la misma entrada sirva a todos; el favorito se marca después.
+@Component
+public class ProductoCache {
+    
+    private final int maxSize;
+    private final long ttlMillis;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    // Se incrementa en cada invalidación; una carga que empezó antes no debe volver a guardar un valor viejo
+    private final AtomicLong generacion = new AtomicLong();
+    
+    // LinkedHashMap en orden de acceso: el más antiguo se descarta al superar maxSize
+    private final LinkedHashMap<Long, Entrada> entradas;
+    
+    private record Entrada(ProductoDTO producto, long expiraEn) {
+    }
+    
+    public ProductoCache(@Value("${productos.cache.max-size:10000}") int maxSize,
+                         @Value("${productos.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> eldest) {
+                if (size() > ProductoCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    public ProductoDTO get(Long productoId, Function<Long, ProductoDTO> loader) {
+        long ahora = System.currentTimeMillis();
+        synchronized (entradas) {
+            Entrada entrada = entradas.get(productoId);
+            if (entrada != null && entrada.expiraEn() > ahora) {
+                hits.incrementAndGet();
+                return entrada.producto();
+            }
+        }
+        
+        // La carga se hace fuera del lock para no serializar las lecturas a la base
+        misses.incrementAndGet();
+        long generacionInicial = generacion.get();
+        ProductoDTO producto = loader.apply(productoId);
+        synchronized (entradas) {
+            if (generacion.get() == generacionInicial) {
+                entradas.put(productoId, new Entrada(producto, ahora + ttlMillis));
+            }
+        }
+        return producto;
+    }
+    
+    public void invalidate(Long productoId) {
+        synchronized (entradas) {
+            generacion.incrementAndGet();
+            entradas.remove(productoId);
+        }
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        invalidate(event.getProductoId());
+    }
+    
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockDescontado(StockDescontadoEvent event) {
+        event.getProductoIds().forEach(this::invalidate);
+    }
+    
+    public Map<String, Object> getStats() {
+        long totalHits = hits.get();
+        long totalMisses = misses.get();
+        long total = totalHits + totalMisses;
+        int size;
+        synchronized (entradas) {
+            size = entradas.size();
+        }
+        return Map.of(
+            "size", size,
+            "maxSize", maxSize,
+            "hits", totalHits,
+            "misses", totalMisses,
+            "evictions", evictions.get(),
+            "hitRate", total == 0 ? 0.0 : (double) totalHits / total
+        );
+    }
+}
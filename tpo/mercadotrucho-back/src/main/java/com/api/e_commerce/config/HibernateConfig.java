@@ -0,0 +1,16 @@
+package com.api.e_commerce.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateConfig {
+    
+    // Con @TableGenerator y allocationSize > 1, pooled-lo hace que el valor de id_generador sea el primer id
+    // libre del próximo bloque. IdGeneradorDAO.reservar depende de esa convención, por eso no queda en properties.
+    @Bean
+    public HibernatePropertiesCustomizer optimizadorIds() {
+        return properties -> properties.put("hibernate.id.optimizer.pooled.preferred", "pooled-lo");
+    }
+}
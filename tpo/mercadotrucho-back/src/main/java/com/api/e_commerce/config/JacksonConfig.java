@@ -0,0 +1,17 @@
+package com.api.e_commerce.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+    
+    // ProductoDTO declara un @JsonFilter para ?fields=; cuando la respuesta no trae filtro
+    // (MappingJacksonValue) se serializan todas las propiedades en lugar de fallar
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer filtrosOpcionales() {
+        return builder -> builder.filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+}
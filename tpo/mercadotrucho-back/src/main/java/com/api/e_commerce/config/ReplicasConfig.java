@@ -0,0 +1,83 @@
+package com.api.e_commerce.config;
+
+import com.api.e_commerce.datasource.EscriturasRecientes;
+import com.api.e_commerce.datasource.ReplicaMonitor;
+import com.api.e_commerce.datasource.RuteoDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Lecturas en réplicas: solo se activa si datasource.replicas.urls tiene al menos una URL. Reemplaza el
+// DataSource de Spring Boot (spring.datasource.*, que sigue siendo la primaria) por un RuteoDataSource.
+@Configuration
+@ConditionalOnExpression("!'${datasource.replicas.urls:}'.isBlank()")
+public class ReplicasConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaMonitor replicaMonitor(
+            DataSourceProperties primaria,
+            @Value("${datasource.replicas.urls}") String urls,
+            @Value("${datasource.replicas.username:}") String username,
+            @Value("${datasource.replicas.password:}") String password,
+            @Value("${datasource.replicas.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+            @Value("${datasource.replicas.max-lag-seconds:5}") long maxLagSegundos,
+            @Value("${datasource.replicas.check-interval-ms:5000}") long intervaloMs) {
+
+        List<String> direcciones = Arrays.stream(urls.split(","))
+            .map(String::trim)
+            .filter(url -> !url.isEmpty())
+            .collect(Collectors.toList());
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < direcciones.size(); i++) {
+            String nombre = "replica-" + (i + 1);
+            // Usuario y contraseña de la primaria salvo que se configuren otros
+            HikariDataSource replica = primaria.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(direcciones.get(i))
+                .username(username.isEmpty() ? primaria.determineUsername() : username)
+                .password(password.isEmpty() ? primaria.determinePassword() : password)
+                .build();
+            replica.setPoolName(nombre);
+            replica.setReadOnly(true);
+            replicas.put(nombre, replica);
+        }
+        return new ReplicaMonitor(replicas, lagQuery, maxLagSegundos, intervaloMs);
+    }
+
+    @Bean
+    public EscriturasRecientes escriturasRecientes(@Value("${datasource.replicas.read-your-writes-ms:5000}") long ventanaMs) {
+        return new EscriturasRecientes(ventanaMs);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaria, ReplicaMonitor monitor, EscriturasRecientes escrituras) {
+        HikariDataSource principal = primaria.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        principal.setPoolName(RuteoDataSource.PRIMARIA);
+
+        Map<Object, Object> destinos = new HashMap<>();
+        destinos.put(RuteoDataSource.PRIMARIA, principal);
+        for (ReplicaMonitor.Replica replica : monitor.getReplicas()) {
+            destinos.put(replica.getNombre(), replica.getDataSource());
+        }
+
+        RuteoDataSource ruteo = new RuteoDataSource(monitor, escrituras);
+        ruteo.setTargetDataSources(destinos);
+        ruteo.setDefaultTargetDataSource(principal);
+        ruteo.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(ruteo);
+    }
+}
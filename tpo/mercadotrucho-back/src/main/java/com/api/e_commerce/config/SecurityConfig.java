@@ -1,9 +1,11 @@
 
 package com.api.e_commerce.config;
 
+import com.api.e_commerce.model.Usuario;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -34,6 +36,11 @@ public class SecurityConfig {
                 .cors(cors -> cors.configure(http)) // Habilitar CORS
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
+                        // Importación masiva: escribe productos de cualquier vendedor, solo para administradores.
+                        // Estos van antes que el permitAll de /api/productos/**
+                        .requestMatchers(HttpMethod.POST, "/api/productos/import").hasRole(Usuario.Role.admin.name())
+                        // Estadísticas internas de los cachés: tampoco son públicas
+                        .requestMatchers("/api/productos/cache/stats").hasRole(Usuario.Role.admin.name())
                         // Endpoints públicos
                         .requestMatchers(
                                 "/api/auth/**",
@@ -1,7 +1,9 @@
 package com.api.e_commerce.controller;
 
 import com.api.e_commerce.dto.carrito.CarritoDTO;
+import com.api.e_commerce.dto.pedido.PedidoDTO;
 import com.api.e_commerce.service.CarritoService;
+import com.api.e_commerce.service.PedidoService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 public class CarritoController {
     
     private final CarritoService carritoService;
+    private final PedidoService pedidoService;
     
     @GetMapping("/{usuarioId}")
     public ResponseEntity<CarritoDTO> getCarrito(@PathVariable Long usuarioId) {
@@ -48,6 +51,13 @@ public class CarritoController {
         return ResponseEntity.ok(carrito);
     }
     
+    // Confirma el carrito como pedido: descuenta el stock de todos los ítems y vacía el carrito
+    @PostMapping("/{usuarioId}/checkout")
+    public ResponseEntity<PedidoDTO> checkout(@PathVariable Long usuarioId) {
+        PedidoDTO pedido = pedidoService.checkout(usuarioId);
+        return ResponseEntity.ok(pedido);
+    }
+    
     @DeleteMapping("/{usuarioId}")
     public ResponseEntity<Void> clearCarrito(@PathVariable Long usuarioId) {
         carritoService.clearCarrito(usuarioId);
@@ -7,6 +7,7 @@ import com.api.e_commerce.exception.ProductoNotFoundException;
 import com.api.e_commerce.exception.UsuarioNotFoundException;
 import com.api.e_commerce.exception.CategoriaNotFoundException;
 import com.api.e_commerce.exception.CarritoNotFoundException;
+import com.api.e_commerce.exception.CarritoModificadoException;
 import com.api.e_commerce.exception.EmailAlreadyExistsException;
 import com.api.e_commerce.exception.InsufficientStockException;
 import org.springframework.http.HttpStatus;
@@ -45,6 +46,11 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex.getMessage(), HttpStatus.CONFLICT);
     }
 
+    @ExceptionHandler(CarritoModificadoException.class)
+    public ResponseEntity<Map<String, Object>> handleCarritoModificado(CarritoModificadoException ex) {
+        return buildErrorResponse(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(InsufficientStockException.class)
     public ResponseEntity<Map<String, Object>> handleInsufficientStock(InsufficientStockException ex) {
         return buildErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
@@ -1,15 +1,39 @@
 package com.api.e_commerce.controller;
 
+import com.api.e_commerce.dto.CursorSliceDTO;
+import com.api.e_commerce.dto.producto.BusquedaFacetadaDTO;
+import com.api.e_commerce.dto.producto.CamposProducto;
+import com.api.e_commerce.dto.producto.ProductoCambioDTO;
+import com.api.e_commerce.dto.producto.FiltroProductos;
+import com.api.e_commerce.dto.producto.ImportacionResultadoDTO;
+import com.api.e_commerce.dto.producto.ProductoCardDTO;
 import com.api.e_commerce.dto.producto.ProductoDTO;
+import com.api.e_commerce.dto.producto.SugerenciaDTO;
+import com.api.e_commerce.exception.BadRequestException;
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.service.ProductoCambioService;
+import com.api.e_commerce.service.ProductoExportService;
+import com.api.e_commerce.service.ProductoImportService;
 import com.api.e_commerce.service.ProductoService;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/productos")
@@ -17,49 +41,167 @@ import java.util.List;
 public class ProductoController {
     
     private final ProductoService productoService;
+    private final ProductoImportService productoImportService;
+    private final ProductoExportService productoExportService;
+    private final ProductoCambioService productoCambioService;
     
+    // Listados paginados que se resuelven en memoria: el offset no puede crecer sin límite
+    // (para recorrer más allá están los endpoints /scroll)
+    private static final int MAX_TAMANIO_PAGINA = 100;
+    private static final int MAX_OFFSET = 10_000;
+    
+    // ?fields=id,title,price,... devuelve solo esos campos (y evita cargar lo que no se pide)
     @GetMapping
-    public ResponseEntity<Page<ProductoDTO>> getAllProductos(
+    public ResponseEntity<MappingJacksonValue> getAllProductos(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) Long usuarioId) {
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) String fields) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<ProductoDTO> productos = usuarioId != null ?
-            productoService.getAllProductos(usuarioId, pageable) :
-            productoService.getAllProductos(pageable);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.getAllProductos(usuarioId, pageable, campos);
         
-        return ResponseEntity.ok(productos);
+        return conCampos(productos, campos);
+    }
+    
+    // Variante por cursor para scroll infinito: devuelve el cursor "next" en lugar de números de página
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorSliceDTO<ProductoDTO>> getAllProductosCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId) {
+        
+        return ResponseEntity.ok(productoService.getAllProductosCursor(cursor, size, usuarioId));
+    }
+    
+    // Listados livianos para grillas: tarjetas con las columnas mínimas, sin hidratar entidades
+    @GetMapping("/cards")
+    public ResponseEntity<Page<ProductoCardDTO>> getProductoCards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(productoService.getProductoCards(PageRequest.of(page, size)));
+    }
+    
+    @GetMapping("/cards/search")
+    public ResponseEntity<Page<ProductoCardDTO>> searchProductoCards(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(productoService.searchProductoCards(q, paginaAcotada(page, size)));
+    }
+    
+    @GetMapping("/cards/categoria/{categoria}")
+    public ResponseEntity<Page<ProductoCardDTO>> getProductoCardsByCategoria(
+            @PathVariable String categoria,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(productoService.getProductoCardsByCategoria(categoria, PageRequest.of(page, size)));
+    }
+    
+    @GetMapping("/cards/vendedor/{vendedorId}")
+    public ResponseEntity<Page<ProductoCardDTO>> getProductoCardsByVendedor(
+            @PathVariable Long vendedorId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return ResponseEntity.ok(productoService.getProductoCardsByVendedor(vendedorId, PageRequest.of(page, size)));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<Page<ProductoDTO>> searchProductos(
+    public ResponseEntity<MappingJacksonValue> searchProductos(
             @RequestParam String q,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) String fields) {
+        
+        Pageable pageable = paginaAcotada(page, size);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.searchProductos(q, usuarioId, pageable, campos);
+        
+        return conCampos(productos, campos);
+    }
+    
+    @GetMapping("/search/scroll")
+    public ResponseEntity<CursorSliceDTO<ProductoDTO>> searchProductosCursor(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) Long usuarioId) {
         
-        Pageable pageable = PageRequest.of(page, size);
-        Page<ProductoDTO> productos = usuarioId != null ?
-            productoService.searchProductos(q, usuarioId, pageable) :
-            productoService.searchProductos(q, pageable);
+        return ResponseEntity.ok(productoService.searchProductosCursor(q, cursor, size, usuarioId));
+    }
+    
+    @GetMapping("/filtrar")
+    public ResponseEntity<MappingJacksonValue> filtrarProductos(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) Producto.ConditionType condition,
+            @RequestParam(required = false) Boolean freeShipping,
+            @RequestParam(required = false) Boolean enStock,
+            @RequestParam(defaultValue = "recientes") FiltroProductos.Orden orden,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) String fields) {
         
-        return ResponseEntity.ok(productos);
+        FiltroProductos filtro = buildFiltro(search, category, minPrice, maxPrice, condition, freeShipping, enStock, orden);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.filtrarProductos(filtro, usuarioId, paginaAcotada(page, size), campos);
+        return conCampos(productos, campos);
+    }
+    
+    // Mismos filtros que /filtrar, más los conteos por categoría, condición, envío gratis y rango de precio
+    @GetMapping("/facetas")
+    public ResponseEntity<BusquedaFacetadaDTO> buscarConFacetas(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false) Producto.ConditionType condition,
+            @RequestParam(required = false) Boolean freeShipping,
+            @RequestParam(required = false) Boolean enStock,
+            @RequestParam(defaultValue = "recientes") FiltroProductos.Orden orden,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId) {
+        
+        FiltroProductos filtro = buildFiltro(search, category, minPrice, maxPrice, condition, freeShipping, enStock, orden);
+        BusquedaFacetadaDTO resultado = productoService.buscarConFacetas(filtro, usuarioId, paginaAcotada(page, size));
+        return ResponseEntity.ok(resultado);
     }
     
     @GetMapping("/categoria/{categoria}")
-    public ResponseEntity<Page<ProductoDTO>> getProductosByCategoria(
+    public ResponseEntity<MappingJacksonValue> getProductosByCategoria(
             @PathVariable String categoria,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            @RequestParam(required = false) Long usuarioId) {
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) String fields) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<ProductoDTO> productos = usuarioId != null ?
-            productoService.getProductosByCategoria(categoria, usuarioId, pageable) :
-            productoService.getProductosByCategoria(categoria, pageable);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.getProductosByCategoria(categoria, usuarioId, pageable, campos);
         
-        return ResponseEntity.ok(productos);
+        return conCampos(productos, campos);
+    }
+    
+    @GetMapping("/categoria/{categoria}/scroll")
+    public ResponseEntity<CursorSliceDTO<ProductoDTO>> getProductosByCategoriaCursor(
+            @PathVariable String categoria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId) {
+        
+        return ResponseEntity.ok(productoService.getProductosByCategoriaCursor(categoria, cursor, size, usuarioId));
+    }
+    
+    // Solo administradores (ver SecurityConfig)
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(productoService.getCacheStats());
     }
     
     @GetMapping("/{id}")
@@ -89,6 +231,57 @@ public class ProductoController {
         return ResponseEntity.ok(nuevoProducto);
     }
     
+    // Importación masiva: CSV con encabezado (text/csv) o un ProductoDTO JSON por línea (application/x-ndjson).
+    // El cuerpo se procesa en streaming; las filas inválidas se informan en el resultado sin cortar la carga.
+    // Solo administradores (ver SecurityConfig): cada fila trae su seller_id.
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportacionResultadoDTO> importarProductos(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        ProductoImportService.Formato formato = contentType.toLowerCase().startsWith("text/csv") ?
+            ProductoImportService.Formato.CSV : ProductoImportService.Formato.NDJSON;
+        return ResponseEntity.ok(productoImportService.importar(body, formato));
+    }
+    
+    // Exportación completa o incremental (?desde=2024-01-01T00:00:00 -> modificados desde esa fecha) en NDJSON.
+    // Se escribe a medida que se lee de la base; ?gzip=true comprime la respuesta.
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarProductos(
+            @RequestParam(required = false) String categoria,
+            @RequestParam(required = false) Long vendedorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        // Seq del feed de cambios antes de leer: quien sincroniza sigue desde acá con /changes
+        long seqCambios = productoCambioService.getUltimoSeq();
+        StreamingResponseBody body = salida -> productoExportService.exportar(salida, gzip, categoria, vendedorId, desde);
+        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos.ndjson\"")
+            .header("X-Change-Seq", String.valueOf(seqCambios));
+        if (gzip) {
+            respuesta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return respuesta.body(body);
+    }
+    
+    // Autocompletado: títulos, categorías y tags que empiezan (o tienen una palabra que empieza) con q
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SugerenciaDTO>> getSugerencias(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productoService.getSugerencias(q, limit));
+    }
+    
+    // Feed de cambios para sincronización incremental: ?since=<seq> devuelve los cambios posteriores
+    // (altas/modificaciones como "upsert", bajas como "delete") y en "next" el since de la próxima llamada
+    @GetMapping("/changes")
+    public ResponseEntity<CursorSliceDTO<ProductoCambioDTO>> getCambios(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(productoCambioService.getCambios(since, limit));
+    }
+    
     @PutMapping("/{id}")
     public ResponseEntity<ProductoDTO> updateProducto(
             @PathVariable Long id,
@@ -104,13 +297,91 @@ public class ProductoController {
     }
     
     @GetMapping("/vendedor/{vendedorId}")
-    public ResponseEntity<Page<ProductoDTO>> getProductosByVendedor(
+    public ResponseEntity<MappingJacksonValue> getProductosByVendedor(
             @PathVariable Long vendedorId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<ProductoDTO> productos = productoService.getProductosByVendedor(vendedorId, pageable);
-        return ResponseEntity.ok(productos);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.getProductosByVendedor(vendedorId, pageable, campos);
+        return conCampos(productos, campos);
+    }
+    
+    @GetMapping("/tags/{tag}")
+    public ResponseEntity<MappingJacksonValue> getProductosByTag(
+            @PathVariable String tag,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) String fields) {
+        
+        Pageable pageable = paginaAcotada(page, size);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.getProductosByTags(List.of(tag), true, usuarioId, pageable, campos);
+        return conCampos(productos, campos);
+    }
+    
+    // Varios tags: ?tags=gamer,oferta&modo=and (todos) u or (alguno)
+    @GetMapping("/tags")
+    public ResponseEntity<MappingJacksonValue> getProductosByTags(
+            @RequestParam List<String> tags,
+            @RequestParam(defaultValue = "and") String modo,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) String fields) {
+        
+        if (!modo.equalsIgnoreCase("and") && !modo.equalsIgnoreCase("or")) {
+            throw new BadRequestException("modo debe ser and u or");
+        }
+        Pageable pageable = paginaAcotada(page, size);
+        CamposProducto campos = CamposProducto.parse(fields);
+        Page<ProductoDTO> productos = productoService.getProductosByTags(tags, modo.equalsIgnoreCase("and"),
+            usuarioId, pageable, campos);
+        return conCampos(productos, campos);
+    }
+    
+    @GetMapping("/vendedor/{vendedorId}/scroll")
+    public ResponseEntity<CursorSliceDTO<ProductoDTO>> getProductosByVendedorCursor(
+            @PathVariable Long vendedorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        
+        return ResponseEntity.ok(productoService.getProductosByVendedorCursor(vendedorId, cursor, size));
+    }
+    
+    // Aplica ?fields= a la serialización de los ProductoDTO de la respuesta
+    private ResponseEntity<MappingJacksonValue> conCampos(Object body, CamposProducto campos) {
+        MappingJacksonValue valor = new MappingJacksonValue(body);
+        if (!campos.isTodos()) {
+            valor.setFilters(new SimpleFilterProvider().addFilter(CamposProducto.FILTRO_JSON,
+                SimpleBeanPropertyFilter.filterOutAllExcept(campos.getCampos())));
+        }
+        return ResponseEntity.ok(valor);
+    }
+    
+    private Pageable paginaAcotada(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_TAMANIO_PAGINA || (long) page * size > MAX_OFFSET) {
+            throw new BadRequestException("page y size tienen que cumplir page >= 0, 1 <= size <= " + MAX_TAMANIO_PAGINA
+                + " y page * size <= " + MAX_OFFSET);
+        }
+        return PageRequest.of(page, size);
+    }
+    
+    private FiltroProductos buildFiltro(String search, String category, Integer minPrice, Integer maxPrice,
+                                        Producto.ConditionType condition, Boolean freeShipping, Boolean enStock,
+                                        FiltroProductos.Orden orden) {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setSearch(search);
+        filtro.setCategory(category);
+        filtro.setMinPrice(minPrice);
+        filtro.setMaxPrice(maxPrice);
+        filtro.setCondition(condition);
+        filtro.setFreeShipping(freeShipping);
+        filtro.setEnStock(enStock);
+        filtro.setOrden(orden);
+        return filtro;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.api.e_commerce.dao;
+
+import com.api.e_commerce.cache.CarritoEnMemoria;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+// Lectura y volcado de carritos para CarritoStore (modo write-behind), por JDBC y en lotes.
+@Repository
+public class CarritoDAO {
+
+    // El SELECT sobre producto descarta los ítems de productos que se borraron mientras el carrito estaba en memoria
+    private static final String INSERT_ITEM =
+        "INSERT INTO carrito_item (id, carrito_id, producto_id, cantidad, precio_unitario, added_at) " +
+        "SELECT ?, ?, p.id, ?, ?, ? FROM producto p WHERE p.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate nuevaTransaccion;
+
+    public CarritoDAO(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Optional<CarritoEnMemoria> cargar(Long carritoId) {
+        List<CarritoEnMemoria> carritos = jdbcTemplate.query(
+            "SELECT id, usuario_id, created_at, updated_at FROM carrito WHERE id = ?",
+            (rs, rowNum) -> new CarritoEnMemoria(rs.getLong("id"), rs.getLong("usuario_id"),
+                aFecha(rs.getTimestamp("created_at")), aFecha(rs.getTimestamp("updated_at"))),
+            carritoId);
+        return carritos.stream().findFirst();
+    }
+
+    public List<CarritoEnMemoria.Item> cargarItems(Long carritoId) {
+        return jdbcTemplate.query(
+            "SELECT id, producto_id, cantidad, precio_unitario, added_at FROM carrito_item " +
+            "WHERE carrito_id = ? ORDER BY id",
+            (rs, rowNum) -> new CarritoEnMemoria.Item(rs.getLong("id"), rs.getLong("producto_id"),
+                rs.getInt("cantidad"), rs.getBigDecimal("precio_unitario"), aFecha(rs.getTimestamp("added_at"))),
+            carritoId);
+    }
+
+    // Para reaplicar un checkout del log: el pedido existe solo si su transacción llegó al commit
+    public boolean existePedido(Long pedidoId) {
+        Integer cantidad = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM pedidos WHERE id = ?", Integer.class, pedidoId);
+        return cantidad != null && cantidad > 0;
+    }
+
+    // Deja en la base el estado completo de cada carrito (fecha de modificación e ítems) en una sola
+    // transacción: se borran sus ítems y se insertan los actuales, con los mismos ids que en memoria.
+    // Muchas modificaciones del mismo carrito entre dos volcados terminan en una sola escritura.
+    public void guardar(List<CarritoEnMemoria> carritos) {
+        if (carritos.isEmpty()) {
+            return;
+        }
+        List<Object[]> fechas = new ArrayList<>(carritos.size());
+        List<Object[]> items = new ArrayList<>();
+        List<Object> ids = new ArrayList<>(carritos.size());
+        for (CarritoEnMemoria carrito : carritos) {
+            ids.add(carrito.getId());
+            fechas.add(new Object[] {aTimestamp(carrito.getUpdatedAt()), carrito.getId()});
+            for (CarritoEnMemoria.Item item : carrito.getItems()) {
+                items.add(new Object[] {item.getId(), carrito.getId(), item.getCantidad(), item.getPrecioUnitario(),
+                    aTimestamp(item.getAddedAt()), item.getProductoId()});
+            }
+        }
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+
+        nuevaTransaccion.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("UPDATE carrito SET updated_at = ? WHERE id = ?", fechas);
+            jdbcTemplate.update("DELETE FROM carrito_item WHERE carrito_id IN (" + marcadores + ")", ids.toArray());
+            if (!items.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ITEM, items);
+            }
+        });
+    }
+
+    private static LocalDateTime aFecha(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static Timestamp aTimestamp(LocalDateTime fecha) {
+        return fecha != null ? Timestamp.valueOf(fecha) : null;
+    }
+}
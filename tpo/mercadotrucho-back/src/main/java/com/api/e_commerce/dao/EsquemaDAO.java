@@ -0,0 +1,70 @@
+package com.api.e_commerce.dao;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Ajustes de esquema para bases creadas antes de un cambio, que init.sql (CREATE TABLE IF NOT EXISTS) no
+// toca y que ddl-auto=update no puede hacer solo. Cada uno se fija primero si ya está aplicado.
+@Slf4j
+@Repository
+public class EsquemaDAO {
+
+    private static final String CLAVE_CARRITO_PRODUCTO = "unique_carrito_producto";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+
+    // El EntityManagerFactory se recibe solo para correr después de que Hibernate actualice el esquema
+    public EsquemaDAO(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                      EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void migrar() {
+        unicoItemPorProducto();
+    }
+
+    // Agregar al carrito es un INSERT ... ON DUPLICATE KEY UPDATE sobre (carrito_id, producto_id): sin la
+    // clave única cada alta insertaría una fila más. Las filas repetidas se juntan en la de menor id, con la
+    // suma de las cantidades, y recién entonces se crea la clave.
+    private void unicoItemPorProducto() {
+        if (existeIndice("carrito_item", CLAVE_CARRITO_PRODUCTO)) {
+            return;
+        }
+        int borradas = transaccion.execute(status -> {
+            jdbcTemplate.update(
+                "UPDATE carrito_item ci JOIN (" +
+                "SELECT MIN(id) AS id, SUM(cantidad) AS cantidad FROM carrito_item " +
+                "GROUP BY carrito_id, producto_id HAVING COUNT(*) > 1) repetidos ON repetidos.id = ci.id " +
+                "SET ci.cantidad = repetidos.cantidad");
+            return jdbcTemplate.update(
+                "DELETE ci FROM carrito_item ci JOIN carrito_item primero " +
+                "ON primero.carrito_id = ci.carrito_id AND primero.producto_id = ci.producto_id AND primero.id < ci.id");
+        });
+        try {
+            jdbcTemplate.execute("ALTER TABLE carrito_item ADD UNIQUE KEY " + CLAVE_CARRITO_PRODUCTO +
+                " (carrito_id, producto_id)");
+        } catch (RuntimeException e) {
+            // Otra instancia pudo crearla al mismo tiempo; si no, el error se propaga y la aplicación no arranca
+            if (!existeIndice("carrito_item", CLAVE_CARRITO_PRODUCTO)) {
+                throw e;
+            }
+        }
+        log.info("carrito_item: {} ítems repetidos unificados y clave {} creada", borradas, CLAVE_CARRITO_PRODUCTO);
+    }
+
+    private boolean existeIndice(String tabla, String indice) {
+        Integer cantidad = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ?",
+            Integer.class, tabla, indice);
+        return cantidad != null && cantidad > 0;
+    }
+}
@@ -0,0 +1,96 @@
+package com.api.e_commerce.dao;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Acceso a la tabla id_generador, de la que las entidades toman sus ids por bloques (@TableGenerator).
+// Cada fila guarda el primer id libre de una entidad; Hibernate usa el optimizador pooled-lo
+// (ver HibernateConfig), así que quien lee el valor V y lo lleva a V + n se queda con [V, V + n).
+@Repository
+public class IdGeneradorDAO {
+
+    // Tablas cuyos ids se administran; la fila de id_generador de cada una se llama igual que la tabla
+    private static final Set<String> TABLAS = Set.of(
+        "producto", "producto_imagen", "producto_tag", "usuario", "carrito", "carrito_item", "favorito",
+        "pedidos", "pedido_item"
+    );
+
+    // Ids que se piden de a uno (siguiente) se reservan de a BLOQUE, como hace Hibernate
+    private static final int BLOQUE = 50;
+
+    // Ids [proximo, fin) de un bloque reservado; proximo puede pasarse de fin (bloque agotado)
+    private static final class Bloque {
+        private final AtomicLong proximo;
+        private final long fin;
+
+        Bloque(long proximo, long fin) {
+            this.proximo = new AtomicLong(proximo);
+            this.fin = fin;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate nuevaTransaccion;
+    // entidad -> bloque actual
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
+
+    // El EntityManagerFactory se recibe solo para inicializar después de que Hibernate actualice el esquema
+    public IdGeneradorDAO(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Las tablas ya tienen filas insertadas con AUTO_INCREMENT (datos iniciales o bases anteriores a esta
+    // tabla): cada generador arranca después del mayor id existente. GREATEST lo hace seguro con varios nodos.
+    @PostConstruct
+    public void sincronizar() {
+        TABLAS.forEach(tabla -> jdbcTemplate.update(
+            "INSERT INTO id_generador (entidad, siguiente) SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + tabla +
+            " ON DUPLICATE KEY UPDATE siguiente = GREATEST(id_generador.siguiente, VALUES(siguiente))",
+            tabla));
+    }
+
+    // Reserva un bloque de ids consecutivos en una transacción propia (la fila queda bloqueada lo mínimo)
+    // y devuelve el primero. Lo usan los inserts JDBC que no pasan por Hibernate.
+    public long reservar(String entidad, int cantidad) {
+        if (!TABLAS.contains(entidad)) {
+            throw new IllegalArgumentException("Entidad sin generador de ids: " + entidad);
+        }
+        return nuevaTransaccion.execute(status -> {
+            Long siguiente = jdbcTemplate.queryForObject(
+                "SELECT siguiente FROM id_generador WHERE entidad = ? FOR UPDATE", Long.class, entidad);
+            jdbcTemplate.update("UPDATE id_generador SET siguiente = ? WHERE entidad = ?", siguiente + cantidad, entidad);
+            return siguiente;
+        });
+    }
+
+    // Un id para un insert JDBC suelto: sale del bloque en memoria y solo va a la base cada BLOQUE ids.
+    // Sin monitor: cada hilo que encuentra el bloque agotado reserva uno propio, sin lock tomado mientras
+    // espera la conexión de reservar; los ids que sobren del bloque que se reemplaza quedan sin usar.
+    // Tiene que llamarse fuera de una transacción: reservar usa una conexión propia, y pedirla teniendo
+    // otra del mismo pool tomada puede agotarlo con carga.
+    public long siguiente(String entidad) {
+        Bloque bloque = bloques.get(entidad);
+        if (bloque != null) {
+            long id = bloque.proximo.getAndIncrement();
+            if (id < bloque.fin) {
+                return id;
+            }
+        }
+        long inicio = reservar(entidad, BLOQUE);
+        bloques.put(entidad, new Bloque(inicio + 1, inicio + BLOQUE));
+        return inicio;
+    }
+}
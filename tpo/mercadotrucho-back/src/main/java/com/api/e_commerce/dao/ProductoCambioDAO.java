@@ -0,0 +1,102 @@
+package com.api.e_commerce.dao;
+
+import com.api.e_commerce.dto.producto.ProductoCambioDTO;
+import com.api.e_commerce.model.ProductoCambio;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+// Acceso a la tabla producto_cambio (ver ProductoCambio): alta de cambios en batch, numeración en orden de
+// confirmación y lectura del feed.
+@Repository
+public class ProductoCambioDAO {
+
+    // Una fila por cambio, con el estado actual del producto (null si ya no existe)
+    private static final String SELECT_CAMBIOS =
+        "SELECT c.orden, c.producto_id, p.id AS existe, p.title, p.price, p.currency, p.stock, " +
+        "COALESCE(p.updated_at, p.created_at) AS updated_at " +
+        "FROM producto_cambio c LEFT JOIN producto p ON p.id = c.producto_id " +
+        "WHERE c.orden > ? ORDER BY c.orden LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductoCambioDAO(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Va en la transacción del cambio, justo antes de su commit (ver ProductoCambioService)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(List<Long> productoIds, ProductoCambio.Tipo tipo) {
+        if (productoIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO producto_cambio (producto_id, tipo, created_at) VALUES (?, ?, NOW(3))",
+            productoIds, productoIds.size(),
+            (ps, productoId) -> {
+                ps.setLong(1, productoId);
+                ps.setString(2, tipo.name());
+            });
+    }
+
+    // Numera los cambios confirmados que todavía no tienen orden y devuelve cuántos numeró. El seq lo asigna
+    // el INSERT, pero la transacción puede tardar en confirmarse (Hibernate vacía el resto de la unidad de
+    // trabajo recién en el commit, y puede esperar locks): un cambio con seq menor puede hacerse visible
+    // después de otros ya servidos. El orden se asigna acá, sobre lo que ya está confirmado, así que crece
+    // en el orden en que los cambios se vuelven visibles. El FOR UPDATE sobre el mayor orden hace que corra
+    // una numeración a la vez, también entre instancias. Nunca queda por debajo del seq: los cursores
+    // entregados cuando el feed se leía por seq siguen valiendo.
+    @Transactional
+    public int ordenar(int lote) {
+        Long ultimo = jdbcTemplate.queryForObject("SELECT MAX(orden) FROM producto_cambio FOR UPDATE", Long.class);
+        List<Long> pendientes = jdbcTemplate.queryForList(
+            "SELECT seq FROM producto_cambio WHERE orden IS NULL ORDER BY seq LIMIT ?", Long.class, lote);
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        long siguiente = ultimo != null ? ultimo + 1 : 1;
+        List<Object[]> ordenes = new ArrayList<>(pendientes.size());
+        for (Long seq : pendientes) {
+            long orden = Math.max(siguiente, seq);
+            ordenes.add(new Object[] {orden, seq});
+            siguiente = orden + 1;
+        }
+        jdbcTemplate.batchUpdate("UPDATE producto_cambio SET orden = ? WHERE seq = ?", ordenes);
+        return pendientes.size();
+    }
+
+    // Cambios ya numerados con orden > desde, en orden. Los que aún no se numeraron aparecen en una lectura
+    // siguiente, siempre detrás de lo ya servido.
+    public List<ProductoCambioDTO> leer(long desde, int limite) {
+        return jdbcTemplate.query(SELECT_CAMBIOS, (rs, rowNum) -> {
+            ProductoCambioDTO cambio = new ProductoCambioDTO();
+            cambio.setSeq(rs.getLong("orden"));
+            cambio.setId(rs.getLong("producto_id"));
+            rs.getLong("existe");
+            if (rs.wasNull()) {
+                // Sin importar el tipo registrado: si el producto ya no está, para el consumidor es una baja
+                cambio.setOp(ProductoCambioDTO.DELETE);
+                return cambio;
+            }
+            cambio.setOp(ProductoCambioDTO.UPSERT);
+            cambio.setTitle(rs.getString("title"));
+            cambio.setPrice(rs.getBigDecimal("price"));
+            cambio.setCurrency(rs.getString("currency"));
+            cambio.setStock(rs.getObject("stock", Integer.class));
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            cambio.setUpdatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null);
+            return cambio;
+        }, desde, limite);
+    }
+
+    // Los cambios todavía sin numerar van a recibir un orden mayor que este
+    public long ultimoSeq() {
+        Long orden = jdbcTemplate.queryForObject("SELECT MAX(orden) FROM producto_cambio", Long.class);
+        return orden != null ? orden : 0;
+    }
+}
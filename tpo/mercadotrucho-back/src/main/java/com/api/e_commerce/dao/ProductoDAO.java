@@ -1,19 +1,248 @@
 package com.api.e_commerce.dao;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
-import com.api.e_commerce.model.Producto;
+import javax.sql.DataSource;
 
-//DAO de la tabla productos
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.api.e_commerce.dto.CategoriaDTO;
+import com.api.e_commerce.dto.producto.InstallmentsDTO;
+import com.api.e_commerce.dto.producto.ProductoDTO;
+import com.api.e_commerce.dto.producto.SellerDTO;
+import com.api.e_commerce.dto.producto.ValoresCanonicos;
+
+//DAO de la tabla productos: camino de lectura por JDBC para las consultas más usadas del catálogo
+//(detalle, listado por categoría y por vendedor). Mapea cada fila directo a ProductoDTO, sin entidades,
+//proxies ni dirty-checking. Cada consulta se activa por separado
+//(productos.lectura.jdbc.consultas=id,categoria,vendedor) para poder compararla contra el camino JPA bajo carga.
+@Repository
 public class ProductoDAO {
 
-    public List<Producto> getAll() {
-        // String sql = "Select * from productos";
-        // return new Producto();
-        return null;
+    public static final String POR_ID = "id";
+    public static final String POR_CATEGORIA = "categoria";
+    public static final String POR_VENDEDOR = "vendedor";
+
+    // Solo las columnas que usa ProductoDTO (del vendedor no se traen password ni descripción)
+    private static final String SELECT_PRODUCTO =
+        "SELECT p.id, p.title, p.description, p.price, p.currency, p.condition_type, p.free_shipping, " +
+        "p.location, p.stock, p.installments_quantity, p.installments_amount, p.created_at, p.updated_at, " +
+        "c.id AS categoria_id, c.name AS categoria_name, c.description AS categoria_description, " +
+        "c.image AS categoria_image, u.id AS seller_id, u.first_name AS seller_first_name, " +
+        "u.seller_nickname, u.seller_reputation " +
+        "FROM producto p LEFT JOIN categoria c ON c.id = p.category_id LEFT JOIN usuario u ON u.id = p.seller_id ";
+
+    // Exportación: las imágenes vienen en la misma fila porque con un cursor abierto la conexión
+    // no admite otra consulta hasta terminar de leerlo
+    private static final String SELECT_EXPORTACION =
+        SELECT_PRODUCTO.replace("FROM producto p",
+            ", (SELECT GROUP_CONCAT(pi.image_url ORDER BY pi.orden SEPARATOR '\\n') " +
+            "FROM producto_imagen pi WHERE pi.producto_id = p.id) AS imagenes, " +
+            "(SELECT GROUP_CONCAT(pt.tag_name ORDER BY pt.id SEPARATOR '\\n') " +
+            "FROM producto_tag pt WHERE pt.producto_id = p.id) AS tags FROM producto p");
+
+    // Tope de GROUP_CONCAT para la sesión (el default de MySQL, 1024, corta las URLs)
+    private static final int MAX_IMAGENES_CONCAT = 1 << 20;
+
+    private static final RowMapper<ProductoDTO> FILA = ProductoDAO::mapearFila;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final Set<String> consultasActivas;
+
+    public ProductoDAO(DataSource dataSource,
+                       @Value("${productos.lectura.jdbc.consultas:}") Set<String> consultasActivas,
+                       @Value("${productos.lectura.jdbc.fetch-size:100}") int fetchSize) {
+        // JdbcTemplate propio para no cambiar el fetch size del que comparte el resto de la aplicación
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.consultasActivas = consultasActivas;
+    }
+
+    public boolean isActiva(String consulta) {
+        return consultasActivas.contains(consulta);
+    }
+
+    public Optional<ProductoDTO> getById(Long id) {
+        List<ProductoDTO> productos = jdbcTemplate.query(SELECT_PRODUCTO + "WHERE p.id = ?", FILA, id);
+        if (productos.isEmpty()) {
+            return Optional.empty();
+        }
+        cargarImagenesYTags(productos);
+        return Optional.of(productos.get(0));
+    }
+
+    public Page<ProductoDTO> getByCategoria(String categoria, Pageable pageable) {
+        List<ProductoDTO> productos = jdbcTemplate.query(
+            SELECT_PRODUCTO + "WHERE c.name = ? ORDER BY p.id LIMIT ? OFFSET ?",
+            FILA, categoria, pageable.getPageSize(), pageable.getOffset());
+        Long total = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM producto p JOIN categoria c ON c.id = p.category_id WHERE c.name = ?",
+            Long.class, categoria);
+        cargarImagenesYTags(productos);
+        return new PageImpl<>(productos, pageable, total != null ? total : 0);
     }
 
-    //creammos todos los metodos para acceder a la tabla productos
-    //getAll, getById, save, update, delete
-    
-}   
+    public Page<ProductoDTO> getByVendedor(Long sellerId, Pageable pageable) {
+        List<ProductoDTO> productos = jdbcTemplate.query(
+            SELECT_PRODUCTO + "WHERE p.seller_id = ? ORDER BY p.id LIMIT ? OFFSET ?",
+            FILA, sellerId, pageable.getPageSize(), pageable.getOffset());
+        Long total = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM producto WHERE seller_id = ?", Long.class, sellerId);
+        cargarImagenesYTags(productos);
+        return new PageImpl<>(productos, pageable, total != null ? total : 0);
+    }
+
+    // Recorre el catálogo con un cursor de solo avance y entrega cada producto al consumidor a medida
+    // que llega: fetch size Integer.MIN_VALUE hace que el driver de MySQL lea fila por fila en lugar de
+    // cargar el resultado entero en memoria. Corre en autocommit, sin transacción abierta.
+    // Filtros opcionales (null = sin filtro); desde compara contra updated_at, o created_at si no hay.
+    public void exportar(String categoria, Long sellerId, LocalDateTime desde, Consumer<ProductoDTO> consumidor) {
+        StringBuilder sql = new StringBuilder(SELECT_EXPORTACION).append("WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (categoria != null) {
+            sql.append(" AND c.name = ?");
+            params.add(categoria);
+        }
+        if (sellerId != null) {
+            sql.append(" AND p.seller_id = ?");
+            params.add(sellerId);
+        }
+        if (desde != null) {
+            sql.append(" AND (p.updated_at >= ? OR (p.updated_at IS NULL AND p.created_at >= ?))");
+            params.add(Timestamp.valueOf(desde));
+            params.add(Timestamp.valueOf(desde));
+        }
+        sql.append(" ORDER BY p.id");
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (Statement sesion = con.createStatement()) {
+                sesion.execute("SET SESSION group_concat_max_len = " + MAX_IMAGENES_CONCAT);
+            }
+            // La conexión vuelve al pool: el límite de la sesión no tiene que quedarle a quien la use después
+            try (PreparedStatement ps = con.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Integer.MIN_VALUE);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    int fila = 0;
+                    while (rs.next()) {
+                        ProductoDTO dto = mapearFila(rs, fila++);
+                        String imagenes = rs.getString("imagenes");
+                        List<String> urls = imagenes != null ? Arrays.asList(imagenes.split("\n")) : List.of();
+                        dto.setImages(urls);
+                        dto.setThumbnail(urls.isEmpty() ? ProductoDTO.THUMBNAIL_PLACEHOLDER : urls.get(0));
+                        String tags = rs.getString("tags");
+                        dto.setTags(tags != null ? Arrays.asList(tags.split("\n")) : List.of());
+                        consumidor.accept(dto);
+                    }
+                }
+            } finally {
+                try (Statement sesion = con.createStatement()) {
+                    sesion.execute("SET SESSION group_concat_max_len = DEFAULT");
+                }
+            }
+            return null;
+        });
+    }
+
+    // Imágenes y tags de todos los productos con una consulta cada uno, igual que ProductoService.convertToProductoDTOs
+    private void cargarImagenesYTags(List<ProductoDTO> productos) {
+        if (productos.isEmpty()) {
+            return;
+        }
+        List<Long> ids = productos.stream().map(ProductoDTO::getId).collect(Collectors.toList());
+        Map<Long, List<String>> imagenesPorProducto = new HashMap<>();
+        namedJdbcTemplate.query(
+            "SELECT producto_id, image_url FROM producto_imagen WHERE producto_id IN (:ids) ORDER BY producto_id, orden",
+            Map.of("ids", ids),
+            rs -> {
+                imagenesPorProducto.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2));
+            });
+
+        for (ProductoDTO dto : productos) {
+            List<String> imagenes = imagenesPorProducto.getOrDefault(dto.getId(), List.of());
+            dto.setImages(imagenes);
+            dto.setThumbnail(imagenes.isEmpty() ? ProductoDTO.THUMBNAIL_PLACEHOLDER : imagenes.get(0));
+        }
+
+        Map<Long, List<String>> tagsPorProducto = new HashMap<>();
+        namedJdbcTemplate.query(
+            "SELECT producto_id, tag_name FROM producto_tag WHERE producto_id IN (:ids) ORDER BY producto_id, id",
+            Map.of("ids", ids),
+            rs -> {
+                tagsPorProducto.computeIfAbsent(rs.getLong(1), k -> new ArrayList<>()).add(rs.getString(2));
+            });
+        for (ProductoDTO dto : productos) {
+            dto.setTags(tagsPorProducto.getOrDefault(dto.getId(), List.of()));
+        }
+    }
+
+    private static ProductoDTO mapearFila(ResultSet rs, int rowNum) throws SQLException {
+        ProductoDTO dto = new ProductoDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setTitle(rs.getString("title"));
+        dto.setDescription(rs.getString("description"));
+        dto.setPrice(rs.getBigDecimal("price"));
+        dto.setCurrency(ValoresCanonicos.canonico(rs.getString("currency")));
+        String condition = rs.getString("condition_type");
+        dto.setCondition(condition != null ? condition : "new");
+        dto.setFreeShipping(rs.getObject("free_shipping", Boolean.class));
+        dto.setLocation(rs.getString("location"));
+        dto.setStock(rs.getObject("stock", Integer.class));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        dto.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        dto.setUpdatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : dto.getCreatedAt());
+
+        long categoriaId = rs.getLong("categoria_id");
+        if (!rs.wasNull()) {
+            String categoriaName = ValoresCanonicos.canonico(rs.getString("categoria_name"));
+            dto.setCategoria(new CategoriaDTO(categoriaId, categoriaName,
+                rs.getString("categoria_description"), rs.getString("categoria_image")));
+            dto.setCategory(categoriaName);
+        }
+
+        long sellerId = rs.getLong("seller_id");
+        if (!rs.wasNull()) {
+            dto.setSellerId(sellerId);
+            dto.setSeller(SellerDTO.de(rs.getString("seller_nickname"), rs.getString("seller_first_name"),
+                rs.getString("seller_reputation")));
+        }
+
+        Integer cuotas = rs.getObject("installments_quantity", Integer.class);
+        BigDecimal montoCuota = rs.getBigDecimal("installments_amount");
+        if (cuotas != null && montoCuota != null) {
+            dto.setInstallments(new InstallmentsDTO(cuotas, montoCuota));
+        }
+
+        dto.setEsFavorito(false);
+        return dto;
+    }
+}
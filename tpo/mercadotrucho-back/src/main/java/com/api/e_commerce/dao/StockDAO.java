@@ -0,0 +1,33 @@
+package com.api.e_commerce.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+// Descuento de stock del checkout: un UPDATE condicional por línea, enviados juntos en un batch JDBC.
+// La condición stock >= ? reemplaza al SELECT ... FOR UPDATE: cada fila queda bloqueada solo desde su
+// UPDATE hasta el commit, y dos checkouts del mismo producto nunca lo dejan negativo.
+@Repository
+public class StockDAO {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockDAO(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // productoId -> cantidad. Las filas se bloquean en orden de id: dos checkouts con productos en común
+    // esperan uno al otro en lugar de trabarse (deadlock). Devuelve por línea las filas actualizadas:
+    // 0 es que no alcanzó el stock (o el producto ya no existe). Con rewriteBatchedStatements el batch
+    // va a MySQL en un solo viaje.
+    public int[] descontar(SortedMap<Long, Integer> cantidades) {
+        List<Object[]> lineas = cantidades.entrySet().stream()
+            .map(linea -> new Object[] {linea.getValue(), linea.getKey(), linea.getValue()})
+            .collect(Collectors.toList());
+        return jdbcTemplate.batchUpdate(
+            "UPDATE producto SET stock = stock - ?, updated_at = NOW() WHERE id = ? AND stock >= ?", lineas);
+    }
+}
@@ -0,0 +1,77 @@
+package com.api.e_commerce.datasource;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Read-your-writes: quien acaba de confirmar una escritura lee de la primaria durante ventanaMs,
+// así no ve datos anteriores a su propio cambio mientras la réplica se pone al día
+// (por ejemplo, el carrito justo después de agregar un producto).
+// Se identifica al cliente por el usuario autenticado; los requests anónimos no tienen ventana (detrás de un
+// balanceador la IP es la misma para todos). El registro es de cada instancia: con varias, la ventana solo
+// rige en la que confirmó la escritura, salvo que el balanceador mantenga a cada usuario en la misma.
+public class EscriturasRecientes {
+
+    // Solo se guardan los que escribieron dentro de la ventana; si aun así se llega al tope, los siguientes
+    // leen de la réplica como un anónimo hasta que venzan entradas
+    private static final int MAX_CLIENTES = 100_000;
+
+    private record Escritura(String cliente, long momento) {
+    }
+
+    private final long ventanaMs;
+    // usuario -> momento de su última escritura confirmada
+    private final Map<String, Long> ultimaEscritura = new ConcurrentHashMap<>();
+    // Las mismas escrituras en el orden en que se registraron: las vencidas quedan siempre al principio
+    private final Queue<Escritura> porOrden = new ConcurrentLinkedQueue<>();
+
+    public EscriturasRecientes(long ventanaMs) {
+        this.ventanaMs = ventanaMs;
+    }
+
+    public void registrar(String cliente) {
+        if (cliente == null || ventanaMs <= 0) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        vencer(ahora);
+        if (ultimaEscritura.size() >= MAX_CLIENTES && !ultimaEscritura.containsKey(cliente)) {
+            return;
+        }
+        ultimaEscritura.put(cliente, ahora);
+        porOrden.add(new Escritura(cliente, ahora));
+    }
+
+    // Saca del principio de la cola lo vencido: cada escritura se recorre una sola vez. La entrada del mapa
+    // se borra solo si sigue siendo esa escritura (el usuario pudo volver a escribir después).
+    private void vencer(long ahora) {
+        Escritura primera;
+        while ((primera = porOrden.peek()) != null && ahora - primera.momento() > ventanaMs) {
+            if (porOrden.remove(primera)) {
+                ultimaEscritura.remove(primera.cliente(), primera.momento());
+            }
+        }
+    }
+
+    public boolean escribioHacePoco(String cliente) {
+        if (cliente == null) {
+            return false;
+        }
+        Long momento = ultimaEscritura.get(cliente);
+        return momento != null && System.currentTimeMillis() - momento <= ventanaMs;
+    }
+
+    // Usuario autenticado del hilo actual, o null si es anónimo o no hay request
+    public static String clienteActual() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            return auth.getName();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.api.e_commerce.datasource;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+// Lecturas que cargan caches en memoria: tienen que ver lo último confirmado. Desde una réplica atrasada,
+// la carga que sigue a una invalidación volvería a guardar el dato viejo por todo el TTL de la entrada.
+// Si la transacción del request todavía no eligió conexión, la lectura la lleva a la primaria; si ya tomó
+// una de réplica, la lectura va en una transacción aparte sobre la primaria (otro pool, así que no espera
+// por conexiones del mismo pool que el request ya tiene). Sin réplicas configuradas no cambia nada.
+@Component
+public class LecturaPrimaria {
+
+    private final TransactionTemplate aparte;
+
+    public LecturaPrimaria(PlatformTransactionManager transactionManager) {
+        this.aparte = new TransactionTemplate(transactionManager);
+        this.aparte.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.aparte.setReadOnly(true);
+    }
+
+    public <T> T leer(Supplier<T> lectura) {
+        if (RuteoDataSource.enReplica()) {
+            return aparte.execute(status -> RuteoDataSource.enPrimaria(lectura));
+        }
+        return RuteoDataSource.enPrimaria(lectura);
+    }
+}
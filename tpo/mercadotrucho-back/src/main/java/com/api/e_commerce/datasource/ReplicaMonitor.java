@@ -0,0 +1,125 @@
+package com.api.e_commerce.datasource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Verifica cada cierto tiempo que cada réplica responda y no esté atrasada más de maxLagSegundos.
+// Las que fallan dejan de recibir lecturas hasta la próxima verificación exitosa.
+// Con lagQuery vacía solo se verifica la conexión (bases embebidas o réplicas que no son de MySQL).
+public class ReplicaMonitor implements AutoCloseable {
+
+    public static final class Replica {
+        private final String nombre;
+        private final DataSource dataSource;
+        // Hasta la primera verificación las lecturas van a la primaria
+        private volatile boolean disponible = false;
+        private volatile Long lagSegundos;
+
+        Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+
+        public String getNombre() {
+            return nombre;
+        }
+
+        public boolean isDisponible() {
+            return disponible;
+        }
+
+        public Long getLagSegundos() {
+            return lagSegundos;
+        }
+
+        public DataSource getDataSource() {
+            return dataSource;
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final String lagQuery;
+    private final long maxLagSegundos;
+    private final AtomicInteger siguiente = new AtomicInteger();
+    private final ScheduledExecutorService verificador;
+
+    public ReplicaMonitor(Map<String, DataSource> replicas, String lagQuery, long maxLagSegundos, long intervaloMs) {
+        this.replicas = replicas.entrySet().stream()
+            .map(e -> new Replica(e.getKey(), e.getValue()))
+            .collect(Collectors.toList());
+        this.lagQuery = lagQuery;
+        this.maxLagSegundos = maxLagSegundos;
+        this.verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "replica-monitor");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.verificador.scheduleWithFixedDelay(this::verificar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Réplica para la próxima lectura, rotando entre las disponibles; null si no hay ninguna
+    public Replica elegir() {
+        int cantidad = replicas.size();
+        int inicio = Math.floorMod(siguiente.getAndIncrement(), cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            Replica replica = replicas.get((inicio + i) % cantidad);
+            if (replica.disponible) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    void verificar() {
+        for (Replica replica : replicas) {
+            try (Connection conexion = replica.dataSource.getConnection()) {
+                Long lag = lagQuery.isBlank() ? Long.valueOf(0) : consultarLag(conexion);
+                replica.lagSegundos = lag;
+                replica.disponible = conexion.isValid(2) && lag != null && lag <= maxLagSegundos;
+            } catch (SQLException | RuntimeException e) {
+                replica.lagSegundos = null;
+                replica.disponible = false;
+            }
+        }
+    }
+
+    // Sin filas (no es réplica) o con Seconds_Behind_* en NULL (replicación detenida) no se considera al día
+    private Long consultarLag(Connection conexion) throws SQLException {
+        try (Statement st = conexion.createStatement(); ResultSet rs = st.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return null;
+            }
+            Function<String, Long> columna = nombre -> {
+                try {
+                    long valor = rs.getLong(nombre);
+                    return rs.wasNull() ? null : valor;
+                } catch (SQLException e) {
+                    return null;
+                }
+            };
+            // SHOW REPLICA STATUS (MySQL 8.0.22+) o SHOW SLAVE STATUS en versiones anteriores
+            Long lag = columna.apply("Seconds_Behind_Source");
+            return lag != null ? lag : columna.apply("Seconds_Behind_Master");
+        }
+    }
+
+    @Override
+    public void close() {
+        verificador.shutdownNow();
+    }
+}
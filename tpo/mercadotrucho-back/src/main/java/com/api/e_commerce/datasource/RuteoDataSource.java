@@ -0,0 +1,107 @@
+package com.api.e_commerce.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+// Elige la base de cada conexión: las transacciones readOnly de un request van a una réplica disponible y
+// todo lo demás (transacciones de escritura, SQL sin transacción, cargas fuera de un request como los
+// índices al iniciar, y las lecturas de LecturaPrimaria) a la primaria. Tiene que usarse detrás de un
+// LazyConnectionDataSourceProxy: el JpaTransactionManager pide la conexión antes de marcar la transacción
+// como readOnly, y el proxy demora la elección hasta la primera sentencia.
+public class RuteoDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARIA = "primaria";
+
+    // Marca de la transacción actual: ya registró su sincronización de read-your-writes
+    private static final Object ESCRITURA_REGISTRADA = new Object();
+    // Marca de la transacción actual: su conexión es de una réplica
+    private static final Object EN_REPLICA = new Object();
+    // Profundidad de enPrimaria en el hilo actual
+    private static final ThreadLocal<Integer> PRIMARIA_FORZADA = ThreadLocal.withInitial(() -> 0);
+
+    private final ReplicaMonitor monitor;
+    private final EscriturasRecientes escrituras;
+
+    public RuteoDataSource(ReplicaMonitor monitor, EscriturasRecientes escrituras) {
+        this.monitor = monitor;
+        this.escrituras = escrituras;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return PRIMARIA;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registrarEscritura();
+            return PRIMARIA;
+        }
+        if (PRIMARIA_FORZADA.get() > 0 || RequestContextHolder.getRequestAttributes() == null) {
+            return PRIMARIA;
+        }
+        if (escrituras.escribioHacePoco(EscriturasRecientes.clienteActual())) {
+            return PRIMARIA;
+        }
+        ReplicaMonitor.Replica replica = monitor.elegir();
+        if (replica == null) {
+            return PRIMARIA;
+        }
+        marcarReplica();
+        return replica.getNombre();
+    }
+
+    // Las conexiones que se elijan mientras corre la lectura van a la primaria
+    static <T> T enPrimaria(Supplier<T> lectura) {
+        PRIMARIA_FORZADA.set(PRIMARIA_FORZADA.get() + 1);
+        try {
+            return lectura.get();
+        } finally {
+            PRIMARIA_FORZADA.set(PRIMARIA_FORZADA.get() - 1);
+        }
+    }
+
+    // true si la transacción actual ya tomó una conexión de réplica
+    static boolean enReplica() {
+        return TransactionSynchronizationManager.hasResource(EN_REPLICA);
+    }
+
+    private void marcarReplica() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(EN_REPLICA)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(EN_REPLICA, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(EN_REPLICA);
+            }
+        });
+    }
+
+    // Al confirmarse la transacción de escritura, el cliente que la hizo lee de la primaria por un rato
+    private void registrarEscritura() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(ESCRITURA_REGISTRADA)) {
+            return;
+        }
+        String cliente = EscriturasRecientes.clienteActual();
+        if (cliente == null) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(ESCRITURA_REGISTRADA, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ESCRITURA_REGISTRADA);
+                if (status == STATUS_COMMITTED) {
+                    escrituras.registrar(cliente);
+                }
+            }
+        });
+    }
+}
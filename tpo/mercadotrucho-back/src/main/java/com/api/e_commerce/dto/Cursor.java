@@ -0,0 +1,40 @@
+package com.api.e_commerce.dto;
+
+import com.api.e_commerce.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Cursor opaco para paginación por keyset: orden usado, valor de la clave de orden e id del último elemento
+@Data
+@AllArgsConstructor
+public class Cursor {
+    
+    private Orden orden;
+    private String sortKey;
+    private Long id;
+    
+    public enum Orden {
+        FECHA, RELEVANCIA
+    }
+    
+    public String encode() {
+        String raw = orden.name() + "|" + sortKey + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static Cursor decode(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            String[] partes = raw.split("\\|", 3);
+            return new Cursor(Orden.valueOf(partes[0]), partes[1], Long.valueOf(partes[2]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+}
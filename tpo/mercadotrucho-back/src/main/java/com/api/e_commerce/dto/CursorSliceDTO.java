@@ -0,0 +1,18 @@
+package com.api.e_commerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página de un listado con cursor: no tiene total ni número de página, solo el cursor para pedir la siguiente
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorSliceDTO<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String next;
+}
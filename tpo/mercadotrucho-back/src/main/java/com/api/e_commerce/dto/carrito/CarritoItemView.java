@@ -0,0 +1,17 @@
+package com.api.e_commerce.dto.carrito;
+
+import java.math.BigDecimal;
+
+// Proyección con todo lo que muestra un ítem del carrito: producto, primera imagen y vendedor en la misma fila
+public interface CarritoItemView {
+    Long getId();
+    Long getProductoId();
+    String getTitle();
+    String getImageUrl();
+    BigDecimal getPrecioUnitario();
+    Integer getCantidad();
+    Integer getStock();
+    Boolean getFreeShipping();
+    Long getSellerId();
+    String getSellerNickname();
+}
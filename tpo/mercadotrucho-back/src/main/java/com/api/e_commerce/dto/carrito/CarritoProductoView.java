@@ -0,0 +1,13 @@
+package com.api.e_commerce.dto.carrito;
+
+// Datos del producto que muestra un ítem del carrito, para los carritos que viven en memoria (CarritoStore):
+// cantidad, precio e id del ítem salen de la memoria y esto de la base
+public interface CarritoProductoView {
+    Long getProductoId();
+    String getTitle();
+    String getImageUrl();
+    Integer getStock();
+    Boolean getFreeShipping();
+    Long getSellerId();
+    String getSellerNickname();
+}
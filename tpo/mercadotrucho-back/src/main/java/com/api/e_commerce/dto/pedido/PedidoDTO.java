@@ -0,0 +1,17 @@
+package com.api.e_commerce.dto.pedido;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class PedidoDTO {
+    private Long id;
+    private Long usuarioId;
+    private LocalDateTime fecha;
+    private String estado;
+    private BigDecimal total;
+    private List<PedidoItemDTO> items;
+}
@@ -0,0 +1,15 @@
+package com.api.e_commerce.dto.pedido;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+public class PedidoItemDTO {
+    private Long id;
+    private Long productoId;
+    private String title;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private BigDecimal subtotal;
+}
@@ -0,0 +1,15 @@
+package com.api.e_commerce.dto.producto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BusquedaFacetadaDTO {
+    private Page<ProductoDTO> productos;
+    // null mientras el catálogo en memoria se está cargando
+    private FacetasDTO facetas;
+}
@@ -0,0 +1,67 @@
+package com.api.e_commerce.dto.producto;
+
+import com.api.e_commerce.exception.BadRequestException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Campos pedidos con ?fields= en los listados (nombres del JSON de ProductoDTO). El servicio saltea el trabajo
+// de los campos que no se piden y el controller filtra la serialización; sin fields se devuelve todo.
+public class CamposProducto {
+    
+    public static final String FILTRO_JSON = "camposProducto";
+    
+    public static final CamposProducto TODOS = new CamposProducto(null);
+    
+    private static final Set<String> DISPONIBLES = Set.of(
+        "id", "title", "description", "price", "currency", "condition", "free_shipping", "thumbnail",
+        "categoria", "category", "sellerId", "location", "stock", "images", "tags", "seller",
+        "installments", "createdAt", "updatedAt", "esFavorito"
+    );
+    
+    // Los que salen de la proyección de tarjeta, sin cargar entidades
+    private static final Set<String> DE_TARJETA = Set.of(
+        "id", "title", "price", "currency", "thumbnail", "free_shipping", "category"
+    );
+    
+    // null = todos los campos
+    private final Set<String> campos;
+    
+    private CamposProducto(Set<String> campos) {
+        this.campos = campos;
+    }
+    
+    public static CamposProducto parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return TODOS;
+        }
+        Set<String> campos = Arrays.stream(fields.split(","))
+            .map(String::trim)
+            .filter(campo -> !campo.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        for (String campo : campos) {
+            if (!DISPONIBLES.contains(campo)) {
+                throw new BadRequestException("Campo desconocido en fields: " + campo);
+            }
+        }
+        return new CamposProducto(campos);
+    }
+    
+    public boolean isTodos() {
+        return campos == null;
+    }
+    
+    public boolean incluye(String campo) {
+        return campos == null || campos.contains(campo);
+    }
+    
+    public boolean soloTarjeta() {
+        return campos != null && DE_TARJETA.containsAll(campos);
+    }
+    
+    public Set<String> getCampos() {
+        return campos != null ? campos : DISPONIBLES;
+    }
+}
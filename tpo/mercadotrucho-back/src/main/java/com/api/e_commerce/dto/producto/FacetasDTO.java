@@ -0,0 +1,29 @@
+package com.api.e_commerce.dto.producto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// Conteos por valor de cada faceta. Cada faceta se cuenta aplicando todos los filtros menos el suyo,
+// así el usuario ve cuántos resultados tendría al cambiar esa opción.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetasDTO {
+    private Map<String, Long> categorias;
+    private Map<String, Long> condicion;
+    private Map<String, Long> envioGratis;
+    private List<RangoPrecio> precios;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RangoPrecio {
+        private Integer min;
+        private Integer max;
+        private long cantidad;
+    }
+}
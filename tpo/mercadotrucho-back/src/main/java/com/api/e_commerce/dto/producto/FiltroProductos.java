@@ -0,0 +1,21 @@
+package com.api.e_commerce.dto.producto;
+
+import com.api.e_commerce.model.Producto;
+import lombok.Data;
+
+// Filtros del listado filtrado de productos; los campos nulos no filtran
+@Data
+public class FiltroProductos {
+    private String search;
+    private String category;
+    private Integer minPrice;
+    private Integer maxPrice;
+    private Producto.ConditionType condition;
+    private Boolean freeShipping;
+    private Boolean enStock;
+    private Orden orden = Orden.recientes;
+    
+    public enum Orden {
+        recientes, precio_asc, precio_desc
+    }
+}
@@ -0,0 +1,26 @@
+package com.api.e_commerce.dto.producto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportacionResultadoDTO {
+    private int procesadas;
+    private int importadas;
+    private int rechazadas;
+    // Detalle de las filas rechazadas (se corta en un máximo; "rechazadas" tiene el total)
+    private List<ErrorFila> errores = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ErrorFila {
+        private int linea;
+        private String mensaje;
+    }
+}
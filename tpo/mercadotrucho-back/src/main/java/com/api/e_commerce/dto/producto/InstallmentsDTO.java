@@ -0,0 +1,7 @@
+package com.api.e_commerce.dto.producto;
+
+import java.math.BigDecimal;
+
+// Cuotas del producto; mismo JSON ({"quantity", "amount"}) que el mapa que reemplaza, también al recibirlo
+public record InstallmentsDTO(Integer quantity, BigDecimal amount) {
+}
@@ -0,0 +1,30 @@
+package com.api.e_commerce.dto.producto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Delta del feed de cambios: el estado actual de los campos que cambian seguido (precio, stock, título).
+// Una baja trae solo seq, id y op; para el resto del producto el consumidor pide el detalle.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductoCambioDTO {
+    
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+    
+    private Long seq;
+    private Long id;
+    private String op;
+    private String title;
+    private BigDecimal price;
+    private String currency;
+    private Integer stock;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.api.e_commerce.dto.producto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Vista de tarjeta para los listados: solo lo que muestra la grilla. Se arma directamente
+// desde la consulta (constructor en JPQL), sin hidratar Producto, Usuario ni Categoria.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoCardDTO {
+    private Long id;
+    private String title;
+    private BigDecimal price;
+    private String currency;
+    private String thumbnail;
+    @JsonProperty("free_shipping")
+    private Boolean freeShipping;
+    private String category;
+    private String sellerNickname;
+}
@@ -1,16 +1,20 @@
 package com.api.e_commerce.dto.producto;
 
 import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.api.e_commerce.dto.CategoriaDTO;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
 
 @Data
+@JsonFilter(CamposProducto.FILTRO_JSON)
 public class ProductoDTO {
+    // Miniatura de los productos sin imágenes
+    public static final String THUMBNAIL_PLACEHOLDER = "https://via.placeholder.com/150";
+    
     private Long id;
     private String title;
     private String description;
@@ -27,8 +31,9 @@ public class ProductoDTO {
     private Integer stock;
     private List<String> images;
     private List<String> tags;
-    private Map<String, Object> seller;
-    private Map<String, Object> installments;
+    private SellerDTO seller;
+    private InstallmentsDTO installments;
     private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
     private Boolean esFavorito;
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.api.e_commerce.dto.producto;
+
+import java.math.BigDecimal;
+
+// Proyección con los campos que usa el índice de productos relacionados
+public interface ProductoFichaView {
+    Long getId();
+    Long getCategoriaId();
+    BigDecimal getPrice();
+}
@@ -0,0 +1,17 @@
+package com.api.e_commerce.dto.producto;
+
+import com.api.e_commerce.model.Producto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Proyección con las columnas que usa el catálogo columnar para filtrar y ordenar
+public interface ProductoFiltroView {
+    Long getId();
+    String getCategoriaName();
+    BigDecimal getPrice();
+    Integer getStock();
+    Boolean getFreeShipping();
+    Producto.ConditionType getConditionType();
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,7 @@
+package com.api.e_commerce.dto.producto;
+
+// Solo el stock, para las reservas en memoria (ReservasStock)
+public interface ProductoStockView {
+    Long getId();
+    Integer getStock();
+}
@@ -0,0 +1,9 @@
+package com.api.e_commerce.dto.producto;
+
+// Proyección con lo que usa el índice de sugerencias: título, categoría, y favoritos como medida de popularidad
+public interface ProductoSugerenciaView {
+    Long getId();
+    String getTitle();
+    String getCategoriaName();
+    Long getFavoritos();
+}
@@ -0,0 +1,8 @@
+package com.api.e_commerce.dto.producto;
+
+// Proyección con solo los campos de texto que usan los índices en memoria
+public interface ProductoTextoView {
+    Long getId();
+    String getTitle();
+    String getDescription();
+}
@@ -0,0 +1,13 @@
+package com.api.e_commerce.dto.producto;
+
+// Resumen del vendedor dentro de ProductoDTO. Inmutable: el mismo valor puede compartirse entre DTOs
+// (por ejemplo los productos cacheados), y se serializa igual que el mapa que reemplaza.
+public record SellerDTO(String nickname, String reputation) {
+    
+    // Los vendedores sin nickname cargado conservan el que se mostraba antes (nombre + "_STORE");
+    // lo usan tanto el mapeo desde la entidad como el de ProductoDAO
+    public static SellerDTO de(String sellerNickname, String firstName, String reputation) {
+        String nickname = sellerNickname != null ? sellerNickname : firstName + "_STORE";
+        return new SellerDTO(nickname, reputation != null ? reputation : "bronze");
+    }
+}
@@ -0,0 +1,22 @@
+package com.api.e_commerce.dto.producto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Sugerencia del buscador: un título de producto (con su id), una categoría o un tag
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SugerenciaDTO {
+    
+    public static final String PRODUCTO = "producto";
+    public static final String CATEGORIA = "categoria";
+    public static final String TAG = "tag";
+    
+    private String texto;
+    private String tipo;
+    private Long productoId;
+}
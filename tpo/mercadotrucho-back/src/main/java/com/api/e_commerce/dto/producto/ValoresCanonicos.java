@@ -0,0 +1,32 @@
+package com.api.e_commerce.dto.producto;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Moneda y categoría se repiten en casi todos los productos: los DTOs comparten una instancia por valor
+// en lugar de una copia por fila leída (pesa sobre todo en los DTOs cacheados). Solo para columnas con
+// pocos valores distintos; el mapa tiene un tope y, alcanzado, los valores nuevos se devuelven tal cual.
+public final class ValoresCanonicos {
+
+    private static final int MAX_VALORES = 1024;
+
+    private static final Map<String, String> VALORES = new ConcurrentHashMap<>();
+
+    private ValoresCanonicos() {
+    }
+
+    public static String canonico(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String existente = VALORES.get(valor);
+        if (existente != null) {
+            return existente;
+        }
+        if (VALORES.size() >= MAX_VALORES) {
+            return valor;
+        }
+        existente = VALORES.putIfAbsent(valor, valor);
+        return existente != null ? existente : valor;
+    }
+}
@@ -0,0 +1,14 @@
+package com.api.e_commerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Se publica desde FavoritoService al agregar o quitar un favorito
+@Data
+@AllArgsConstructor
+public class FavoritoChangedEvent {
+    
+    private Long usuarioId;
+    private Long productoId;
+    private boolean agregado;
+}
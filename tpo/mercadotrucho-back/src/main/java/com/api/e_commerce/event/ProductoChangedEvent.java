@@ -0,0 +1,18 @@
+package com.api.e_commerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// Se publica desde ProductoService cuando un producto se crea, modifica o elimina.
+// Los índices en memoria lo escuchan después del commit para mantenerse al día.
+@Data
+@AllArgsConstructor
+public class ProductoChangedEvent {
+    
+    private Long productoId;
+    private Type type;
+    
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,15 @@
+package com.api.e_commerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Se publica una vez por lote confirmado en la importación masiva, en lugar de un
+// ProductoChangedEvent por producto, para que los índices recarguen el lote con una sola consulta.
+@Data
+@AllArgsConstructor
+public class ProductosImportadosEvent {
+    
+    private List<Long> productoIds;
+}
@@ -0,0 +1,15 @@
+package com.api.e_commerce.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+// Se publica una vez por checkout con los productos a los que se les descontó stock. Solo lo escuchan
+// los que muestran o usan el stock: el resto de los índices no cambia con una venta.
+@Data
+@AllArgsConstructor
+public class StockDescontadoEvent {
+    
+    private List<Long> productoIds;
+}
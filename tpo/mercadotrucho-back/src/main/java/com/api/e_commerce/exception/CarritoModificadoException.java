@@ -0,0 +1,11 @@
+package com.api.e_commerce.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class CarritoModificadoException extends RuntimeException {
+    public CarritoModificadoException(Long usuarioId) {
+        super("El carrito del usuario " + usuarioId + " cambió durante el checkout, intente nuevamente");
+    }
+}
@@ -16,7 +16,9 @@ import java.util.List;
 public class Carrito {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "carrito_id")
+    @TableGenerator(name = "carrito_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "carrito", allocationSize = 50)
     private Long id;
     
     @Column(name = "usuario_id")
@@ -9,14 +9,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "carrito_item")
+@Table(name = "carrito_item", uniqueConstraints = {
+    @UniqueConstraint(name = "unique_carrito_producto", columnNames = {"carrito_id", "producto_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class CarritoItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "carrito_item_id")
+    @TableGenerator(name = "carrito_item_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "carrito_item", allocationSize = 50)
     private Long id;
     
     @Column(name = "carrito_id")
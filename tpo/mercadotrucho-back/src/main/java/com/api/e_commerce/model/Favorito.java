@@ -15,7 +15,9 @@ import java.time.LocalDateTime;
 public class Favorito {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "favorito_id")
+    @TableGenerator(name = "favorito_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "favorito", allocationSize = 50)
     private Long id;
     
     @Column(name = "usuario_id")
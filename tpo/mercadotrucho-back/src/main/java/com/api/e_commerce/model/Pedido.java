@@ -2,15 +2,22 @@ package com.api.e_commerce.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Entity
 @Table(name = "pedidos")
 public class Pedido {
     
+    public static final String ESTADO_CREADO = "CREADO";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pedidos_id")
+    @TableGenerator(name = "pedidos_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "pedidos", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -19,8 +26,15 @@ public class Pedido {
     @Column(nullable = false)
     private String estado;
     
+    @Column(precision = 15, scale = 2)
+    private BigDecimal total;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id")
     private Usuario usuario;
     
+    @OneToMany(mappedBy = "pedido", fetch = FetchType.LAZY)
+    @JsonIgnore  // Evitar serialización circular
+    private List<PedidoItem> items;
+    
 }
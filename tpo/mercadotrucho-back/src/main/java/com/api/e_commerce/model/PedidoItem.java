@@ -0,0 +1,48 @@
+package com.api.e_commerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+
+// Línea de un pedido. Título y precio se copian del carrito al confirmar: el pedido no cambia si después
+// cambia el producto.
+@Entity
+@Table(name = "pedido_item")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoItem {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "pedido_item_id")
+    @TableGenerator(name = "pedido_item_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "pedido_item", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "pedido_id", nullable = false)
+    private Long pedidoId;
+    
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+    
+    @Column(nullable = false)
+    private String title;
+    
+    @Column(nullable = false)
+    private Integer cantidad;
+    
+    @Column(name = "precio_unitario", nullable = false, precision = 15, scale = 2)
+    private BigDecimal precioUnitario;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pedido_id", insertable = false, updatable = false)
+    @JsonIgnore  // Evitar serialización circular
+    private Pedido pedido;
+    
+    public BigDecimal getSubtotal() {
+        return precioUnitario.multiply(BigDecimal.valueOf(cantidad));
+    }
+}
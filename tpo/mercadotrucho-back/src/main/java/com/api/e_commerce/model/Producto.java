@@ -10,14 +10,24 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "producto")
+@Table(name = "producto", indexes = {
+    // Soportan los listados por cursor (ORDER BY created_at DESC, id DESC)
+    @Index(name = "idx_producto_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_producto_category_created_at_id", columnList = "category_id, created_at, id"),
+    @Index(name = "idx_producto_seller_created_at_id", columnList = "seller_id, created_at, id"),
+    @Index(name = "idx_producto_updated_at", columnList = "updated_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Producto {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Ids por bloques desde la tabla id_generador (no IDENTITY) para que Hibernate pueda agrupar los inserts;
+    // la tabla se comparte entre nodos y ProductoImportService reserva bloques de la misma fila
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "producto_id")
+    @TableGenerator(name = "producto_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "producto", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -61,6 +71,10 @@ public class Producto {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
+    // Última modificación (null en filas anteriores a esta columna: vale created_at)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
     @OneToMany(mappedBy = "producto", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore  // Evitar serialización circular
     private List<ProductoImagen> imagenes;
@@ -86,5 +100,11 @@ public class Producto {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        updatedAt = createdAt;
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 }
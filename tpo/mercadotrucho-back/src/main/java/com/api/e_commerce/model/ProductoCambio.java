@@ -0,0 +1,43 @@
+package com.api.e_commerce.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+// Registro append-only de cambios del catálogo: cada alta, modificación o baja de un producto
+// agrega una fila; los consumidores se sincronizan por su orden (/api/productos/changes).
+// Las filas las escribe ProductoCambioDAO por JDBC; la entidad existe para que Hibernate cree la tabla.
+@Entity
+@Table(name = "producto_cambio", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_producto_cambio_orden", columnNames = "orden")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoCambio {
+    
+    // Orden de registro, no de confirmación: el feed se sirve por orden
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+    
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Tipo tipo;
+    
+    @Column(name = "created_at", nullable = false, columnDefinition = "DATETIME(3)")
+    private LocalDateTime createdAt;
+    
+    // Se asigna después del commit, en el orden en que los cambios se hacen visibles (ver
+    // ProductoCambioDAO.ordenar); null mientras no se numeró
+    private Long orden;
+    
+    public enum Tipo {
+        CREADO, MODIFICADO, ELIMINADO
+    }
+}
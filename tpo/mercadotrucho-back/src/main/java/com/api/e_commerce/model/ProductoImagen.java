@@ -14,7 +14,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class ProductoImagen {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "producto_imagen_id")
+    @TableGenerator(name = "producto_imagen_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "producto_imagen", allocationSize = 50)
     private Long id;
     
     @Column(name = "producto_id")
@@ -14,7 +14,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class ProductoTag {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "producto_tag_id")
+    @TableGenerator(name = "producto_tag_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "producto_tag", allocationSize = 50)
     private Long id;
     
     @Column(name = "producto_id")
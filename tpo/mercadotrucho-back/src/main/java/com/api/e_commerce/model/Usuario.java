@@ -16,7 +16,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 public class Usuario {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "usuario_id")
+    @TableGenerator(name = "usuario_id", table = "id_generador", pkColumnName = "entidad",
+                    valueColumnName = "siguiente", pkColumnValue = "usuario", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
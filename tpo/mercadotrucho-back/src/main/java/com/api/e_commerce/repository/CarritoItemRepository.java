@@ -1,11 +1,18 @@
 package com.api.e_commerce.repository;
 
+import com.api.e_commerce.dto.carrito.CarritoItemView;
+import com.api.e_commerce.dto.carrito.CarritoProductoView;
 import com.api.e_commerce.model.Carrito;
 import com.api.e_commerce.model.CarritoItem;
 import com.api.e_commerce.model.Producto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +20,48 @@ public interface CarritoItemRepository extends JpaRepository<CarritoItem, Long>
     Optional<CarritoItem> findByCarritoIdAndProductoId(Long carritoId, Long productoId);
     Optional<CarritoItem> findByCarritoAndProducto(Carrito carrito, Producto producto);
     void deleteByCarrito(Carrito carrito);
-}
\ No newline at end of file
+    
+    // Borrados en una sentencia para el checkout (el derivado deleteBy... carga las entidades y las borra de a una)
+    @Modifying
+    @Query("DELETE FROM CarritoItem ci WHERE ci.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM CarritoItem ci WHERE ci.carritoId = :carritoId")
+    int deleteByCarritoId(@Param("carritoId") Long carritoId);
+    
+    // Agrega el producto al carrito o suma la cantidad si ya estaba, en una sola sentencia sobre la clave
+    // (carrito_id, producto_id). La decisión está toda en el WHERE: el SELECT no devuelve fila (0 filas
+    // afectadas) si el producto no existe o si la cantidad final superaría el stock, y si devuelve fila la
+    // suma siempre se aplica, así que cualquier resultado distinto de 0 es un alta confirmada. Quien llama
+    // tiene tomado el carrito (findByUsuarioIdParaActualizar), así que la cantidad actual que lee el WHERE
+    // no cambia hasta el commit. El precio unitario es el del producto al momento de agregarlo.
+    @Modifying
+    @Query(value = "INSERT INTO carrito_item (id, carrito_id, producto_id, cantidad, precio_unitario, added_at) " +
+                   "SELECT :id, :carritoId, p.id, :cantidad, p.price, NOW() FROM producto p " +
+                   "LEFT JOIN carrito_item actual ON actual.carrito_id = :carritoId AND actual.producto_id = p.id " +
+                   "WHERE p.id = :productoId AND p.stock >= :cantidad + COALESCE(actual.cantidad, 0) " +
+                   "ON DUPLICATE KEY UPDATE cantidad = carrito_item.cantidad + :cantidad",
+           nativeQuery = true)
+    int agregarOSumar(@Param("id") Long id, @Param("carritoId") Long carritoId,
+                      @Param("productoId") Long productoId, @Param("cantidad") int cantidad);
+    
+    // Ítems del carrito listos para el DTO en una sola consulta (sin cargar producto, imágenes ni vendedor
+    // por ítem). La imagen es la de menor orden, igual que el thumbnail de las tarjetas.
+    @Query("SELECT ci.id AS id, p.id AS productoId, p.title AS title, " +
+           "(SELECT MIN(pi.imageUrl) FROM ProductoImagen pi WHERE pi.productoId = p.id AND pi.orden = " +
+           "(SELECT MIN(pi2.orden) FROM ProductoImagen pi2 WHERE pi2.productoId = p.id)) AS imageUrl, " +
+           "ci.precioUnitario AS precioUnitario, ci.cantidad AS cantidad, p.stock AS stock, " +
+           "p.freeShipping AS freeShipping, s.id AS sellerId, s.sellerNickname AS sellerNickname " +
+           "FROM CarritoItem ci JOIN ci.producto p LEFT JOIN p.seller s " +
+           "WHERE ci.carritoId = :carritoId ORDER BY ci.id ASC")
+    List<CarritoItemView> findVistaByCarritoId(@Param("carritoId") Long carritoId);
+    
+    // Lo mismo que findVistaByCarritoId pero solo la parte del producto, para los carritos en memoria
+    @Query("SELECT p.id AS productoId, p.title AS title, " +
+           "(SELECT MIN(pi.imageUrl) FROM ProductoImagen pi WHERE pi.productoId = p.id AND pi.orden = " +
+           "(SELECT MIN(pi2.orden) FROM ProductoImagen pi2 WHERE pi2.productoId = p.id)) AS imageUrl, " +
+           "p.stock AS stock, p.freeShipping AS freeShipping, s.id AS sellerId, s.sellerNickname AS sellerNickname " +
+           "FROM Producto p LEFT JOIN p.seller s WHERE p.id IN :productoIds")
+    List<CarritoProductoView> findProductoVistaByIdIn(@Param("productoIds") Collection<Long> productoIds);
+}
@@ -2,7 +2,11 @@ package com.api.e_commerce.repository;
 
 import com.api.e_commerce.model.Carrito;
 import com.api.e_commerce.model.Usuario;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +15,10 @@ import java.util.Optional;
 public interface CarritoRepository extends JpaRepository<Carrito, Long> {
     Optional<Carrito> findByUsuario(Usuario usuario);
     Optional<Carrito> findByUsuarioId(Long usuarioId);
-}
\ No newline at end of file
+    
+    // SELECT ... FOR UPDATE sobre la fila del carrito: serializa las escrituras de un mismo usuario sobre sus
+    // ítems (sin tocar las filas de producto, que comparten todos) y las excluye del checkout en curso
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Carrito c WHERE c.usuarioId = :usuarioId")
+    Optional<Carrito> findByUsuarioIdParaActualizar(@Param("usuarioId") Long usuarioId);
+}
@@ -6,6 +6,8 @@ import com.api.e_commerce.model.Usuario;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,4 +23,7 @@ public interface FavoritoRepository extends JpaRepository<Favorito, Long> {
     boolean existsByUsuarioAndProducto(Usuario usuario, Producto producto);
     Long countByUsuarioId(Long usuarioId);
     void deleteByUsuarioIdAndProductoId(Long usuarioId, Long productoId);
+    
+    @Query("SELECT f.productoId FROM Favorito f WHERE f.usuarioId = :usuarioId")
+    List<Long> findProductoIdsByUsuarioId(@Param("usuarioId") Long usuarioId);
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.api.e_commerce.repository;
+
+import com.api.e_commerce.model.PedidoItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PedidoItemRepository extends JpaRepository<PedidoItem, Long> {
+}
@@ -0,0 +1,9 @@
+package com.api.e_commerce.repository;
+
+import com.api.e_commerce.model.Pedido;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+}
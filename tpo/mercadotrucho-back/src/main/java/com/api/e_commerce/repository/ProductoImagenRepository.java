@@ -2,10 +2,12 @@ package com.api.e_commerce.repository;
 
 import com.api.e_commerce.model.ProductoImagen;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,8 +15,15 @@ public interface ProductoImagenRepository extends JpaRepository<ProductoImagen,
     
     List<ProductoImagen> findByProductoIdOrderByOrden(Long productoId);
     
-    void deleteByProductoId(Long productoId);
+    // Borrado en una sentencia (el derivado deleteBy... carga las entidades y las borra de a una)
+    @Modifying
+    @Query("DELETE FROM ProductoImagen pi WHERE pi.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
     
     @Query("SELECT pi FROM ProductoImagen pi WHERE pi.productoId = :productoId ORDER BY pi.orden ASC")
     List<ProductoImagen> findImagenesByProductoId(@Param("productoId") Long productoId);
+    
+    // Carga en una sola consulta las imágenes de toda una página de productos
+    @Query("SELECT pi FROM ProductoImagen pi WHERE pi.productoId IN :productoIds ORDER BY pi.productoId ASC, pi.orden ASC")
+    List<ProductoImagen> findByProductoIdIn(@Param("productoIds") Collection<Long> productoIds);
 }
\ No newline at end of file
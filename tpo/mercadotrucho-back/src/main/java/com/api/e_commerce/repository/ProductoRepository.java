@@ -1,18 +1,41 @@
 package com.api.e_commerce.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import com.api.e_commerce.dto.producto.ProductoCardDTO;
+import com.api.e_commerce.dto.producto.ProductoFichaView;
+import com.api.e_commerce.dto.producto.ProductoFiltroView;
+import com.api.e_commerce.dto.producto.ProductoStockView;
+import com.api.e_commerce.dto.producto.ProductoSugerenciaView;
+import com.api.e_commerce.dto.producto.ProductoTextoView;
 import com.api.e_commerce.model.Producto;
 import com.api.e_commerce.model.Categoria;
 
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
+    // Columnas de la tarjeta de listado. La miniatura es la imagen de menor orden y el nickname cae en
+    // el mismo valor que arma ProductoDTO cuando el vendedor no tiene uno cargado.
+    String SELECT_CARD = "SELECT new com.api.e_commerce.dto.producto.ProductoCardDTO(" +
+        "p.id, p.title, p.price, p.currency, " +
+        "(SELECT MIN(pi.imageUrl) FROM ProductoImagen pi WHERE pi.productoId = p.id AND pi.orden = " +
+        "(SELECT MIN(pi2.orden) FROM ProductoImagen pi2 WHERE pi2.productoId = p.id)), " +
+        "p.freeShipping, c.name, COALESCE(s.sellerNickname, CONCAT(s.firstName, '_STORE'))) " +
+        "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.seller s ";
+    
+    // Índice de sugerencias: la popularidad de cada título es su cantidad de favoritos
+    String SELECT_SUGERENCIA = "SELECT p.id AS id, p.title AS title, c.name AS categoriaName, " +
+        "(SELECT COUNT(f) FROM Favorito f WHERE f.productoId = p.id) AS favoritos " +
+        "FROM Producto p LEFT JOIN p.categoria c ";
+    
     // Búsqueda por título
     List<Producto> findByTitleContainingIgnoreCase(String title);
     Page<Producto> findByTitleContainingIgnoreCase(String title, Pageable pageable);
@@ -27,8 +50,17 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     @Query("SELECT p FROM Producto p WHERE p.categoria.name = :categoryName")
     Page<Producto> findByCategoriaName(@Param("categoryName") String categoryName, Pageable pageable);
     
+    // Productos con al menos "minimo" de los tags (minimo = cantidad de tags -> todos); respaldo del TagIndex
+    @Query(value = "SELECT p FROM Producto p WHERE p.id IN (SELECT pt.productoId FROM ProductoTag pt " +
+                   "WHERE pt.tagName IN :tags GROUP BY pt.productoId HAVING COUNT(DISTINCT pt.tagName) >= :minimo) " +
+                   "ORDER BY p.id DESC",
+           countQuery = "SELECT COUNT(p) FROM Producto p WHERE p.id IN (SELECT pt.productoId FROM ProductoTag pt " +
+                        "WHERE pt.tagName IN :tags GROUP BY pt.productoId HAVING COUNT(DISTINCT pt.tagName) >= :minimo)")
+    Page<Producto> findByTags(@Param("tags") Collection<String> tags, @Param("minimo") long minimo, Pageable pageable);
+    
     // Productos relacionados (misma categoría, excluyendo un producto)
     List<Producto> findByCategoriaAndIdNot(Categoria categoria, Long excludeId);
+    List<Producto> findByCategoriaAndIdNot(Categoria categoria, Long excludeId, Pageable pageable);
     
     // Búsqueda por rango de precio
     List<Producto> findByPriceBetween(Integer minPrice, Integer maxPrice);
@@ -47,7 +79,142 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
         Pageable pageable
     );
     
+    // Versión completa de los filtros; solo se usa mientras el catálogo columnar en memoria se está cargando.
+    // La búsqueda de texto va por el índice invertido (findProductosWithAllFiltersByIdIn); este LIKE sobre
+    // el título queda para cuando el índice tampoco está listo.
+    @Query("SELECT p FROM Producto p WHERE " +
+           "(:search IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+           "(:category IS NULL OR p.categoria.name = :category) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+           "(:condition IS NULL OR p.conditionType = :condition) AND " +
+           "(:freeShipping IS NULL OR p.freeShipping = :freeShipping) AND " +
+           "(:enStock IS NULL OR :enStock = FALSE OR p.stock > 0)")
+    Page<Producto> findProductosWithAllFilters(
+        @Param("search") String search,
+        @Param("category") String category,
+        @Param("minPrice") Integer minPrice,
+        @Param("maxPrice") Integer maxPrice,
+        @Param("condition") Producto.ConditionType condition,
+        @Param("freeShipping") Boolean freeShipping,
+        @Param("enStock") Boolean enStock,
+        Pageable pageable
+    );
+    
+    // Los mismos filtros, con el texto ya resuelto por ProductoSearchIndex en los ids que coinciden
+    @Query("SELECT p FROM Producto p WHERE p.id IN :ids AND " +
+           "(:category IS NULL OR p.categoria.name = :category) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+           "(:condition IS NULL OR p.conditionType = :condition) AND " +
+           "(:freeShipping IS NULL OR p.freeShipping = :freeShipping) AND " +
+           "(:enStock IS NULL OR :enStock = FALSE OR p.stock > 0)")
+    Page<Producto> findProductosWithAllFiltersByIdIn(
+        @Param("ids") Collection<Long> ids,
+        @Param("category") String category,
+        @Param("minPrice") Integer minPrice,
+        @Param("maxPrice") Integer maxPrice,
+        @Param("condition") Producto.ConditionType condition,
+        @Param("freeShipping") Boolean freeShipping,
+        @Param("enStock") Boolean enStock,
+        Pageable pageable
+    );
+    
     // Productos por vendedor
     List<Producto> findBySellerId(Long sellerId);
     Page<Producto> findBySellerId(Long sellerId, Pageable pageable);
+    
+    // Listados como tarjetas: proyección por constructor, sin entidades en el contexto de persistencia
+    @Query(value = SELECT_CARD, countQuery = "SELECT COUNT(p) FROM Producto p")
+    Page<ProductoCardDTO> findCards(Pageable pageable);
+    
+    @Query(value = SELECT_CARD + "WHERE c.name = :categoryName",
+           countQuery = "SELECT COUNT(p) FROM Producto p WHERE p.categoria.name = :categoryName")
+    Page<ProductoCardDTO> findCardsByCategoriaName(@Param("categoryName") String categoryName, Pageable pageable);
+    
+    @Query(value = SELECT_CARD + "WHERE s.id = :sellerId",
+           countQuery = "SELECT COUNT(p) FROM Producto p WHERE p.seller.id = :sellerId")
+    Page<ProductoCardDTO> findCardsBySellerId(@Param("sellerId") Long sellerId, Pageable pageable);
+    
+    @Query(value = SELECT_CARD + "WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%'))",
+           countQuery = "SELECT COUNT(p) FROM Producto p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%'))")
+    Page<ProductoCardDTO> findCardsByTitle(@Param("title") String title, Pageable pageable);
+    
+    // Para las páginas resueltas por los índices en memoria (el orden lo reconstruye el servicio)
+    @Query(SELECT_CARD + "WHERE p.id IN :ids")
+    List<ProductoCardDTO> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Recorrido por lotes (keyset por id) para construir los índices en memoria sin hidratar entidades
+    @Query("SELECT p.id AS id, p.title AS title, p.description AS description FROM Producto p " +
+           "WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<ProductoTextoView> findTextoByIdGreaterThan(@Param("lastId") Long lastId, Pageable pageable);
+    
+    @Query("SELECT p.id AS id, p.categoria.id AS categoriaId, p.price AS price FROM Producto p " +
+           "WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<ProductoFichaView> findFichaByIdGreaterThan(@Param("lastId") Long lastId, Pageable pageable);
+    
+    @Query("SELECT p.id AS id, c.name AS categoriaName, p.price AS price, p.stock AS stock, " +
+           "p.freeShipping AS freeShipping, p.conditionType AS conditionType, p.createdAt AS createdAt " +
+           "FROM Producto p LEFT JOIN p.categoria c WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<ProductoFiltroView> findFiltroByIdGreaterThan(@Param("lastId") Long lastId, Pageable pageable);
+    
+    @Query(SELECT_SUGERENCIA + "WHERE p.id > :lastId ORDER BY p.id ASC")
+    List<ProductoSugerenciaView> findSugerenciaByIdGreaterThan(@Param("lastId") Long lastId, Pageable pageable);
+    
+    // Mismas proyecciones para un conjunto puntual de ids (recarga de los lotes importados)
+    @Query("SELECT p.id AS id, p.title AS title, p.description AS description FROM Producto p WHERE p.id IN :ids")
+    List<ProductoTextoView> findTextoByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id AS id, p.categoria.id AS categoriaId, p.price AS price FROM Producto p WHERE p.id IN :ids")
+    List<ProductoFichaView> findFichaByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id AS id, c.name AS categoriaName, p.price AS price, p.stock AS stock, " +
+           "p.freeShipping AS freeShipping, p.conditionType AS conditionType, p.createdAt AS createdAt " +
+           "FROM Producto p LEFT JOIN p.categoria c WHERE p.id IN :ids")
+    List<ProductoFiltroView> findFiltroByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query(SELECT_SUGERENCIA + "WHERE p.id IN :ids")
+    List<ProductoSugerenciaView> findSugerenciaByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Producto p WHERE p.id IN :ids")
+    List<ProductoStockView> findStockByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Listados por cursor (keyset sobre created_at, id): sin OFFSET ni COUNT(*)
+    @Query("SELECT p FROM Producto p ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientes(Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesDespuesDe(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE p.categoria.name = :categoryName ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesByCategoriaName(@Param("categoryName") String categoryName, Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE p.categoria.name = :categoryName AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesByCategoriaNameDespuesDe(@Param("categoryName") String categoryName,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE p.seller.id = :sellerId ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesBySellerId(@Param("sellerId") Long sellerId, Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE p.seller.id = :sellerId AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesBySellerIdDespuesDe(@Param("sellerId") Long sellerId,
+                                                     @Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%')) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesByTitle(@Param("title") String title, Pageable pageable);
+    
+    @Query("SELECT p FROM Producto p WHERE LOWER(p.title) LIKE LOWER(CONCAT('%', :title, '%')) AND " +
+           "(p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    Slice<Producto> findRecientesByTitleDespuesDe(@Param("title") String title,
+                                                  @Param("createdAt") LocalDateTime createdAt,
+                                                  @Param("id") Long id, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.api.e_commerce.repository;
+
+import com.api.e_commerce.model.ProductoTag;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductoTagRepository extends JpaRepository<ProductoTag, Long> {
+    
+    List<ProductoTag> findByProductoId(Long productoId);
+    
+    // Tags de toda una página de productos en una sola consulta, en el orden en que se cargaron
+    @Query("SELECT pt FROM ProductoTag pt WHERE pt.productoId IN :productoIds ORDER BY pt.productoId ASC, pt.id ASC")
+    List<ProductoTag> findByProductoIdIn(@Param("productoIds") Collection<Long> productoIds);
+    
+    // Recorrido por lotes ordenado por producto (keyset por producto e id) para construir el índice de tags
+    @Query("SELECT pt FROM ProductoTag pt WHERE pt.productoId > :productoId " +
+           "OR (pt.productoId = :productoId AND pt.id > :id) ORDER BY pt.productoId ASC, pt.id ASC")
+    List<ProductoTag> findSiguientes(@Param("productoId") Long productoId, @Param("id") Long id, Pageable pageable);
+    
+    // Borrado en una sentencia (el derivado deleteBy... carga las entidades y las borra de a una)
+    @Modifying
+    @Query("DELETE FROM ProductoTag pt WHERE pt.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
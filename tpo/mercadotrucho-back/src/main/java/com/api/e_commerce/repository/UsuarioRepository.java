@@ -1,8 +1,11 @@
 package com.api.e_commerce.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.api.e_commerce.model.Usuario;
 
 /**
@@ -16,4 +19,8 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     List<Usuario> findByLastNameContaining(String lastName);
     List<Usuario> findByRole(Usuario.Role role);
     List<Usuario> findBySellerNickname(String sellerNickname);
+    
+    // Solo los ids existentes, para validar vendedores en lote sin hidratar usuarios
+    @Query("SELECT u.id FROM Usuario u WHERE u.id IN :ids")
+    List<Long> findIdsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,495 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.datasource.LecturaPrimaria;
+import com.api.e_commerce.dto.producto.FacetasDTO;
+import com.api.e_commerce.dto.producto.FiltroProductos;
+import com.api.e_commerce.dto.producto.ProductoFiltroView;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.event.StockDescontadoEvent;
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.repository.ProductoRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Copia columnar del catálogo en memoria para los listados filtrados: cada producto ocupa un slot
+// y sus atributos viven en arrays primitivos (precio en centavos, ordinal de categoría, stock, fecha)
+// y bitsets (envío gratis, usado). Los filtros se evalúan con un recorrido lineal sobre esos arrays.
+@Component
+@RequiredArgsConstructor
+public class CatalogoColumnar {
+
+    private static final int LOTE_CARGA = 1000;
+    private static final int CAPACIDAD_INICIAL = 1024;
+    // Límites de los rangos de precio de la faceta, en pesos
+    private static final int[] LIMITES_PRECIO = {50_000, 200_000, 500_000, 1_000_000};
+    private static final int FRANJAS = 64;
+
+    private final ProductoRepository productoRepository;
+    private final ProductoSearchIndex productoSearchIndex;
+    private final LecturaPrimaria lecturaPrimaria;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Los refrescos se leen de la base fuera del write lock. Sin serializarlos, dos eventos AFTER_COMMIT del
+    // mismo producto podían leer en un orden y aplicar en el otro, y quedaba el dato viejo. Con la franja
+    // tomada de la lectura hasta la aplicación, cada lectura es posterior a la anterior ya aplicada.
+    private final ReentrantLock[] refrescos = nuevasFranjas();
+
+    private long[] ids = new long[CAPACIDAD_INICIAL];
+    private long[] precios = new long[CAPACIDAD_INICIAL];
+    private int[] categorias = new int[CAPACIDAD_INICIAL];
+    private int[] stocks = new int[CAPACIDAD_INICIAL];
+    private long[] creados = new long[CAPACIDAD_INICIAL];
+    private final BitSet ocupados = new BitSet();
+    private final BitSet envioGratis = new BitSet();
+    private final BitSet usados = new BitSet();
+    // Primer slot nunca usado; los slots liberados por bajas se reutilizan desde slotsLibres
+    private int limite = 0;
+    private final ArrayDeque<Integer> slotsLibres = new ArrayDeque<>();
+    private final Map<Long, Integer> slotPorId = new HashMap<>();
+
+    // Ordinal 0 = sin categoría
+    private final Map<String, Integer> ordinalPorCategoria = new HashMap<>();
+    private final List<String> categoriaPorOrdinal = new ArrayList<>(List.of(""));
+
+    private final Set<Long> modificadosDuranteCarga = new HashSet<>();
+    private volatile boolean ready = false;
+
+    @Data
+    @AllArgsConstructor
+    public static class Resultado {
+        private List<Long> ids;
+        private long total;
+        // Solo se completa en filtrarConFacetas
+        private FacetasDTO facetas;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void construir() {
+        Long lastId = 0L;
+        List<ProductoFiltroView> lote;
+        do {
+            lote = productoRepository.findFiltroByIdGreaterThan(lastId, PageRequest.of(0, LOTE_CARGA));
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (ProductoFiltroView producto : lote) {
+                    if (!modificadosDuranteCarga.contains(producto.getId())) {
+                        ponerSinLock(producto.getId(), producto.getCategoriaName(), producto.getPrice(),
+                            producto.getStock(), producto.getFreeShipping(), producto.getConditionType(),
+                            producto.getCreatedAt());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            lastId = lote.get(lote.size() - 1).getId();
+        } while (lote.size() == LOTE_CARGA);
+
+        lock.writeLock().lock();
+        try {
+            modificadosDuranteCarga.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        List<Long> productoIds = List.of(event.getProductoId());
+        if (event.getType() == ProductoChangedEvent.Type.DELETED) {
+            enFranjas(productoIds, () -> quitar(event.getProductoId()));
+            return;
+        }
+        recargar(productoIds);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        recargar(event.getProductoIds());
+    }
+
+    // El filtro enStock depende del stock: los productos vendidos se releen en una sola consulta
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockDescontado(StockDescontadoEvent event) {
+        recargar(event.getProductoIds());
+    }
+
+    private void recargar(List<Long> productoIds) {
+        enFranjas(productoIds, () -> aplicar(lecturaPrimaria.leer(() -> productoRepository.findFiltroByIdIn(productoIds))));
+    }
+
+    private void aplicar(List<ProductoFiltroView> productos) {
+        lock.writeLock().lock();
+        try {
+            for (ProductoFiltroView producto : productos) {
+                if (!ready) {
+                    modificadosDuranteCarga.add(producto.getId());
+                }
+                ponerSinLock(producto.getId(), producto.getCategoriaName(), producto.getPrice(),
+                    producto.getStock(), producto.getFreeShipping(), producto.getConditionType(),
+                    producto.getCreatedAt());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Toma las franjas de los productos siempre en orden ascendente, para que dos refrescos de varios
+    // productos no se bloqueen entre sí
+    private void enFranjas(Collection<Long> productoIds, Runnable refresco) {
+        int[] franjas = productoIds.stream().mapToInt(CatalogoColumnar::franja).distinct().sorted().toArray();
+        for (int franja : franjas) {
+            refrescos[franja].lock();
+        }
+        try {
+            refresco.run();
+        } finally {
+            for (int i = franjas.length - 1; i >= 0; i--) {
+                refrescos[franjas[i]].unlock();
+            }
+        }
+    }
+
+    private static int franja(Long productoId) {
+        return (int) (productoId & (FRANJAS - 1));
+    }
+
+    private static ReentrantLock[] nuevasFranjas() {
+        ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        return franjas;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void poner(Producto producto) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                modificadosDuranteCarga.add(producto.getId());
+            }
+            ponerSinLock(producto.getId(),
+                producto.getCategoria() != null ? producto.getCategoria().getName() : null,
+                producto.getPrice(), producto.getStock(), producto.getFreeShipping(),
+                producto.getConditionType(), producto.getCreatedAt());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void quitar(Long productoId) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                modificadosDuranteCarga.add(productoId);
+            }
+            Integer slot = slotPorId.remove(productoId);
+            if (slot != null) {
+                ocupados.clear(slot);
+                envioGratis.clear(slot);
+                usados.clear(slot);
+                slotsLibres.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Devuelve vacío si el catálogo todavía se está cargando o la búsqueda de texto no puede resolverse en memoria
+    public Optional<Resultado> filtrar(FiltroProductos filtro, long offset, int limit) {
+        return evaluar(filtro, offset, limit, false);
+    }
+
+    // Igual que filtrar, pero en la misma pasada cuenta los resultados por categoría, condición,
+    // envío gratis y rango de precio
+    public Optional<Resultado> filtrarConFacetas(FiltroProductos filtro, long offset, int limit) {
+        return evaluar(filtro, offset, limit, true);
+    }
+
+    private Optional<Resultado> evaluar(FiltroProductos filtro, long offset, int limit, boolean conFacetas) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        Set<Long> porTexto = null;
+        if (filtro.getSearch() != null && !filtro.getSearch().isBlank()) {
+            Optional<Set<Long>> coincidencias = productoSearchIndex.coincidencias(filtro.getSearch());
+            if (coincidencias.isEmpty()) {
+                return Optional.empty();
+            }
+            porTexto = coincidencias.get();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet candidatos = candidatosSinLock(porTexto);
+            if (!conFacetas) {
+                return Optional.of(topK(coincidenciasSinLock(filtro, candidatos), filtro.getOrden(), offset, limit, null));
+            }
+            BitSet coincidencias = new BitSet(limite);
+            FacetasDTO facetas = contarFacetasSinLock(filtro, candidatos, coincidencias);
+            return Optional.of(topK(coincidencias, filtro.getOrden(), offset, limit, facetas));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet candidatosSinLock(Set<Long> porTexto) {
+        if (porTexto == null) {
+            return (BitSet) ocupados.clone();
+        }
+        BitSet candidatos = new BitSet(limite);
+        for (Long id : porTexto) {
+            Integer slot = slotPorId.get(id);
+            if (slot != null) {
+                candidatos.set(slot);
+            }
+        }
+        return candidatos;
+    }
+
+    private BitSet coincidenciasSinLock(FiltroProductos filtro, BitSet candidatos) {
+        // Filtros booleanos: intersección de bitsets
+        if (filtro.getFreeShipping() != null) {
+            if (filtro.getFreeShipping()) {
+                candidatos.and(envioGratis);
+            } else {
+                candidatos.andNot(envioGratis);
+            }
+        }
+        if (filtro.getCondition() != null) {
+            if (filtro.getCondition() == Producto.ConditionType.used) {
+                candidatos.and(usados);
+            } else {
+                candidatos.andNot(usados);
+            }
+        }
+
+        // Filtros de rango: recorrido sobre los arrays primitivos
+        int categoria = -1;
+        if (filtro.getCategory() != null) {
+            Integer ordinal = ordinalPorCategoria.get(filtro.getCategory());
+            if (ordinal == null) {
+                return new BitSet();
+            }
+            categoria = ordinal;
+        }
+        long minimo = filtro.getMinPrice() != null ? filtro.getMinPrice() * 100L : Long.MIN_VALUE;
+        long maximo = filtro.getMaxPrice() != null ? filtro.getMaxPrice() * 100L : Long.MAX_VALUE;
+        boolean soloConStock = Boolean.TRUE.equals(filtro.getEnStock());
+
+        if (categoria >= 0 || minimo != Long.MIN_VALUE || maximo != Long.MAX_VALUE || soloConStock) {
+            for (int slot = candidatos.nextSetBit(0); slot >= 0; slot = candidatos.nextSetBit(slot + 1)) {
+                if ((categoria >= 0 && categorias[slot] != categoria)
+                        || precios[slot] < minimo || precios[slot] > maximo
+                        || (soloConStock && stocks[slot] <= 0)) {
+                    candidatos.clear(slot);
+                }
+            }
+        }
+        return candidatos;
+    }
+
+    // Una sola pasada: cada producto suma en la faceta F si cumple todos los filtros excepto el de F,
+    // y entra en las coincidencias si cumple todos
+    private FacetasDTO contarFacetasSinLock(FiltroProductos filtro, BitSet candidatos, BitSet coincidencias) {
+        int categoria = -1;
+        if (filtro.getCategory() != null) {
+            // -2: categoría desconocida, ningún producto cumple ese filtro
+            categoria = ordinalPorCategoria.getOrDefault(filtro.getCategory(), -2);
+        }
+        long minimo = filtro.getMinPrice() != null ? filtro.getMinPrice() * 100L : Long.MIN_VALUE;
+        long maximo = filtro.getMaxPrice() != null ? filtro.getMaxPrice() * 100L : Long.MAX_VALUE;
+        boolean soloConStock = Boolean.TRUE.equals(filtro.getEnStock());
+        Boolean envio = filtro.getFreeShipping();
+        Boolean usado = filtro.getCondition() != null ? filtro.getCondition() == Producto.ConditionType.used : null;
+
+        long[] porCategoria = new long[categoriaPorOrdinal.size()];
+        long[] porRango = new long[LIMITES_PRECIO.length + 1];
+        long[] porEnvio = new long[2];
+        long[] porCondicion = new long[2];
+
+        for (int slot = candidatos.nextSetBit(0); slot >= 0; slot = candidatos.nextSetBit(slot + 1)) {
+            if (soloConStock && stocks[slot] <= 0) {
+                continue;
+            }
+            boolean esEnvioGratis = envioGratis.get(slot);
+            boolean esUsado = usados.get(slot);
+
+            boolean okCategoria = categoria == -1 || categorias[slot] == categoria;
+            boolean okPrecio = precios[slot] >= minimo && precios[slot] <= maximo;
+            boolean okEnvio = envio == null || esEnvioGratis == envio;
+            boolean okCondicion = usado == null || esUsado == usado;
+
+            if (okPrecio && okEnvio && okCondicion) {
+                porCategoria[categorias[slot]]++;
+            }
+            if (okCategoria && okEnvio && okCondicion) {
+                porRango[rangoDePrecio(precios[slot])]++;
+            }
+            if (okCategoria && okPrecio && okCondicion) {
+                porEnvio[esEnvioGratis ? 1 : 0]++;
+            }
+            if (okCategoria && okPrecio && okEnvio) {
+                porCondicion[esUsado ? 1 : 0]++;
+                if (okCondicion) {
+                    coincidencias.set(slot);
+                }
+            }
+        }
+
+        Map<String, Long> categoriasConteo = new LinkedHashMap<>();
+        for (int ordinal = 1; ordinal < porCategoria.length; ordinal++) {
+            if (porCategoria[ordinal] > 0) {
+                categoriasConteo.put(categoriaPorOrdinal.get(ordinal), porCategoria[ordinal]);
+            }
+        }
+
+        Map<String, Long> condicionConteo = new LinkedHashMap<>();
+        condicionConteo.put(Producto.ConditionType.new_.name(), porCondicion[0]);
+        condicionConteo.put(Producto.ConditionType.used.name(), porCondicion[1]);
+
+        Map<String, Long> envioConteo = new LinkedHashMap<>();
+        envioConteo.put("true", porEnvio[1]);
+        envioConteo.put("false", porEnvio[0]);
+
+        List<FacetasDTO.RangoPrecio> rangos = new ArrayList<>(porRango.length);
+        for (int i = 0; i < porRango.length; i++) {
+            Integer desde = i == 0 ? null : LIMITES_PRECIO[i - 1];
+            Integer hasta = i == LIMITES_PRECIO.length ? null : LIMITES_PRECIO[i];
+            rangos.add(new FacetasDTO.RangoPrecio(desde, hasta, porRango[i]));
+        }
+
+        return new FacetasDTO(categoriasConteo, condicionConteo, envioConteo, rangos);
+    }
+
+    private int rangoDePrecio(long precioCentavos) {
+        int i = 0;
+        while (i < LIMITES_PRECIO.length && precioCentavos >= LIMITES_PRECIO[i] * 100L) {
+            i++;
+        }
+        return i;
+    }
+
+    private Resultado topK(BitSet coincidencias, FiltroProductos.Orden orden, long offset, int limit, FacetasDTO facetas) {
+        long total = coincidencias.cardinality();
+        // Una página después del último resultado no necesita recorrer nada
+        if (offset >= total || limit <= 0) {
+            return new Resultado(List.of(), total, facetas);
+        }
+        // offset < total: k entra en un int y nunca pasa de la cantidad de coincidencias
+        int k = (int) Math.min(offset + limit, total);
+        Comparator<Integer> mejorPrimero = comparador(orden);
+        // Heap con el peor arriba, así se descarta en O(log k) cuando llega uno mejor. Sin capacidad
+        // inicial: crece con lo que realmente entra
+        PriorityQueue<Integer> top = new PriorityQueue<>(mejorPrimero.reversed());
+
+        for (int slot = coincidencias.nextSetBit(0); slot >= 0; slot = coincidencias.nextSetBit(slot + 1)) {
+            if (top.size() < k) {
+                top.offer(slot);
+            } else if (mejorPrimero.compare(slot, top.peek()) < 0) {
+                top.poll();
+                top.offer(slot);
+            }
+        }
+
+        Integer[] ordenados = top.toArray(new Integer[0]);
+        Arrays.sort(ordenados, mejorPrimero);
+        List<Long> pagina = new ArrayList<>(Math.min(limit, ordenados.length));
+        for (int i = (int) offset; i < ordenados.length; i++) {
+            pagina.add(ids[ordenados[i]]);
+        }
+        return new Resultado(pagina, total, facetas);
+    }
+
+    private Comparator<Integer> comparador(FiltroProductos.Orden orden) {
+        switch (orden != null ? orden : FiltroProductos.Orden.recientes) {
+            case precio_asc:
+                return Comparator.<Integer>comparingLong(s -> precios[s]).thenComparingLong(s -> ids[s]);
+            case precio_desc:
+                return Comparator.<Integer>comparingLong(s -> -precios[s]).thenComparingLong(s -> ids[s]);
+            default:
+                return Comparator.<Integer>comparingLong(s -> -creados[s]).thenComparingLong(s -> -ids[s]);
+        }
+    }
+
+    private void ponerSinLock(Long productoId, String categoria, BigDecimal price, Integer stock,
+                              Boolean freeShipping, Producto.ConditionType condition, LocalDateTime createdAt) {
+        Integer slot = slotPorId.get(productoId);
+        if (slot == null) {
+            slot = slotsLibres.isEmpty() ? limite++ : slotsLibres.pop();
+            asegurarCapacidad(slot + 1);
+            slotPorId.put(productoId, slot);
+        }
+
+        ids[slot] = productoId;
+        precios[slot] = price != null ? price.movePointRight(2).longValue() : 0L;
+        categorias[slot] = ordinalDe(categoria);
+        stocks[slot] = stock != null ? stock : 0;
+        creados[slot] = createdAt != null ? createdAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+        ocupados.set(slot);
+        envioGratis.set(slot, Boolean.TRUE.equals(freeShipping));
+        usados.set(slot, condition == Producto.ConditionType.used);
+    }
+
+    private int ordinalDe(String categoria) {
+        if (categoria == null) {
+            return 0;
+        }
+        return ordinalPorCategoria.computeIfAbsent(categoria, nombre -> {
+            categoriaPorOrdinal.add(nombre);
+            return categoriaPorOrdinal.size() - 1;
+        });
+    }
+
+    private void asegurarCapacidad(int necesaria) {
+        if (necesaria <= ids.length) {
+            return;
+        }
+        int nueva = Math.max(necesaria, ids.length * 2);
+        ids = Arrays.copyOf(ids, nueva);
+        precios = Arrays.copyOf(precios, nueva);
+        categorias = Arrays.copyOf(categorias, nueva);
+        stocks = Arrays.copyOf(stocks, nueva);
+        creados = Arrays.copyOf(creados, nueva);
+    }
+}
@@ -0,0 +1,392 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.dto.producto.ProductoTextoView;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.model.ProductoTag;
+import com.api.e_commerce.repository.ProductoRepository;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Índice invertido en memoria sobre título, descripción y tags de los productos.
+// Reemplaza el LIKE '%q%' de la búsqueda, que en MySQL recorre toda la tabla.
+@Component
+@RequiredArgsConstructor
+public class ProductoSearchIndex {
+
+    private static final int LOTE_CARGA = 1000;
+    private static final int MAX_EXPANSION_PREFIJO = 64;
+
+    private static final float PESO_TITULO = 3f;
+    private static final float PESO_TAG = 2f;
+    private static final float PESO_DESCRIPCION = 1f;
+
+    // Puntajes de un token leídos directamente de los postings del índice, sin copiarlos: un término exacto
+    // es un solo posting y un prefijo, los de los términos a los que expande. El puntaje de un producto es
+    // peso del campo * idf, quedándose con el mejor término cuando hay varios.
+    private static final class Puntajes {
+        private final List<Map<Long, Float>> postings = new ArrayList<>(1);
+        private final List<Float> idfs = new ArrayList<>(1);
+        // Cota superior de productos distintos (suma de los postings)
+        private int tamanio;
+
+        void agregar(Map<Long, Float> posting, float idf) {
+            postings.add(posting);
+            idfs.add(idf);
+            tamanio += posting.size();
+        }
+
+        boolean isEmpty() {
+            return tamanio == 0;
+        }
+
+        int tamanio() {
+            return tamanio;
+        }
+
+        // null si el producto no tiene el término
+        Float puntaje(Long productoId) {
+            Float mejor = null;
+            for (int i = 0; i < postings.size(); i++) {
+                Float peso = postings.get(i).get(productoId);
+                if (peso != null && (mejor == null || peso * idfs.get(i) > mejor)) {
+                    mejor = peso * idfs.get(i);
+                }
+            }
+            return mejor;
+        }
+
+        // Solo un prefijo que expande a varios términos arma la unión
+        Set<Long> ids() {
+            if (postings.size() == 1) {
+                return postings.get(0).keySet();
+            }
+            Set<Long> ids = new HashSet<>(tamanio);
+            postings.forEach(posting -> ids.addAll(posting.keySet()));
+            return ids;
+        }
+    }
+
+    private final ProductoRepository productoRepository;
+    private final ProductoTagRepository productoTagRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // término -> (productoId -> peso); ordenado para poder resolver prefijos
+    private final TreeMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    // productoId -> términos del producto, para poder reindexarlo o quitarlo
+    private final Map<Long, Map<String, Float>> terminosPorProducto = new HashMap<>();
+    // Productos modificados mientras corría la carga inicial (la carga no debe pisarlos)
+    private final Set<Long> modificadosDuranteCarga = new HashSet<>();
+
+    private volatile boolean ready = false;
+
+    @Data
+    @AllArgsConstructor
+    public static class Resultado {
+        private List<Long> ids;
+        private long total;
+        // Puntaje de cada id devuelto, para armar el cursor de la página siguiente
+        private List<Float> puntajes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void construir() {
+        Long lastId = 0L;
+        List<ProductoTextoView> lote;
+        do {
+            lote = productoRepository.findTextoByIdGreaterThan(lastId, PageRequest.of(0, LOTE_CARGA));
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = lote.stream().map(ProductoTextoView::getId).collect(Collectors.toList());
+            Map<Long, List<String>> tagsPorProducto = agruparTags(productoTagRepository.findByProductoIdIn(ids));
+
+            lock.writeLock().lock();
+            try {
+                for (ProductoTextoView producto : lote) {
+                    if (!modificadosDuranteCarga.contains(producto.getId())) {
+                        indexarSinLock(producto.getId(), producto.getTitle(), producto.getDescription(),
+                            tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            lastId = lote.get(lote.size() - 1).getId();
+        } while (lote.size() == LOTE_CARGA);
+
+        lock.writeLock().lock();
+        try {
+            modificadosDuranteCarga.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        if (event.getType() == ProductoChangedEvent.Type.DELETED) {
+            quitar(event.getProductoId());
+            return;
+        }
+        productoRepository.findById(event.getProductoId()).ifPresent(producto -> indexar(
+            producto,
+            productoTagRepository.findByProductoId(producto.getId()).stream()
+                .map(ProductoTag::getTagName)
+                .collect(Collectors.toList())
+        ));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        List<ProductoTextoView> productos = productoRepository.findTextoByIdIn(event.getProductoIds());
+        Map<Long, List<String>> tagsPorProducto = agruparTags(productoTagRepository.findByProductoIdIn(event.getProductoIds()));
+
+        lock.writeLock().lock();
+        try {
+            for (ProductoTextoView producto : productos) {
+                if (!ready) {
+                    modificadosDuranteCarga.add(producto.getId());
+                }
+                indexarSinLock(producto.getId(), producto.getTitle(), producto.getDescription(),
+                    tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void indexar(Producto producto, List<String> tags) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                modificadosDuranteCarga.add(producto.getId());
+            }
+            indexarSinLock(producto.getId(), producto.getTitle(), producto.getDescription(), tags);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void quitar(Long productoId) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                modificadosDuranteCarga.add(productoId);
+            }
+            quitarSinLock(productoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Busca productos que contengan todos los términos de la consulta (el último se toma como prefijo),
+    // ordenados por relevancia. Devuelve vacío si el índice no está listo o la consulta no tiene términos útiles.
+    public Optional<Resultado> buscar(String query, int offset, int limit) {
+        return buscar(query, offset, limit, null, null);
+    }
+
+    // Variante por cursor: devuelve los siguientes resultados posteriores a (puntaje, id) en el orden de relevancia
+    public Optional<Resultado> buscarDespuesDe(String query, float puntaje, Long id, int limit) {
+        return buscar(query, 0, limit, puntaje, id);
+    }
+
+    private Optional<Resultado> buscar(String query, int offset, int limit, Float despuesDePuntaje, Long despuesDeId) {
+        List<String> tokens = TextNormalizer.tokenizar(query);
+        if (!ready || tokens.isEmpty()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Puntajes> puntajesPorToken = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                Puntajes puntajes = puntajesPara(tokens.get(i), i == tokens.size() - 1);
+                if (puntajes.isEmpty()) {
+                    return Optional.of(new Resultado(List.of(), 0, List.of()));
+                }
+                puntajesPorToken.add(puntajes);
+            }
+
+            // Intersección empezando por la lista más corta
+            puntajesPorToken.sort(Comparator.comparingInt(Puntajes::tamanio));
+            Puntajes candidatos = puntajesPorToken.get(0);
+            int k = offset + limit;
+            Comparator<Map.Entry<Long, Float>> porRelevancia = Map.Entry.<Long, Float>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Float>comparingByKey().reversed());
+            PriorityQueue<Map.Entry<Long, Float>> top = new PriorityQueue<>(porRelevancia);
+            long total = 0;
+
+            for (Long candidato : candidatos.ids()) {
+                float puntaje = candidatos.puntaje(candidato);
+                boolean coincide = true;
+                for (int i = 1; i < puntajesPorToken.size() && coincide; i++) {
+                    Float otro = puntajesPorToken.get(i).puntaje(candidato);
+                    if (otro == null) {
+                        coincide = false;
+                    } else {
+                        puntaje += otro;
+                    }
+                }
+                if (!coincide) {
+                    continue;
+                }
+                total++;
+                if (despuesDePuntaje != null && !esPosterior(puntaje, candidato, despuesDePuntaje, despuesDeId)) {
+                    continue;
+                }
+                if (k > 0) {
+                    top.offer(Map.entry(candidato, puntaje));
+                    if (top.size() > k) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Map.Entry<Long, Float>> ordenados = new ArrayList<>(top);
+            ordenados.sort(porRelevancia.reversed());
+            List<Map.Entry<Long, Float>> pagina = ordenados.subList(Math.min(offset, ordenados.size()), ordenados.size());
+            List<Long> ids = pagina.stream()
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+            List<Float> puntajes = pagina.stream()
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+            return Optional.of(new Resultado(ids, total, puntajes));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Todos los ids que coinciden con la consulta, sin ordenar (lo usan los filtros del catálogo)
+    public Optional<Set<Long>> coincidencias(String query) {
+        List<String> tokens = TextNormalizer.tokenizar(query);
+        if (!ready || tokens.isEmpty()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> porToken = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                porToken.add(puntajesPara(tokens.get(i), i == tokens.size() - 1).ids());
+            }
+            porToken.sort(Comparator.comparingInt(Set::size));
+
+            Set<Long> resultado = new HashSet<>(porToken.get(0));
+            for (int i = 1; i < porToken.size() && !resultado.isEmpty(); i++) {
+                resultado.retainAll(porToken.get(i));
+            }
+            return Optional.of(resultado);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Orden de relevancia: puntaje descendente y, a igual puntaje, id ascendente
+    private boolean esPosterior(float puntaje, Long id, float cursorPuntaje, Long cursorId) {
+        return puntaje < cursorPuntaje || (puntaje == cursorPuntaje && id > cursorId);
+    }
+
+    private Puntajes puntajesPara(String token, boolean prefijo) {
+        int totalProductos = Math.max(terminosPorProducto.size(), 1);
+        Puntajes puntajes = new Puntajes();
+        if (!prefijo) {
+            Map<Long, Float> posting = postings.get(token);
+            if (posting != null) {
+                puntajes.agregar(posting, idf(posting, totalProductos));
+            }
+            return puntajes;
+        }
+
+        int expandidos = 0;
+        for (Map<Long, Float> posting : postings.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+            puntajes.agregar(posting, idf(posting, totalProductos));
+            if (++expandidos == MAX_EXPANSION_PREFIJO) {
+                break;
+            }
+        }
+        return puntajes;
+    }
+
+    private static float idf(Map<Long, Float> posting, int totalProductos) {
+        return (float) Math.log(1 + (double) totalProductos / posting.size());
+    }
+
+    private void indexarSinLock(Long productoId, String title, String description, List<String> tags) {
+        quitarSinLock(productoId);
+
+        Map<String, Float> terminos = new HashMap<>();
+        acumular(terminos, title, PESO_TITULO);
+        acumular(terminos, description, PESO_DESCRIPCION);
+        for (String tag : tags) {
+            acumular(terminos, tag, PESO_TAG);
+        }
+        if (terminos.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<String, Float> termino : terminos.entrySet()) {
+            postings.computeIfAbsent(termino.getKey(), t -> new HashMap<>()).put(productoId, termino.getValue());
+        }
+        terminosPorProducto.put(productoId, terminos);
+    }
+
+    private void quitarSinLock(Long productoId) {
+        Map<String, Float> anteriores = terminosPorProducto.remove(productoId);
+        if (anteriores == null) {
+            return;
+        }
+        for (String termino : anteriores.keySet()) {
+            Map<Long, Float> posting = postings.get(termino);
+            if (posting != null) {
+                posting.remove(productoId);
+                if (posting.isEmpty()) {
+                    postings.remove(termino);
+                }
+            }
+        }
+    }
+
+    private Map<Long, List<String>> agruparTags(List<ProductoTag> tags) {
+        return tags.stream().collect(Collectors.groupingBy(ProductoTag::getProductoId,
+            Collectors.mapping(ProductoTag::getTagName, Collectors.toList())));
+    }
+
+    private void acumular(Map<String, Float> terminos, String texto, float peso) {
+        for (String token : TextNormalizer.tokenizar(texto)) {
+            terminos.merge(token, peso, Float::sum);
+        }
+    }
+}
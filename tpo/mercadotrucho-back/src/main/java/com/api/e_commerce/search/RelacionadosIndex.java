@@ -0,0 +1,255 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.dto.producto.ProductoFichaView;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.model.ProductoTag;
+import com.api.e_commerce.repository.ProductoRepository;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Índice de productos relacionados: por categoría mantiene los productos ordenados por precio.
+// Los candidatos de un producto son sus vecinos de precio en la categoría (sin recorrerla entera),
+// y se reordenan por tags compartidos y cercanía de precio.
+@Component
+@RequiredArgsConstructor
+public class RelacionadosIndex {
+
+    private static final int LOTE_CARGA = 1000;
+    // Cuántos vecinos de precio se evalúan por cada relacionado pedido
+    private static final int CANDIDATOS_POR_RESULTADO = 5;
+    private static final int MIN_CANDIDATOS = 20;
+
+    private static final double PESO_TAG_COMPARTIDO = 2.0;
+
+    private final ProductoRepository productoRepository;
+    private final ProductoTagRepository productoTagRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Ficha> fichas = new HashMap<>();
+    private final Map<Long, TreeSet<Ficha>> porCategoria = new HashMap<>();
+    private final Set<Long> modificadosDuranteCarga = new HashSet<>();
+
+    private volatile boolean ready = false;
+
+    private static final Comparator<Ficha> POR_PRECIO = Comparator.comparingLong(Ficha::precioCentavos)
+        .thenComparingLong(Ficha::id);
+
+    private record Ficha(long id, Long categoriaId, long precioCentavos, Set<String> tags) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void construir() {
+        Long lastId = 0L;
+        List<ProductoFichaView> lote;
+        do {
+            lote = productoRepository.findFichaByIdGreaterThan(lastId, PageRequest.of(0, LOTE_CARGA));
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = lote.stream().map(ProductoFichaView::getId).collect(Collectors.toList());
+            Map<Long, List<String>> tagsPorProducto = agruparTags(productoTagRepository.findByProductoIdIn(ids));
+
+            lock.writeLock().lock();
+            try {
+                for (ProductoFichaView producto : lote) {
+                    if (!modificadosDuranteCarga.contains(producto.getId())) {
+                        ponerSinLock(producto.getId(), producto.getCategoriaId(), producto.getPrice(),
+                            tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            lastId = lote.get(lote.size() - 1).getId();
+        } while (lote.size() == LOTE_CARGA);
+
+        lock.writeLock().lock();
+        try {
+            modificadosDuranteCarga.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        if (event.getType() == ProductoChangedEvent.Type.DELETED) {
+            quitar(event.getProductoId());
+            return;
+        }
+        productoRepository.findById(event.getProductoId()).ifPresent(producto -> poner(
+            producto.getId(),
+            producto.getCategoria() != null ? producto.getCategoria().getId() : null,
+            producto.getPrice(),
+            productoTagRepository.findByProductoId(producto.getId()).stream()
+                .map(ProductoTag::getTagName)
+                .collect(Collectors.toList())
+        ));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        List<ProductoFichaView> productos = productoRepository.findFichaByIdIn(event.getProductoIds());
+        Map<Long, List<String>> tagsPorProducto = agruparTags(productoTagRepository.findByProductoIdIn(event.getProductoIds()));
+
+        lock.writeLock().lock();
+        try {
+            for (ProductoFichaView producto : productos) {
+                if (!ready) {
+                    modificadosDuranteCarga.add(producto.getId());
+                }
+                ponerSinLock(producto.getId(), producto.getCategoriaId(), producto.getPrice(),
+                    tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean contiene(Long productoId) {
+        lock.readLock().lock();
+        try {
+            return fichas.containsKey(productoId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> relacionados(Long productoId, int limit) {
+        lock.readLock().lock();
+        try {
+            Ficha base = fichas.get(productoId);
+            if (base == null || base.categoriaId() == null || limit <= 0) {
+                return List.of();
+            }
+
+            TreeSet<Ficha> categoria = porCategoria.get(base.categoriaId());
+            List<Ficha> candidatos = vecinosDePrecio(categoria, base,
+                Math.max(limit * CANDIDATOS_POR_RESULTADO, MIN_CANDIDATOS));
+
+            return candidatos.stream()
+                .sorted(Comparator.comparingDouble((Ficha f) -> puntaje(base, f)).reversed()
+                    .thenComparingLong(Ficha::id))
+                .limit(limit)
+                .map(Ficha::id)
+                .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void poner(Long productoId, Long categoriaId, BigDecimal price, List<String> tags) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                modificadosDuranteCarga.add(productoId);
+            }
+            ponerSinLock(productoId, categoriaId, price, tags);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void quitar(Long productoId) {
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                modificadosDuranteCarga.add(productoId);
+            }
+            quitarSinLock(productoId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Recorre hacia ambos lados desde el precio del producto, tomando siempre el vecino más cercano
+    private List<Ficha> vecinosDePrecio(TreeSet<Ficha> categoria, Ficha base, int cantidad) {
+        Iterator<Ficha> menores = categoria.headSet(base, false).descendingIterator();
+        Iterator<Ficha> mayores = categoria.tailSet(base, false).iterator();
+        Ficha menor = menores.hasNext() ? menores.next() : null;
+        Ficha mayor = mayores.hasNext() ? mayores.next() : null;
+
+        List<Ficha> vecinos = new ArrayList<>(cantidad);
+        while (vecinos.size() < cantidad && (menor != null || mayor != null)) {
+            boolean tomarMenor = mayor == null || (menor != null &&
+                base.precioCentavos() - menor.precioCentavos() <= mayor.precioCentavos() - base.precioCentavos());
+            if (tomarMenor) {
+                vecinos.add(menor);
+                menor = menores.hasNext() ? menores.next() : null;
+            } else {
+                vecinos.add(mayor);
+                mayor = mayores.hasNext() ? mayores.next() : null;
+            }
+        }
+        return vecinos;
+    }
+
+    private double puntaje(Ficha base, Ficha candidato) {
+        long compartidos = candidato.tags().stream().filter(base.tags()::contains).count();
+        double diferencia = Math.abs(base.precioCentavos() - candidato.precioCentavos());
+        double cercania = 1.0 / (1.0 + diferencia / Math.max(base.precioCentavos(), 1));
+        return PESO_TAG_COMPARTIDO * compartidos + cercania;
+    }
+
+    private void ponerSinLock(Long productoId, Long categoriaId, BigDecimal price, List<String> tags) {
+        quitarSinLock(productoId);
+        Set<String> tagsNormalizados = tags.stream()
+            .map(TextNormalizer::normalizar)
+            .collect(Collectors.toUnmodifiableSet());
+        long precioCentavos = price != null ? price.movePointRight(2).longValue() : 0L;
+        Ficha ficha = new Ficha(productoId, categoriaId, precioCentavos, tagsNormalizados);
+
+        fichas.put(productoId, ficha);
+        if (categoriaId != null) {
+            porCategoria.computeIfAbsent(categoriaId, c -> new TreeSet<>(POR_PRECIO)).add(ficha);
+        }
+    }
+
+    private void quitarSinLock(Long productoId) {
+        Ficha anterior = fichas.remove(productoId);
+        if (anterior == null || anterior.categoriaId() == null) {
+            return;
+        }
+        TreeSet<Ficha> categoria = porCategoria.get(anterior.categoriaId());
+        if (categoria != null) {
+            categoria.remove(anterior);
+            if (categoria.isEmpty()) {
+                porCategoria.remove(anterior.categoriaId());
+            }
+        }
+    }
+
+    private Map<Long, List<String>> agruparTags(List<ProductoTag> tags) {
+        return tags.stream().collect(Collectors.groupingBy(ProductoTag::getProductoId,
+            Collectors.mapping(ProductoTag::getTagName, Collectors.toList())));
+    }
+}
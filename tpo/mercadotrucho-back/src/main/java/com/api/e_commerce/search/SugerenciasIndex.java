@@ -0,0 +1,428 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.dto.producto.ProductoSugerenciaView;
+import com.api.e_commerce.dto.producto.SugerenciaDTO;
+import com.api.e_commerce.event.FavoritoChangedEvent;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.model.ProductoTag;
+import com.api.e_commerce.repository.ProductoRepository;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Sugerencias para el buscador (typeahead) sobre títulos de productos, categorías y tags.
+// Es un trie comprimido (radix) en el que cada nodo guarda ya calculadas las MAX_SUGERENCIAS mejores
+// entradas de su subárbol: responder un prefijo es recorrerlo y copiar esa lista, sin consultas ni ordenamientos.
+// Cada texto se indexa desde el comienzo y desde cada palabra ("funda iphone 15" también responde a "iph").
+// Popularidad: favoritos para los productos, cantidad de productos para categorías y tags.
+@Component
+@RequiredArgsConstructor
+public class SugerenciasIndex {
+
+    public static final int MAX_SUGERENCIAS = 10;
+
+    private static final int LOTE_CARGA = 1000;
+    // Nadie tipea más que esto antes de elegir: acota la memoria de los títulos largos
+    private static final int MAX_LARGO_CLAVE = 48;
+
+    private static final Comparator<Entrada> POR_POPULARIDAD = Comparator
+        .comparingLong((Entrada e) -> -e.popularidad)
+        .thenComparingInt(e -> e.texto.length())
+        .thenComparing(e -> e.texto);
+
+    private final ProductoRepository productoRepository;
+    private final ProductoTagRepository productoTagRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Nodo raiz = new Nodo("");
+    private final Map<Long, Entrada> productos = new HashMap<>();
+    // productoId -> categoría y tags con que sumó, para descontarlos al modificarlo o quitarlo
+    private final Map<Long, List<Entrada>> agrupadoresPorProducto = new HashMap<>();
+    // Categorías y tags por texto normalizado
+    private final Map<String, Entrada> categorias = new HashMap<>();
+    private final Map<String, Entrada> tags = new HashMap<>();
+    // Productos modificados mientras corría la carga inicial (la carga no debe pisarlos)
+    private final Set<Long> modificadosDuranteCarga = new HashSet<>();
+
+    private volatile boolean ready = false;
+
+    private static final class Entrada {
+        final String tipo;
+        final String texto;
+        final Long productoId;
+        final List<String> claves;
+        long popularidad;
+
+        Entrada(String tipo, String texto, Long productoId, long popularidad) {
+            this.tipo = tipo;
+            this.texto = texto;
+            this.productoId = productoId;
+            this.claves = claves(texto);
+            this.popularidad = popularidad;
+        }
+
+        SugerenciaDTO toDTO() {
+            return new SugerenciaDTO(texto, tipo, productoId);
+        }
+    }
+
+    private static final class Nodo {
+        String etiqueta;
+        Map<Character, Nodo> hijos = new HashMap<>(4);
+        // Entradas cuya clave termina exactamente en este nodo
+        List<Entrada> propias = new ArrayList<>(1);
+        // Las mejores del subárbol, ordenadas; se recalcula en cada nodo del camino de una modificación
+        List<Entrada> top = List.of();
+
+        Nodo(String etiqueta) {
+            this.etiqueta = etiqueta;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void construir() {
+        Long lastId = 0L;
+        List<ProductoSugerenciaView> lote;
+        do {
+            lote = productoRepository.findSugerenciaByIdGreaterThan(lastId, PageRequest.of(0, LOTE_CARGA));
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            List<Long> ids = lote.stream().map(ProductoSugerenciaView::getId).collect(Collectors.toList());
+            Map<Long, List<String>> tagsPorProducto = agruparTags(productoTagRepository.findByProductoIdIn(ids));
+
+            lock.writeLock().lock();
+            try {
+                for (ProductoSugerenciaView producto : lote) {
+                    if (!modificadosDuranteCarga.contains(producto.getId())) {
+                        ponerSinLock(producto, tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            lastId = lote.get(lote.size() - 1).getId();
+        } while (lote.size() == LOTE_CARGA);
+
+        lock.writeLock().lock();
+        try {
+            modificadosDuranteCarga.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        if (event.getType() == ProductoChangedEvent.Type.DELETED) {
+            lock.writeLock().lock();
+            try {
+                if (!ready) {
+                    modificadosDuranteCarga.add(event.getProductoId());
+                }
+                quitarSinLock(event.getProductoId());
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+        recargar(List.of(event.getProductoId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        recargar(event.getProductoIds());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFavoritoChanged(FavoritoChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // Si el producto todavía no se cargó, la carga ya lee el conteo actualizado
+            Entrada entrada = productos.get(event.getProductoId());
+            if (entrada != null) {
+                cambiarPopularidadSinLock(entrada, event.isAgregado() ? 1 : -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Las mejores sugerencias para lo tipeado hasta ahora; vacío si el índice no está listo
+    public Optional<List<SugerenciaDTO>> sugerir(String prefijo, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        String clave = normalizar(prefijo);
+        if (clave.isEmpty()) {
+            return Optional.of(List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            Nodo nodo = raiz;
+            int i = 0;
+            while (i < clave.length()) {
+                Nodo hijo = nodo.hijos.get(clave.charAt(i));
+                if (hijo == null) {
+                    return Optional.of(List.of());
+                }
+                int largo = Math.min(hijo.etiqueta.length(), clave.length() - i);
+                if (!hijo.etiqueta.regionMatches(0, clave, i, largo)) {
+                    return Optional.of(List.of());
+                }
+                nodo = hijo;
+                i += largo;
+            }
+            return Optional.of(nodo.top.stream()
+                .limit(limit)
+                .map(Entrada::toDTO)
+                .collect(Collectors.toList()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void recargar(List<Long> productoIds) {
+        List<ProductoSugerenciaView> vistas = productoRepository.findSugerenciaByIdIn(productoIds);
+        Map<Long, List<String>> tagsPorProducto = agruparTags(productoTagRepository.findByProductoIdIn(productoIds));
+
+        lock.writeLock().lock();
+        try {
+            for (ProductoSugerenciaView producto : vistas) {
+                if (!ready) {
+                    modificadosDuranteCarga.add(producto.getId());
+                }
+                ponerSinLock(producto, tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ponerSinLock(ProductoSugerenciaView producto, List<String> tagsProducto) {
+        quitarSinLock(producto.getId());
+
+        if (producto.getTitle() != null && !producto.getTitle().isBlank()) {
+            Entrada entrada = new Entrada(SugerenciaDTO.PRODUCTO, producto.getTitle().trim(), producto.getId(),
+                producto.getFavoritos() != null ? producto.getFavoritos() : 0);
+            insertarSinLock(entrada);
+            productos.put(producto.getId(), entrada);
+        }
+
+        List<Entrada> agrupadores = new ArrayList<>();
+        if (producto.getCategoriaName() != null) {
+            agrupadores.add(sumarSinLock(categorias, SugerenciaDTO.CATEGORIA, producto.getCategoriaName()));
+        }
+        Set<String> vistos = new HashSet<>();
+        for (String tag : tagsProducto) {
+            if (tag != null && vistos.add(normalizar(tag))) {
+                agrupadores.add(sumarSinLock(tags, SugerenciaDTO.TAG, tag));
+            }
+        }
+        agrupadoresPorProducto.put(producto.getId(), agrupadores);
+    }
+
+    private void quitarSinLock(Long productoId) {
+        Entrada entrada = productos.remove(productoId);
+        if (entrada != null) {
+            eliminarSinLock(entrada);
+        }
+        List<Entrada> agrupadores = agrupadoresPorProducto.remove(productoId);
+        if (agrupadores != null) {
+            for (Entrada agrupador : agrupadores) {
+                cambiarPopularidadSinLock(agrupador, -1);
+                if (agrupador.popularidad <= 0) {
+                    eliminarSinLock(agrupador);
+                    (SugerenciaDTO.CATEGORIA.equals(agrupador.tipo) ? categorias : tags).remove(normalizar(agrupador.texto));
+                }
+            }
+        }
+    }
+
+    // Una categoría o tag más: su popularidad es la cantidad de productos que lo usan
+    private Entrada sumarSinLock(Map<String, Entrada> porTexto, String tipo, String texto) {
+        String clave = normalizar(texto);
+        Entrada existente = porTexto.get(clave);
+        if (existente != null) {
+            cambiarPopularidadSinLock(existente, 1);
+            return existente;
+        }
+        Entrada nueva = new Entrada(tipo, texto.trim(), null, 1);
+        insertarSinLock(nueva);
+        porTexto.put(clave, nueva);
+        return nueva;
+    }
+
+    // El top de cada nodo depende de la popularidad, así que se saca la entrada y se vuelve a poner
+    private void cambiarPopularidadSinLock(Entrada entrada, long delta) {
+        eliminarSinLock(entrada);
+        entrada.popularidad = Math.max(entrada.popularidad + delta, 0);
+        insertarSinLock(entrada);
+    }
+
+    private void insertarSinLock(Entrada entrada) {
+        for (String clave : entrada.claves) {
+            List<Nodo> camino = new ArrayList<>();
+            camino.add(raiz);
+            Nodo nodo = raiz;
+            int i = 0;
+            while (i < clave.length()) {
+                Nodo hijo = nodo.hijos.get(clave.charAt(i));
+                if (hijo == null) {
+                    hijo = new Nodo(clave.substring(i));
+                    nodo.hijos.put(clave.charAt(i), hijo);
+                    i = clave.length();
+                } else {
+                    int comun = prefijoComun(hijo.etiqueta, clave, i);
+                    if (comun < hijo.etiqueta.length()) {
+                        // La clave se separa a mitad de la etiqueta: nodo intermedio con lo compartido
+                        Nodo intermedio = new Nodo(hijo.etiqueta.substring(0, comun));
+                        hijo.etiqueta = hijo.etiqueta.substring(comun);
+                        intermedio.hijos.put(hijo.etiqueta.charAt(0), hijo);
+                        intermedio.top = hijo.top;
+                        nodo.hijos.put(intermedio.etiqueta.charAt(0), intermedio);
+                        hijo = intermedio;
+                    }
+                    i += comun;
+                }
+                camino.add(hijo);
+                nodo = hijo;
+            }
+            nodo.propias.add(entrada);
+            recalcularTop(camino);
+        }
+    }
+
+    private void eliminarSinLock(Entrada entrada) {
+        for (String clave : entrada.claves) {
+            List<Nodo> camino = new ArrayList<>();
+            camino.add(raiz);
+            Nodo nodo = raiz;
+            int i = 0;
+            while (nodo != null && i < clave.length()) {
+                nodo = nodo.hijos.get(clave.charAt(i));
+                if (nodo == null || !clave.startsWith(nodo.etiqueta, i)) {
+                    nodo = null;
+                } else {
+                    i += nodo.etiqueta.length();
+                    camino.add(nodo);
+                }
+            }
+            if (nodo == null || !nodo.propias.remove(entrada)) {
+                continue;
+            }
+
+            // Compacta de abajo hacia arriba: sin entradas ni hijos se borra, con un solo hijo se fusiona
+            for (int j = camino.size() - 1; j > 0; j--) {
+                Nodo actual = camino.get(j);
+                if (!actual.propias.isEmpty()) {
+                    break;
+                }
+                Nodo padre = camino.get(j - 1);
+                if (actual.hijos.isEmpty()) {
+                    padre.hijos.remove(actual.etiqueta.charAt(0));
+                    camino.remove(j);
+                } else if (actual.hijos.size() == 1) {
+                    Nodo unico = actual.hijos.values().iterator().next();
+                    unico.etiqueta = actual.etiqueta + unico.etiqueta;
+                    padre.hijos.put(unico.etiqueta.charAt(0), unico);
+                    camino.set(j, unico);
+                    break;
+                } else {
+                    break;
+                }
+            }
+            recalcularTop(camino);
+        }
+    }
+
+    // De la hoja a la raíz: propias + el top de cada hijo, sin repetir entradas (un texto puede tener
+    // varias claves en el mismo subárbol, por ejemplo "samsung galaxy s23" y "s23" bajo "s")
+    private void recalcularTop(List<Nodo> camino) {
+        for (int j = camino.size() - 1; j >= 0; j--) {
+            Nodo nodo = camino.get(j);
+            List<Entrada> candidatas = new ArrayList<>(nodo.propias);
+            for (Nodo hijo : nodo.hijos.values()) {
+                candidatas.addAll(hijo.top);
+            }
+            candidatas.sort(POR_POPULARIDAD);
+            Set<Entrada> top = new LinkedHashSet<>();
+            for (Entrada candidata : candidatas) {
+                if (top.size() == MAX_SUGERENCIAS) {
+                    break;
+                }
+                top.add(candidata);
+            }
+            nodo.top = List.copyOf(top);
+        }
+    }
+
+    private static int prefijoComun(String etiqueta, String clave, int desde) {
+        int largo = Math.min(etiqueta.length(), clave.length() - desde);
+        int i = 0;
+        while (i < largo && etiqueta.charAt(i) == clave.charAt(desde + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // El texto entero y cada sufijo que empieza en una palabra (salvo conectores), normalizados y acotados
+    private static List<String> claves(String texto) {
+        String normalizado = normalizar(texto);
+        Set<String> claves = new LinkedHashSet<>();
+        if (!normalizado.isEmpty()) {
+            claves.add(acotar(normalizado));
+        }
+        int inicio = normalizado.indexOf(' ');
+        while (inicio >= 0) {
+            String sufijo = normalizado.substring(inicio + 1);
+            if (!TextNormalizer.tokenizar(sufijo.split(" ", 2)[0]).isEmpty()) {
+                claves.add(acotar(sufijo));
+            }
+            inicio = normalizado.indexOf(' ', inicio + 1);
+        }
+        return List.copyOf(claves);
+    }
+
+    private static String acotar(String clave) {
+        return clave.length() > MAX_LARGO_CLAVE ? clave.substring(0, MAX_LARGO_CLAVE) : clave;
+    }
+
+    // Igual para lo indexado y lo tipeado
+    private static String normalizar(String texto) {
+        return TextNormalizer.normalizarFrase(texto);
+    }
+
+    private Map<Long, List<String>> agruparTags(List<ProductoTag> tags) {
+        return tags.stream().collect(Collectors.groupingBy(ProductoTag::getProductoId,
+            Collectors.mapping(ProductoTag::getTagName, Collectors.toList())));
+    }
+}
@@ -0,0 +1,366 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.model.ProductoTag;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Índice invertido tag -> productos. Cada lista de ids se guarda ordenada y comprimida
+// (diferencias entre ids consecutivos en varint), así un tag de 100.000 productos ocupa del orden de 100 KB
+// en lugar de varios MB de Long en un Set. Responde /api/productos/tags con intersección (AND) o unión (OR).
+@Component
+@RequiredArgsConstructor
+public class TagIndex {
+
+    private static final int LOTE_CARGA = 1000;
+
+    private final ProductoTagRepository productoTagRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // tag normalizado -> ids de productos
+    private final Map<String, Postings> porTag = new HashMap<>();
+    // productoId -> tags normalizados, para poder reindexarlo o quitarlo
+    private final Map<Long, Set<String>> tagsPorProducto = new HashMap<>();
+    // Productos modificados mientras corría la carga inicial: se releen al terminarla
+    private Set<Long> modificadosDuranteCarga = new HashSet<>();
+
+    private volatile boolean ready = false;
+
+    @Data
+    @AllArgsConstructor
+    public static class Resultado {
+        private List<Long> ids;
+        private long total;
+    }
+
+    // Lista ordenada de ids codificada como diferencias en varint. Agregar un id mayor al último es un append
+    // (el caso de la carga inicial, que recorre por producto); cualquier otro cambio decodifica y recodifica.
+    static final class Postings {
+        private byte[] datos = new byte[8];
+        private int largo;
+        private int cantidad;
+        private long ultimo;
+
+        void agregar(long id) {
+            if (cantidad > 0 && id <= ultimo) {
+                long[] ids = decodificar();
+                int pos = Arrays.binarySearch(ids, id);
+                if (pos >= 0) {
+                    return;
+                }
+                long[] nuevos = new long[ids.length + 1];
+                int insercion = -pos - 1;
+                System.arraycopy(ids, 0, nuevos, 0, insercion);
+                nuevos[insercion] = id;
+                System.arraycopy(ids, insercion, nuevos, insercion + 1, ids.length - insercion);
+                codificar(nuevos, nuevos.length);
+                return;
+            }
+            escribir(cantidad == 0 ? id : id - ultimo);
+            ultimo = id;
+            cantidad++;
+        }
+
+        void quitar(long id) {
+            long[] ids = decodificar();
+            int pos = Arrays.binarySearch(ids, id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, ids.length - pos - 1);
+            codificar(ids, ids.length - 1);
+        }
+
+        int cantidad() {
+            return cantidad;
+        }
+
+        long[] decodificar() {
+            long[] ids = new long[cantidad];
+            long actual = 0;
+            int pos = 0;
+            for (int i = 0; i < cantidad; i++) {
+                long delta = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = datos[pos++];
+                    delta |= (long) (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                actual += delta;
+                ids[i] = actual;
+            }
+            return ids;
+        }
+
+        private void codificar(long[] ids, int n) {
+            datos = new byte[Math.max(8, n * 2)];
+            largo = 0;
+            cantidad = 0;
+            ultimo = 0;
+            for (int i = 0; i < n; i++) {
+                escribir(i == 0 ? ids[i] : ids[i] - ids[i - 1]);
+                ultimo = ids[i];
+                cantidad++;
+            }
+        }
+
+        private void escribir(long valor) {
+            if (largo + 10 > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, largo + 10));
+            }
+            while ((valor & ~0x7FL) != 0) {
+                datos[largo++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            datos[largo++] = (byte) valor;
+        }
+    }
+
+    // Sin una transacción que abarque toda la carga: cada consulta corre en la suya (la de los repositorios),
+    // así la relectura de los modificados ve lo confirmado después del primer lote (con una sola
+    // transacción leería la foto de REPEATABLE READ del comienzo y las mismas entidades ya cargadas).
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        Long ultimoProducto = 0L;
+        Long ultimoId = 0L;
+        List<ProductoTag> lote;
+        do {
+            lote = productoTagRepository.findSiguientes(ultimoProducto, ultimoId, PageRequest.of(0, LOTE_CARGA));
+            if (lote.isEmpty()) {
+                break;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (ProductoTag tag : lote) {
+                    if (!modificadosDuranteCarga.contains(tag.getProductoId())) {
+                        agregarSinLock(tag.getProductoId(), tag.getTagName());
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            ProductoTag ultimo = lote.get(lote.size() - 1);
+            ultimoProducto = ultimo.getProductoId();
+            ultimoId = ultimo.getId();
+        } while (lote.size() == LOTE_CARGA);
+
+        // Los modificados durante la carga se releen ahora (aplicarlos antes habría roto el orden de los appends).
+        // El conjunto se cambia por uno nuevo antes de consultar: lo que llega mientras tanto se junta ahí y se
+        // relee en la vuelta siguiente; el índice queda listo cuando una vuelta no encuentra nada pendiente.
+        while (true) {
+            Set<Long> pendientes;
+            lock.writeLock().lock();
+            try {
+                if (modificadosDuranteCarga.isEmpty()) {
+                    ready = true;
+                    return;
+                }
+                pendientes = modificadosDuranteCarga;
+                modificadosDuranteCarga = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Map<Long, List<String>> tagsPendientes =
+                agruparTags(productoTagRepository.findByProductoIdIn(new ArrayList<>(pendientes)));
+
+            lock.writeLock().lock();
+            try {
+                for (Long productoId : pendientes) {
+                    ponerSinLock(productoId, tagsPendientes.getOrDefault(productoId, List.of()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        if (event.getType() == ProductoChangedEvent.Type.DELETED) {
+            poner(List.of(event.getProductoId()), Map.of());
+            return;
+        }
+        poner(List.of(event.getProductoId()), agruparTags(productoTagRepository.findByProductoId(event.getProductoId())));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        poner(event.getProductoIds(), agruparTags(productoTagRepository.findByProductoIdIn(event.getProductoIds())));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Productos con todos los tags (todos = true) o con alguno, del más nuevo al más viejo (id descendente).
+    // Vacío si el índice todavía no está listo.
+    public Optional<Resultado> buscar(Collection<String> tags, boolean todos, long offset, int limit) {
+        if (!ready) {
+            return Optional.empty();
+        }
+
+        long[] ids;
+        lock.readLock().lock();
+        try {
+            List<Postings> listas = new ArrayList<>(tags.size());
+            for (String tag : tags) {
+                Postings postings = porTag.get(TextNormalizer.normalizarFrase(tag));
+                if (postings != null) {
+                    listas.add(postings);
+                } else if (todos) {
+                    return Optional.of(new Resultado(List.of(), 0));
+                }
+            }
+            if (listas.isEmpty()) {
+                return Optional.of(new Resultado(List.of(), 0));
+            }
+            ids = todos ? interseccion(listas) : union(listas);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (offset < 0 || offset >= ids.length) {
+            return Optional.of(new Resultado(List.of(), ids.length));
+        }
+        List<Long> pagina = new ArrayList<>(Math.min(limit, ids.length));
+        for (int i = ids.length - 1 - (int) offset; i >= 0 && pagina.size() < limit; i--) {
+            pagina.add(ids[i]);
+        }
+        return Optional.of(new Resultado(pagina, ids.length));
+    }
+
+    // Empezando por la lista más corta, que acota el resultado
+    private long[] interseccion(List<Postings> listas) {
+        listas.sort(Comparator.comparingInt(Postings::cantidad));
+        long[] resultado = listas.get(0).decodificar();
+        int n = resultado.length;
+        for (int l = 1; l < listas.size() && n > 0; l++) {
+            long[] otra = listas.get(l).decodificar();
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < n && j < otra.length) {
+                if (resultado[i] < otra[j]) {
+                    i++;
+                } else if (resultado[i] > otra[j]) {
+                    j++;
+                } else {
+                    resultado[k++] = resultado[i++];
+                    j++;
+                }
+            }
+            n = k;
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private long[] union(List<Postings> listas) {
+        long[] resultado = new long[0];
+        for (Postings postings : listas) {
+            long[] otra = postings.decodificar();
+            long[] mezcla = new long[resultado.length + otra.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < resultado.length || j < otra.length) {
+                if (j == otra.length || (i < resultado.length && resultado[i] < otra[j])) {
+                    mezcla[k++] = resultado[i++];
+                } else if (i == resultado.length || otra[j] < resultado[i]) {
+                    mezcla[k++] = otra[j++];
+                } else {
+                    mezcla[k++] = resultado[i++];
+                    j++;
+                }
+            }
+            resultado = Arrays.copyOf(mezcla, k);
+        }
+        return resultado;
+    }
+
+    private void poner(List<Long> productoIds, Map<Long, List<String>> tags) {
+        lock.writeLock().lock();
+        try {
+            for (Long productoId : productoIds) {
+                if (!ready) {
+                    modificadosDuranteCarga.add(productoId);
+                } else {
+                    ponerSinLock(productoId, tags.getOrDefault(productoId, List.of()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Reemplaza los tags indexados del producto tocando solo las listas que cambian
+    private void ponerSinLock(Long productoId, List<String> tags) {
+        Set<String> nuevos = tags.stream()
+            .map(TextNormalizer::normalizarFrase)
+            .filter(tag -> !tag.isEmpty())
+            .collect(Collectors.toSet());
+        Set<String> anteriores = tagsPorProducto.getOrDefault(productoId, Set.of());
+
+        for (String tag : anteriores) {
+            if (!nuevos.contains(tag)) {
+                Postings postings = porTag.get(tag);
+                postings.quitar(productoId);
+                if (postings.cantidad() == 0) {
+                    porTag.remove(tag);
+                }
+            }
+        }
+        for (String tag : nuevos) {
+            if (!anteriores.contains(tag)) {
+                porTag.computeIfAbsent(tag, t -> new Postings()).agregar(productoId);
+            }
+        }
+
+        if (nuevos.isEmpty()) {
+            tagsPorProducto.remove(productoId);
+        } else {
+            tagsPorProducto.put(productoId, nuevos);
+        }
+    }
+
+    private void agregarSinLock(Long productoId, String tagName) {
+        String tag = TextNormalizer.normalizarFrase(tagName);
+        if (tag.isEmpty()) {
+            return;
+        }
+        Set<String> delProducto = tagsPorProducto.computeIfAbsent(productoId, id -> new HashSet<>(4));
+        if (delProducto.add(tag)) {
+            porTag.computeIfAbsent(tag, t -> new Postings()).agregar(productoId);
+        }
+    }
+
+    private Map<Long, List<String>> agruparTags(List<ProductoTag> tags) {
+        return tags.stream().collect(Collectors.groupingBy(ProductoTag::getProductoId,
+            Collectors.mapping(ProductoTag::getTagName, Collectors.toList())));
+    }
+}
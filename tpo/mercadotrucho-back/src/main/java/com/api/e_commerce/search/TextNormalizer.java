@@ -0,0 +1,57 @@
+package com.api.e_commerce.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Normalización de texto en español para los índices en memoria:
+// minúsculas, sin acentos ni diéresis ("Cámara" -> "camara", "pingüino" -> "pinguino")
+public final class TextNormalizer {
+    
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+    
+    private static final Set<String> STOPWORDS = Set.of(
+        "de", "del", "la", "las", "el", "los", "un", "una", "unos", "unas",
+        "y", "o", "e", "en", "con", "sin", "para", "por", "a", "al", "que", "se"
+    );
+    
+    private TextNormalizer() {
+    }
+    
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        // La ñ se descompone en n + tilde, así que "año" y "ano" quedan iguales (mismo criterio que MercadoLibre)
+        String sinAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+    
+    // Frase normalizada con un solo espacio entre palabras ("Envío  gratis!" -> "envio gratis"):
+    // clave de los índices que trabajan con el texto entero en lugar de por términos
+    public static String normalizarFrase(String texto) {
+        return SEPARADORES.matcher(normalizar(texto)).replaceAll(" ").trim();
+    }
+    
+    public static List<String> tokenizar(String texto) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+            if (esIndexable(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private static boolean esIndexable(String token) {
+        if (token.isEmpty() || STOPWORDS.contains(token)) {
+            return false;
+        }
+        // Las letras sueltas no aportan, pero los números sí ("5g", "4", "128")
+        return token.length() > 1 || Character.isDigit(token.charAt(0));
+    }
+}
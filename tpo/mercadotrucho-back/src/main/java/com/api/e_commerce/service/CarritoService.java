@@ -1,7 +1,12 @@
 package com.api.e_commerce.service;
 
+import com.api.e_commerce.cache.CarritoEnMemoria;
+import com.api.e_commerce.cache.CarritoStore;
+import com.api.e_commerce.dao.IdGeneradorDAO;
 import com.api.e_commerce.dto.carrito.CarritoDTO;
 import com.api.e_commerce.dto.carrito.CarritoItemDTO;
+import com.api.e_commerce.dto.carrito.CarritoItemView;
+import com.api.e_commerce.dto.carrito.CarritoProductoView;
 import com.api.e_commerce.exception.BadRequestException;
 import com.api.e_commerce.exception.NotFoundException;
 import com.api.e_commerce.exception.UsuarioNotFoundException;
@@ -16,38 +21,48 @@ import com.api.e_commerce.repository.CarritoItemRepository;
 import com.api.e_commerce.repository.CarritoRepository;
 import com.api.e_commerce.repository.ProductoRepository;
 import com.api.e_commerce.repository.UsuarioRepository;
+import com.api.e_commerce.stock.ReservasStock;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+// Sin @Transactional en la clase: con los carritos en memoria (CarritoStore) las operaciones no abren una
+// transacción, y el camino sobre la base abre la suya con transactionTemplate.
 @Service
 @RequiredArgsConstructor
-@Transactional
 public class CarritoService {
     
     private final CarritoRepository carritoRepository;
     private final CarritoItemRepository carritoItemRepository;
     private final ProductoRepository productoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final IdGeneradorDAO idGeneradorDAO;
+    private final CarritoStore carritoStore;
+    private final ReservasStock reservasStock;
+    private final TransactionTemplate transactionTemplate;
     
     public CarritoDTO getCarritoByUsuario(Long usuarioId) {
-        Carrito carrito = carritoRepository.findByUsuarioId(usuarioId)
-            .orElseGet(() -> createCarritoForUser(usuarioId));
-        
-        // Forzar carga de imágenes dentro de la transacción
-        carrito.getItems().forEach(item -> {
-            item.getProducto().getImagenes().size(); // Trigger lazy load
-            if (item.getProducto().getSeller() != null) {
-                item.getProducto().getSeller().getSellerNickname(); // Trigger lazy load
-            }
-        });
+        if (carritoStore.isActivo()) {
+            CarritoEnMemoria copia = carritoStore.conCarrito(usuarioId, () -> buscarOCrear(usuarioId),
+                CarritoEnMemoria::copiar);
+            return convertToCarritoDTO(copia);
+        }
         
-        return convertToCarritoDTO(carrito);
+        return transactionTemplate.execute(status -> convertToCarritoDTO(buscarOCrear(usuarioId)));
+    }
+    
+    private Carrito buscarOCrear(Long usuarioId) {
+        return carritoRepository.findByUsuarioId(usuarioId)
+            .orElseGet(() -> createCarritoForUser(usuarioId));
     }
     
     private Carrito createCarritoForUser(Long usuarioId) {
@@ -61,7 +76,8 @@ public class CarritoService {
         carrito.setCreatedAt(LocalDateTime.now());
         carrito.setUpdatedAt(LocalDateTime.now());
         
-        return carritoRepository.save(carrito);
+        // Flush inmediato: los ítems se insertan por SQL nativo y la fila del carrito tiene que existir
+        return carritoRepository.saveAndFlush(carrito);
     }
     
     public CarritoDTO addItemToCarrito(Long usuarioId, Long productoId, Integer cantidad) {
@@ -69,39 +85,60 @@ public class CarritoService {
             throw new BadRequestException("La cantidad debe ser mayor a 0");
         }
         
-        Carrito carrito = carritoRepository.findByUsuarioId(usuarioId)
-            .orElseGet(() -> createCarritoForUser(usuarioId));
-        
-        Producto producto = productoRepository.findById(productoId)
-            .orElseThrow(() -> new ProductoNotFoundException(productoId));
+        if (!reservasStock.isActivo()) {
+            return agregarItem(usuarioId, productoId, cantidad);
+        }
         
-        // Verificar stock disponible
-        if (producto.getStock() < cantidad) {
-            throw new InsufficientStockException(producto.getTitle(), producto.getStock(), cantidad);
+        // Las unidades se apartan antes de tocar el carrito y se devuelven si el alta no se concreta
+        if (!reservasStock.reservar(usuarioId, productoId, cantidad)) {
+            throw stockNoDisponible(productoId, cantidad);
+        }
+        try {
+            return agregarItem(usuarioId, productoId, cantidad);
+        } catch (RuntimeException e) {
+            reservasStock.liberar(usuarioId, productoId, cantidad);
+            throw e;
+        }
+    }
+    
+    private CarritoDTO agregarItem(Long usuarioId, Long productoId, Integer cantidad) {
+        if (carritoStore.isActivo()) {
+            Producto producto = productoRepository.findById(productoId)
+                .orElseThrow(() -> new ProductoNotFoundException(productoId));
+            CarritoEnMemoria copia = carritoStore.conCarrito(usuarioId, () -> buscarOCrear(usuarioId), carrito -> {
+                carritoStore.sumar(carrito, producto, cantidad);
+                return carrito.copiar();
+            });
+            return convertToCarritoDTO(copia);
         }
         
-        // Verificar si el item ya existe en el carrito
-        CarritoItem existingItem = carritoItemRepository.findByCarritoAndProducto(carrito, producto)
-            .orElse(null);
+        // El id se reserva antes de abrir la transacción: reservar usa una conexión propia, y pedirla con
+        // otra del pool ya tomada puede agotarlo con carga
+        long itemId = idGeneradorDAO.siguiente("carrito_item");
+        return transactionTemplate.execute(status -> agregarEnBase(usuarioId, productoId, cantidad, itemId));
+    }
+    
+    // La fila del carrito se toma aunque el upsert ya sea atómico sobre la clave única, y solo serializa las
+    // altas de un mismo usuario. Sin ella:
+    // - el control de stock del upsert lee la cantidad actual sin bloquearla en READ COMMITTED (dos altas
+    //   simultáneas pasan las dos y el ítem supera el stock) y con un lock compartido en REPEATABLE READ (las
+    //   dos altas quedan esperando para pasar a exclusivo y una termina en deadlock);
+    // - un checkout que ya leyó las líneas borraría el ítem con la suma nueva sin cobrarla.
+    private CarritoDTO agregarEnBase(Long usuarioId, Long productoId, Integer cantidad, long itemId) {
+        Carrito carrito = carritoRepository.findByUsuarioIdParaActualizar(usuarioId)
+            .orElseGet(() -> createCarritoForUser(usuarioId));
         
-        if (existingItem != null) {
-            // Verificar stock para la nueva cantidad total
-            int nuevaCantidad = existingItem.getCantidad() + cantidad;
-            if (producto.getStock() < nuevaCantidad) {
-                throw new InsufficientStockException(producto.getTitle(), producto.getStock(), nuevaCantidad);
-            }
-            existingItem.setCantidad(nuevaCantidad);
-            carritoItemRepository.save(existingItem); // ✅ Guardar cambios
-        } else {
-            CarritoItem newItem = new CarritoItem();
-            newItem.setCarrito(carrito);
-            newItem.setCarritoId(carrito.getId()); // ✅ Setear campo primitivo
-            newItem.setProducto(producto);
-            newItem.setProductoId(producto.getId()); // ✅ Setear campo primitivo
-            newItem.setCantidad(cantidad);
-            newItem.setPrecioUnitario(producto.getPrice());
-            newItem.setAddedAt(LocalDateTime.now()); // ✅ Setear timestamp
-            carritoItemRepository.save(newItem);
+        // Alta o suma con control de stock en una sola sentencia: dos clicks simultáneos no duplican
+        // el ítem ni pierden una suma (el id reservado se descarta si la fila ya existía)
+        int filas = carritoItemRepository.agregarOSumar(itemId, carrito.getId(), productoId, cantidad);
+        if (filas == 0) {
+            // Rechazado: solo en este caso se lee el producto, para informar el motivo
+            Producto producto = productoRepository.findById(productoId)
+                .orElseThrow(() -> new ProductoNotFoundException(productoId));
+            int enCarrito = carritoItemRepository.findByCarritoIdAndProductoId(carrito.getId(), productoId)
+                .map(CarritoItem::getCantidad)
+                .orElse(0);
+            throw new InsufficientStockException(producto.getTitle(), producto.getStock(), enCarrito + cantidad);
         }
         
         carrito.setUpdatedAt(LocalDateTime.now());
@@ -115,6 +152,33 @@ public class CarritoService {
             throw new BadRequestException("La cantidad debe ser mayor a 0");
         }
         
+        if (carritoStore.isActivo()) {
+            // En memoria solo se buscan los ítems del carrito del usuario: uno ajeno es "no encontrado"
+            CarritoEnMemoria copia = carritoStore.conCarrito(usuarioId, () -> carritoRepository.findByUsuarioId(usuarioId)
+                .orElseThrow(() -> new NotFoundException("Item no encontrado")), carrito -> {
+                CarritoEnMemoria.Item actual = carrito.buscarItem(itemId);
+                if (actual == null) {
+                    throw new NotFoundException("Item no encontrado");
+                }
+                Long productoId = actual.getProductoId();
+                int anterior = actual.getCantidad();
+                subirReserva(usuarioId, productoId, anterior, cantidad);
+                try {
+                    carritoStore.cambiarCantidad(carrito, itemId, cantidad);
+                } catch (RuntimeException e) {
+                    deshacerReserva(usuarioId, productoId, anterior, cantidad);
+                    throw e;
+                }
+                confirmarReserva(usuarioId, productoId, anterior, cantidad);
+                return carrito.copiar();
+            });
+            return convertToCarritoDTO(copia);
+        }
+        
+        return transactionTemplate.execute(status -> cambiarCantidadEnBase(usuarioId, itemId, cantidad));
+    }
+    
+    private CarritoDTO cambiarCantidadEnBase(Long usuarioId, Long itemId, Integer cantidad) {
         CarritoItem item = carritoItemRepository.findById(itemId)
             .orElseThrow(() -> new NotFoundException("Item no encontrado"));
         
@@ -122,6 +186,12 @@ public class CarritoService {
             throw new BadRequestException("No tienes permiso para modificar este item");
         }
         
+        Long productoId = item.getProductoId();
+        int anterior = item.getCantidad();
+        subirReserva(usuarioId, productoId, anterior, cantidad);
+        alTerminar(() -> confirmarReserva(usuarioId, productoId, anterior, cantidad),
+            () -> deshacerReserva(usuarioId, productoId, anterior, cantidad));
+        
         item.setCantidad(cantidad);
         carritoItemRepository.save(item);
         
@@ -132,6 +202,22 @@ public class CarritoService {
     }
     
     public CarritoDTO removeItemFromCarrito(Long usuarioId, Long itemId) {
+        if (carritoStore.isActivo()) {
+            CarritoEnMemoria copia = carritoStore.conCarrito(usuarioId, () -> carritoRepository.findByUsuarioId(usuarioId)
+                .orElseThrow(() -> new NotFoundException("Item no encontrado")), carrito -> {
+                CarritoEnMemoria.Item actual = carrito.buscarItem(itemId);
+                carritoStore.quitar(carrito, itemId);
+                // Ya está en el log: recién ahora se devuelven las unidades
+                reservasStock.liberar(usuarioId, actual.getProductoId());
+                return carrito.copiar();
+            });
+            return convertToCarritoDTO(copia);
+        }
+        
+        return transactionTemplate.execute(status -> quitarEnBase(usuarioId, itemId));
+    }
+    
+    private CarritoDTO quitarEnBase(Long usuarioId, Long itemId) {
         CarritoItem item = carritoItemRepository.findById(itemId)
             .orElseThrow(() -> new NotFoundException("Item no encontrado"));
         
@@ -139,6 +225,9 @@ public class CarritoService {
             throw new BadRequestException("No tienes permiso para eliminar este item");
         }
         
+        Long productoId = item.getProductoId();
+        alTerminar(() -> reservasStock.liberar(usuarioId, productoId), () -> { });
+        
         carritoItemRepository.delete(item);
         carritoItemRepository.flush(); // Forzar la ejecución inmediata del DELETE
         
@@ -152,7 +241,21 @@ public class CarritoService {
         return convertToCarritoDTO(carrito);
     }
     
+    // Las reservas se liberan cuando el vaciado ya quedó en el log o confirmado en la base
     public void clearCarrito(Long usuarioId) {
+        if (carritoStore.isActivo()) {
+            carritoStore.conCarrito(usuarioId, () -> carritoRepository.findByUsuarioId(usuarioId)
+                .orElseThrow(() -> new CarritoNotFoundException(usuarioId)), carrito -> {
+                carritoStore.vaciar(carrito);
+                return null;
+            });
+        } else {
+            transactionTemplate.executeWithoutResult(status -> vaciarEnBase(usuarioId));
+        }
+        reservasStock.liberarTodo(usuarioId);
+    }
+    
+    private void vaciarEnBase(Long usuarioId) {
         Carrito carrito = carritoRepository.findByUsuarioId(usuarioId)
             .orElseThrow(() -> new CarritoNotFoundException(usuarioId));
         
@@ -161,14 +264,59 @@ public class CarritoService {
         carritoRepository.save(carrito);
     }
     
+    // Cambio de cantidad con reservas activas. Subirla necesita unidades libres, así que se aparta antes del
+    // cambio y se deshace si no se confirma; bajarla devuelve las sobrantes recién con el cambio confirmado
+    // (commit en la base o escrito en el log del carrito en memoria).
+    private void subirReserva(Long usuarioId, Long productoId, int anterior, int cantidad) {
+        if (reservasStock.isActivo() && cantidad > anterior && !reservasStock.fijar(usuarioId, productoId, cantidad)) {
+            throw stockNoDisponible(productoId, cantidad);
+        }
+    }
+    
+    private void confirmarReserva(Long usuarioId, Long productoId, int anterior, int cantidad) {
+        if (reservasStock.isActivo() && cantidad < anterior) {
+            reservasStock.fijar(usuarioId, productoId, cantidad);
+        }
+    }
+    
+    private void deshacerReserva(Long usuarioId, Long productoId, int anterior, int cantidad) {
+        if (reservasStock.isActivo() && cantidad > anterior) {
+            reservasStock.fijar(usuarioId, productoId, anterior);
+        }
+    }
+    
+    // Para el camino sobre la base: la reserva se ajusta según cómo termine la transacción actual
+    private void alTerminar(Runnable siConfirma, Runnable siFalla) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    siConfirma.run();
+                } else {
+                    siFalla.run();
+                }
+            }
+        });
+    }
+    
+    // Lo disponible que se informa es lo que no está reservado por otros carritos
+    private InsufficientStockException stockNoDisponible(Long productoId, int cantidad) {
+        Producto producto = productoRepository.findById(productoId)
+            .orElseThrow(() -> new ProductoNotFoundException(productoId));
+        return new InsufficientStockException(producto.getTitle(), Math.max(0, reservasStock.disponible(productoId)),
+            cantidad);
+    }
+    
+    // Todos los métodos que devuelven el carrito pasan por acá: los ítems salen de una sola consulta
+    // (findVistaByCarritoId), que además ve los cambios de la transacción actual por el flush automático
     public CarritoDTO convertToCarritoDTO(Carrito carrito) {
         CarritoDTO dto = new CarritoDTO();
         dto.setId(carrito.getId());
-        dto.setUsuarioId(carrito.getUsuario().getId());
+        dto.setUsuarioId(carrito.getUsuarioId());
         dto.setCreatedAt(carrito.getCreatedAt());
         dto.setUpdatedAt(carrito.getUpdatedAt());
         
-        List<CarritoItemDTO> itemsDTO = carrito.getItems().stream()
+        List<CarritoItemDTO> itemsDTO = carritoItemRepository.findVistaByCarritoId(carrito.getId()).stream()
             .map(this::convertToCarritoItemDTO)
             .collect(Collectors.toList());
         dto.setItems(itemsDTO);
@@ -183,29 +331,72 @@ public class CarritoService {
         return dto;
     }
     
-    private CarritoItemDTO convertToCarritoItemDTO(CarritoItem item) {
+    // Carrito en memoria (copia): los datos del producto se traen juntos para todos los ítems.
+    // Los de productos que ya no existen no se muestran, igual que en la consulta de la base.
+    public CarritoDTO convertToCarritoDTO(CarritoEnMemoria carrito) {
+        CarritoDTO dto = new CarritoDTO();
+        dto.setId(carrito.getId());
+        dto.setUsuarioId(carrito.getUsuarioId());
+        dto.setCreatedAt(carrito.getCreatedAt());
+        dto.setUpdatedAt(carrito.getUpdatedAt());
+        
+        List<CarritoEnMemoria.Item> items = carrito.getItems();
+        Map<Long, CarritoProductoView> productos = items.isEmpty() ? Map.of() :
+            carritoItemRepository.findProductoVistaByIdIn(items.stream()
+                    .map(CarritoEnMemoria.Item::getProductoId)
+                    .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(CarritoProductoView::getProductoId, Function.identity()));
+        
+        List<CarritoItemDTO> itemsDTO = items.stream()
+            .filter(item -> productos.containsKey(item.getProductoId()))
+            .map(item -> convertToCarritoItemDTO(item, productos.get(item.getProductoId())))
+            .collect(Collectors.toList());
+        dto.setItems(itemsDTO);
+        
+        dto.setTotalItems(itemsDTO.stream().mapToInt(CarritoItemDTO::getQuantity).sum());
+        dto.setTotalPrice(itemsDTO.stream().mapToInt(item -> item.getUnitPrice() * item.getQuantity()).sum());
+        
+        return dto;
+    }
+    
+    private CarritoItemDTO convertToCarritoItemDTO(CarritoEnMemoria.Item item, CarritoProductoView producto) {
         CarritoItemDTO dto = new CarritoItemDTO();
         dto.setId(item.getId());
-        dto.setProductoId(item.getProducto().getId());
-        dto.setTitle(item.getProducto().getTitle());
+        dto.setProductoId(item.getProductoId());
+        dto.setTitle(producto.getTitle());
+        dto.setImageUrl(producto.getImageUrl());
+        
+        dto.setQuantity(item.getCantidad());
+        dto.setUnitPrice(item.getPrecioUnitario().intValue());
+        
+        dto.setStock(producto.getStock());
+        dto.setFreeShipping(producto.getFreeShipping());
+        
+        if (producto.getSellerId() != null) {
+            dto.setSellerNickname(producto.getSellerNickname());
+            dto.setSellerReputation("standard");
+        }
         
-        // Obtener primera imagen si existe
-        String imageUrl = item.getProducto().getImagenes().stream()
-            .findFirst()
-            .map(img -> img.getImageUrl())
-            .orElse(null);
-        dto.setImageUrl(imageUrl);
+        return dto;
+    }
+    
+    private CarritoItemDTO convertToCarritoItemDTO(CarritoItemView item) {
+        CarritoItemDTO dto = new CarritoItemDTO();
+        dto.setId(item.getId());
+        dto.setProductoId(item.getProductoId());
+        dto.setTitle(item.getTitle());
+        dto.setImageUrl(item.getImageUrl());
         
         dto.setQuantity(item.getCantidad());
         dto.setUnitPrice(item.getPrecioUnitario().intValue());
         
         // Agregar campos adicionales del producto
-        dto.setStock(item.getProducto().getStock());
-        dto.setFreeShipping(item.getProducto().getFreeShipping());
+        dto.setStock(item.getStock());
+        dto.setFreeShipping(item.getFreeShipping());
         
         // Agregar información del vendedor
-        if (item.getProducto().getSeller() != null) {
-            dto.setSellerNickname(item.getProducto().getSeller().getSellerNickname());
+        if (item.getSellerId() != null) {
+            dto.setSellerNickname(item.getSellerNickname());
             // Por ahora usar valor por defecto para reputation
             dto.setSellerReputation("standard");
         }
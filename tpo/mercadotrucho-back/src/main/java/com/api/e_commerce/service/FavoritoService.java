@@ -1,6 +1,8 @@
 package com.api.e_commerce.service;
 
+import com.api.e_commerce.cache.FavoritosCache;
 import com.api.e_commerce.dto.producto.ProductoDTO;
+import com.api.e_commerce.event.FavoritoChangedEvent;
 import com.api.e_commerce.exception.BadRequestException;
 import com.api.e_commerce.exception.NotFoundException;
 import com.api.e_commerce.exception.UsuarioNotFoundException;
@@ -12,6 +14,7 @@ import com.api.e_commerce.repository.FavoritoRepository;
 import com.api.e_commerce.repository.ProductoRepository;
 import com.api.e_commerce.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -26,10 +29,13 @@ public class FavoritoService {
     private final ProductoRepository productoRepository;
     private final UsuarioRepository usuarioRepository;
     private final ProductoService productoService;
+    private final FavoritosCache favoritosCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Page<ProductoDTO> getFavoritosByUsuarioId(Long usuarioId, Pageable pageable) {
         Page<Favorito> favoritos = favoritoRepository.findByUsuarioIdOrderByCreatedAtDesc(usuarioId, pageable);
-        return favoritos.map(favorito -> productoService.convertToProductoDTO(favorito.getProducto()));
+        Page<Producto> productos = favoritos.map(Favorito::getProducto);
+        return productoService.convertToProductoDTOPage(productos, null);
     }
     
     public void addFavorito(Long usuarioId, Long productoId) {
@@ -46,9 +52,12 @@ public class FavoritoService {
         
         Favorito favorito = new Favorito();
         favorito.setUsuario(usuario);
+        favorito.setUsuarioId(usuario.getId()); // Las relaciones no son insertables: setear los campos primitivos
         favorito.setProducto(producto);
+        favorito.setProductoId(producto.getId());
         
         favoritoRepository.save(favorito);
+        eventPublisher.publishEvent(new FavoritoChangedEvent(usuarioId, productoId, true));
     }
     
     public void removeFromFavoritos(Long usuarioId, Long productoId) {
@@ -62,10 +71,11 @@ public class FavoritoService {
             .orElseThrow(() -> new NotFoundException("El producto no está en favoritos"));
         
         favoritoRepository.delete(favorito);
+        eventPublisher.publishEvent(new FavoritoChangedEvent(usuarioId, productoId, false));
     }
     
     public boolean isProductoInFavoritos(Long usuarioId, Long productoId) {
-        return favoritoRepository.existsByUsuarioIdAndProductoId(usuarioId, productoId);
+        return favoritosCache.esFavorito(usuarioId, productoId);
     }
     
     public Long countFavoritosByUsuarioId(Long usuarioId) {
@@ -0,0 +1,221 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.cache.CarritoEnMemoria;
+import com.api.e_commerce.cache.CarritoStore;
+import com.api.e_commerce.dao.StockDAO;
+import com.api.e_commerce.dto.carrito.CarritoItemView;
+import com.api.e_commerce.dto.carrito.CarritoProductoView;
+import com.api.e_commerce.dto.pedido.PedidoDTO;
+import com.api.e_commerce.dto.pedido.PedidoItemDTO;
+import com.api.e_commerce.event.StockDescontadoEvent;
+import com.api.e_commerce.exception.BadRequestException;
+import com.api.e_commerce.exception.CarritoModificadoException;
+import com.api.e_commerce.exception.CarritoNotFoundException;
+import com.api.e_commerce.exception.InsufficientStockException;
+import com.api.e_commerce.model.Carrito;
+import com.api.e_commerce.model.Pedido;
+import com.api.e_commerce.model.PedidoItem;
+import com.api.e_commerce.repository.CarritoItemRepository;
+import com.api.e_commerce.repository.CarritoRepository;
+import com.api.e_commerce.repository.PedidoItemRepository;
+import com.api.e_commerce.repository.PedidoRepository;
+import com.api.e_commerce.repository.UsuarioRepository;
+import com.api.e_commerce.stock.ReservasStock;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Checkout: convierte el carrito del usuario en un Pedido con sus líneas. En una sola transacción se
+// descuenta el stock de todas las líneas (StockDAO, un batch de UPDATE condicionales, sin SELECT ... FOR
+// UPDATE), se crea el pedido y se vacía el carrito; si alguna línea no tiene stock no queda nada hecho.
+@Service
+public class PedidoService {
+
+    private final PedidoRepository pedidoRepository;
+    private final PedidoItemRepository pedidoItemRepository;
+    private final CarritoRepository carritoRepository;
+    private final CarritoItemRepository carritoItemRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final StockDAO stockDAO;
+    private final CarritoStore carritoStore;
+    private final ReservasStock reservasStock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaccion;
+
+    // Lo que se necesita de cada ítem del carrito para armar la línea del pedido
+    @Data
+    @AllArgsConstructor
+    private static class Linea {
+        private Long productoId;
+        private String title;
+        private int cantidad;
+        private BigDecimal precioUnitario;
+        private Integer stock;
+    }
+
+    public PedidoService(PedidoRepository pedidoRepository, PedidoItemRepository pedidoItemRepository,
+                         CarritoRepository carritoRepository, CarritoItemRepository carritoItemRepository,
+                         UsuarioRepository usuarioRepository, StockDAO stockDAO, CarritoStore carritoStore,
+                         ReservasStock reservasStock, ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager) {
+        this.pedidoRepository = pedidoRepository;
+        this.pedidoItemRepository = pedidoItemRepository;
+        this.carritoRepository = carritoRepository;
+        this.carritoItemRepository = carritoItemRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.stockDAO = stockDAO;
+        this.carritoStore = carritoStore;
+        this.reservasStock = reservasStock;
+        this.eventPublisher = eventPublisher;
+        // Transacción explícita: con el carrito en memoria, se vacía recién después del commit
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    public PedidoDTO checkout(Long usuarioId) {
+        PedidoDTO pedido = carritoStore.isActivo() ? checkoutEnMemoria(usuarioId) : checkoutEnBase(usuarioId);
+        // Las unidades ya salieron del stock: la reserva del carrito no tiene que seguir apartándolas
+        reservasStock.liberarTodo(usuarioId);
+        return pedido;
+    }
+
+    // La fila del carrito queda bloqueada hasta el commit: un segundo checkout del mismo carrito espera y
+    // después lo encuentra vacío, en lugar de comprar los mismos ítems otra vez
+    private PedidoDTO checkoutEnBase(Long usuarioId) {
+        return transaccion.execute(status -> {
+            Carrito carrito = carritoRepository.findByUsuarioIdParaActualizar(usuarioId)
+                .orElseThrow(() -> new CarritoNotFoundException(usuarioId));
+            List<CarritoItemView> items = carritoItemRepository.findVistaByCarritoId(carrito.getId());
+            PedidoDTO pedido = crearPedido(usuarioId, items.stream()
+                .map(item -> new Linea(item.getProductoId(), item.getTitle(), item.getCantidad(),
+                    item.getPrecioUnitario(), item.getStock()))
+                .collect(Collectors.toList()));
+
+            // Solo los ítems comprados: uno agregado mientras tanto por otro request queda en el carrito. Si
+            // alguno ya no está (lo quitó otro request), el pedido no coincide con el carrito: rollback
+            int borrados = carritoItemRepository.deleteByIdIn(items.stream()
+                .map(CarritoItemView::getId).collect(Collectors.toList()));
+            if (borrados != items.size()) {
+                throw new CarritoModificadoException(usuarioId);
+            }
+            carrito.setUpdatedAt(LocalDateTime.now());
+            return pedido;
+        });
+    }
+
+    // El carrito queda tomado durante todo el checkout, así que nada se le agrega entre la lectura de las
+    // líneas y el vaciado. En la base se borran sus ítems ya volcados. La marca del checkout va al log
+    // antes del commit (una caída después del commit no devuelve los ítems comprados al reaplicar el log)
+    // y el vaciado en memoria después, para que un pedido que falla no se lleve el carrito.
+    private PedidoDTO checkoutEnMemoria(Long usuarioId) {
+        return carritoStore.conCarrito(usuarioId, () -> carritoExistente(usuarioId), carrito -> {
+            List<CarritoEnMemoria.Item> items = carrito.getItems();
+            PedidoDTO pedido = transaccion.execute(status -> {
+                Map<Long, CarritoProductoView> productos = items.isEmpty() ? Map.of() :
+                    carritoItemRepository.findProductoVistaByIdIn(items.stream()
+                            .map(CarritoEnMemoria.Item::getProductoId)
+                            .collect(Collectors.toList())).stream()
+                        .collect(Collectors.toMap(CarritoProductoView::getProductoId, Function.identity()));
+                // Los ítems de productos que ya no existen no se compran (tampoco se muestran en el carrito)
+                PedidoDTO creado = crearPedido(usuarioId, items.stream()
+                    .filter(item -> productos.containsKey(item.getProductoId()))
+                    .map(item -> new Linea(item.getProductoId(), productos.get(item.getProductoId()).getTitle(),
+                        item.getCantidad(), item.getPrecioUnitario(), productos.get(item.getProductoId()).getStock()))
+                    .collect(Collectors.toList()));
+                carritoItemRepository.deleteByCarritoId(carrito.getId());
+                carritoStore.marcarCheckout(carrito, creado.getId());
+                return creado;
+            });
+            carritoStore.aplicarCheckout(carrito);
+            return pedido;
+        });
+    }
+
+    private Carrito carritoExistente(Long usuarioId) {
+        return carritoRepository.findByUsuarioId(usuarioId)
+            .orElseThrow(() -> new CarritoNotFoundException(usuarioId));
+    }
+
+    private PedidoDTO crearPedido(Long usuarioId, List<Linea> lineas) {
+        if (lineas.isEmpty()) {
+            throw new BadRequestException("El carrito está vacío");
+        }
+
+        // Una línea por producto (sumando las cantidades, si el carrito tuviera dos ítems del mismo), en
+        // orden de id: filas[i] corresponde a lineas.get(i)
+        TreeMap<Long, Linea> porProducto = new TreeMap<>();
+        for (Linea linea : lineas) {
+            porProducto.merge(linea.getProductoId(), linea, (anterior, otra) -> new Linea(anterior.getProductoId(),
+                anterior.getTitle(), anterior.getCantidad() + otra.getCantidad(), anterior.getPrecioUnitario(),
+                anterior.getStock()));
+        }
+        lineas = new ArrayList<>(porProducto.values());
+        TreeMap<Long, Integer> cantidades = new TreeMap<>();
+        lineas.forEach(linea -> cantidades.put(linea.getProductoId(), linea.getCantidad()));
+        int[] filas = stockDAO.descontar(cantidades);
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] != 1) {
+                // La excepción hace rollback de los descuentos que sí se aplicaron
+                Linea linea = lineas.get(i);
+                throw new InsufficientStockException(linea.getTitle(),
+                    linea.getStock() != null ? linea.getStock() : 0, linea.getCantidad());
+            }
+        }
+
+        Pedido pedido = new Pedido();
+        pedido.setFecha(LocalDateTime.now());
+        pedido.setEstado(Pedido.ESTADO_CREADO);
+        pedido.setUsuario(usuarioRepository.getReferenceById(usuarioId));
+        pedido.setTotal(lineas.stream()
+            .map(linea -> linea.getPrecioUnitario().multiply(BigDecimal.valueOf(linea.getCantidad())))
+            .reduce(BigDecimal.ZERO, BigDecimal::add));
+        pedidoRepository.save(pedido);
+
+        List<PedidoItem> items = new ArrayList<>(lineas.size());
+        for (Linea linea : lineas) {
+            PedidoItem item = new PedidoItem();
+            item.setPedidoId(pedido.getId());
+            item.setProductoId(linea.getProductoId());
+            item.setTitle(linea.getTitle());
+            item.setCantidad(linea.getCantidad());
+            item.setPrecioUnitario(linea.getPrecioUnitario());
+            items.add(item);
+        }
+        // Un solo batch de inserts (ids por bloques)
+        pedidoItemRepository.saveAll(items);
+
+        eventPublisher.publishEvent(new StockDescontadoEvent(new ArrayList<>(cantidades.keySet())));
+        return convertToPedidoDTO(pedido, usuarioId, items);
+    }
+
+    private PedidoDTO convertToPedidoDTO(Pedido pedido, Long usuarioId, List<PedidoItem> items) {
+        PedidoDTO dto = new PedidoDTO();
+        dto.setId(pedido.getId());
+        dto.setUsuarioId(usuarioId);
+        dto.setFecha(pedido.getFecha());
+        dto.setEstado(pedido.getEstado());
+        dto.setTotal(pedido.getTotal());
+        dto.setItems(items.stream().map(item -> {
+            PedidoItemDTO itemDTO = new PedidoItemDTO();
+            itemDTO.setId(item.getId());
+            itemDTO.setProductoId(item.getProductoId());
+            itemDTO.setTitle(item.getTitle());
+            itemDTO.setQuantity(item.getCantidad());
+            itemDTO.setUnitPrice(item.getPrecioUnitario());
+            itemDTO.setSubtotal(item.getSubtotal());
+            return itemDTO;
+        }).collect(Collectors.toList()));
+        return dto;
+    }
+}
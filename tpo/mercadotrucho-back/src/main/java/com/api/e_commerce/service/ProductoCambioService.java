@@ -0,0 +1,131 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.dao.ProductoCambioDAO;
+import com.api.e_commerce.dto.CursorSliceDTO;
+import com.api.e_commerce.dto.producto.ProductoCambioDTO;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.event.StockDescontadoEvent;
+import com.api.e_commerce.exception.BadRequestException;
+import com.api.e_commerce.model.ProductoCambio;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Feed de cambios del catálogo para sincronización incremental: registra cada cambio (los mismos eventos
+// que escuchan los índices) y los sirve por orden de confirmación, compactados por producto. El registro va
+// en BEFORE_COMMIT, dentro de la transacción que hizo el cambio: o se confirman los dos o ninguno, y un
+// cambio no puede perderse por una caída o un error entre el commit del producto y el alta en el feed.
+// Cada orden-ms una tarea numera lo confirmado (ver ProductoCambioDAO.ordenar); hasta entonces no se sirve.
+@Slf4j
+@Service
+public class ProductoCambioService {
+
+    public static final int MAX_LIMITE = 5000;
+    private static final int LOTE_ORDEN = 1000;
+
+    private final ProductoCambioDAO productoCambioDAO;
+    private final long ordenMs;
+    private ScheduledExecutorService numerador;
+
+    public ProductoCambioService(ProductoCambioDAO productoCambioDAO,
+                                 @Value("${productos.cambios.orden-ms:200}") long ordenMs) {
+        this.productoCambioDAO = productoCambioDAO;
+        this.ordenMs = ordenMs;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        numerador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "producto-cambio-orden");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        numerador.scheduleWithFixedDelay(this::ordenar, ordenMs, ordenMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (numerador != null) {
+            numerador.shutdownNow();
+        }
+    }
+
+    void ordenar() {
+        try {
+            while (productoCambioDAO.ordenar(LOTE_ORDEN) == LOTE_ORDEN) {
+                // Quedan más pendientes: se sigue sin esperar al próximo turno
+            }
+        } catch (RuntimeException e) {
+            // Lo pendiente se numera en el próximo turno; la tarea programada no tiene que morir
+            log.warn("No se pudieron numerar los cambios del catálogo", e);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        productoCambioDAO.registrar(List.of(event.getProductoId()), tipo(event.getType()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        productoCambioDAO.registrar(event.getProductoIds(), ProductoCambio.Tipo.CREADO);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onStockDescontado(StockDescontadoEvent event) {
+        productoCambioDAO.registrar(event.getProductoIds(), ProductoCambio.Tipo.MODIFICADO);
+    }
+
+    // Hasta "limite" cambios posteriores a since. Si un producto cambió varias veces en el tramo se
+    // devuelve una sola vez (con su estado actual y su último orden). next es el since de la próxima llamada.
+    public CursorSliceDTO<ProductoCambioDTO> getCambios(long since, int limite) {
+        if (since < 0 || limite < 1 || limite > MAX_LIMITE) {
+            throw new BadRequestException("since debe ser >= 0 y limit entre 1 y " + MAX_LIMITE);
+        }
+        List<ProductoCambioDTO> cambios = productoCambioDAO.leer(since, limite + 1);
+        boolean hasNext = cambios.size() > limite;
+        if (hasNext) {
+            cambios = cambios.subList(0, limite);
+        }
+        long next = cambios.isEmpty() ? since : cambios.get(cambios.size() - 1).getSeq();
+
+        Map<Long, ProductoCambioDTO> ultimoPorProducto = new LinkedHashMap<>();
+        for (ProductoCambioDTO cambio : cambios) {
+            ultimoPorProducto.put(cambio.getId(), cambio);
+        }
+        List<ProductoCambioDTO> compactados = new ArrayList<>(ultimoPorProducto.values());
+        compactados.sort(Comparator.comparing(ProductoCambioDTO::getSeq));
+
+        return new CursorSliceDTO<>(compactados, compactados.size(), hasNext, String.valueOf(next));
+    }
+
+    // Orden del último cambio numerado: punto de partida del feed para quien recién hizo una exportación completa
+    public long getUltimoSeq() {
+        return productoCambioDAO.ultimoSeq();
+    }
+
+    private static ProductoCambio.Tipo tipo(ProductoChangedEvent.Type type) {
+        switch (type) {
+            case CREATED:
+                return ProductoCambio.Tipo.CREADO;
+            case DELETED:
+                return ProductoCambio.Tipo.ELIMINADO;
+            default:
+                return ProductoCambio.Tipo.MODIFICADO;
+        }
+    }
+}
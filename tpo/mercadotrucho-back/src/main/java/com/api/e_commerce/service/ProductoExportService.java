@@ -0,0 +1,50 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.dao.ProductoDAO;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+// Exportación del catálogo en NDJSON (un ProductoDTO por línea). Las filas se leen del cursor de
+// ProductoDAO.exportar y se escriben directo a la salida, así que la memoria no depende del tamaño del catálogo.
+@Service
+public class ProductoExportService {
+
+    private final ProductoDAO productoDAO;
+    private final ObjectWriter writer;
+
+    public ProductoExportService(ProductoDAO productoDAO, ObjectMapper objectMapper) {
+        this.productoDAO = productoDAO;
+        // Sin flush por producto: el generador vacía su buffer cuando se llena
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    public void exportar(OutputStream salida, boolean gzip, String categoria, Long vendedorId,
+                         LocalDateTime desde) throws IOException {
+        OutputStream destino = gzip ? new GZIPOutputStream(salida, 8192) : salida;
+        try (JsonGenerator generator = writer.getFactory().createGenerator(destino, JsonEncoding.UTF8)) {
+            try {
+                productoDAO.exportar(categoria, vendedorId, desde, producto -> {
+                    try {
+                        writer.writeValue(generator, producto);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        // Típicamente el cliente cortó la descarga: se corta también la lectura del cursor
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.dao.IdGeneradorDAO;
+import com.api.e_commerce.dto.producto.ImportacionResultadoDTO;
+import com.api.e_commerce.dto.producto.InstallmentsDTO;
+import com.api.e_commerce.dto.producto.ProductoDTO;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.exception.BadRequestException;
+import com.api.e_commerce.model.Categoria;
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.repository.CategoriaRepository;
+import com.api.e_commerce.repository.UsuarioRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Importación masiva de productos desde CSV o NDJSON. A diferencia de createProducto (que consulta
+// vendedor y categoría y hace un insert por producto y por imagen), lee la entrada en streaming,
+// resuelve categorías y vendedores una sola vez, inserta con JDBC batch y confirma por lotes.
+// Las filas inválidas no cortan la importación: se informan con su número de línea.
+@Service
+public class ProductoImportService {
+
+    public enum Formato {
+        CSV, NDJSON
+    }
+
+    private static final int MAX_ERRORES_REPORTADOS = 1000;
+    private static final int MAX_TITULO = 255;
+    private static final int MAX_UBICACION = 200;
+    private static final int MAX_URL_IMAGEN = 500;
+    private static final String SEPARADOR_IMAGENES = "\\|";
+
+    private static final String INSERT_PRODUCTO =
+        "INSERT INTO producto (id, title, price, currency, condition_type, free_shipping, category_id, seller_id, " +
+        "location, description, stock, installments_quantity, installments_amount, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IMAGEN =
+        "INSERT INTO producto_imagen (id, producto_id, image_url, orden) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdGeneradorDAO idGeneradorDAO;
+    private final TransactionTemplate transactionTemplate;
+    private final CategoriaRepository categoriaRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int tamanioLote;
+
+    public ProductoImportService(JdbcTemplate jdbcTemplate,
+                                 IdGeneradorDAO idGeneradorDAO,
+                                 PlatformTransactionManager transactionManager,
+                                 CategoriaRepository categoriaRepository,
+                                 UsuarioRepository usuarioRepository,
+                                 ObjectMapper objectMapper,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${productos.import.chunk-size:500}") int tamanioLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idGeneradorDAO = idGeneradorDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.categoriaRepository = categoriaRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.tamanioLote = tamanioLote;
+    }
+
+    // Fila ya validada y lista para insertar
+    private record Fila(int linea, String title, BigDecimal price, String currency, Producto.ConditionType condition,
+                        boolean freeShipping, Long categoriaId, Long sellerId, String location, String description,
+                        int stock, Integer installmentsQuantity, BigDecimal installmentsAmount, List<String> imagenes) {
+    }
+
+    // Estado de una importación: lo que ya se resolvió contra la base y el resultado acumulado
+    private static class Importacion {
+        final Map<String, Long> categoriaPorNombre;
+        final Set<Long> vendedoresExistentes = new HashSet<>();
+        final Set<Long> vendedoresInexistentes = new HashSet<>();
+        final List<Fila> pendientes = new ArrayList<>();
+        final ImportacionResultadoDTO resultado = new ImportacionResultadoDTO();
+
+        Importacion(Map<String, Long> categoriaPorNombre) {
+            this.categoriaPorNombre = categoriaPorNombre;
+        }
+
+        void rechazar(int linea, String mensaje) {
+            resultado.setRechazadas(resultado.getRechazadas() + 1);
+            if (resultado.getErrores().size() < MAX_ERRORES_REPORTADOS) {
+                resultado.getErrores().add(new ImportacionResultadoDTO.ErrorFila(linea, mensaje));
+            }
+        }
+    }
+
+    public ImportacionResultadoDTO importar(InputStream entrada, Formato formato) throws IOException {
+        Importacion importacion = new Importacion(categoriaRepository.findAll().stream()
+            .collect(Collectors.toMap(Categoria::getName, Categoria::getId, (a, b) -> a)));
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        int numeroLinea = 0;
+        Map<String, Integer> columnas = null;
+
+        String linea;
+        while ((linea = reader.readLine()) != null) {
+            numeroLinea++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            if (formato == Formato.CSV && columnas == null) {
+                columnas = leerEncabezado(linea);
+                continue;
+            }
+
+            importacion.resultado.setProcesadas(importacion.resultado.getProcesadas() + 1);
+            try {
+                ProductoDTO dto = formato == Formato.CSV ? desdeCsv(linea, columnas) : desdeJson(linea);
+                importacion.pendientes.add(validar(dto, numeroLinea, importacion.categoriaPorNombre));
+            } catch (IllegalArgumentException e) {
+                importacion.rechazar(numeroLinea, e.getMessage());
+            }
+
+            if (importacion.pendientes.size() >= tamanioLote) {
+                confirmarLote(importacion);
+            }
+        }
+        confirmarLote(importacion);
+
+        return importacion.resultado;
+    }
+
+    // Valida los vendedores del lote con una sola consulta y confirma las filas válidas en una transacción
+    private void confirmarLote(Importacion importacion) {
+        if (importacion.pendientes.isEmpty()) {
+            return;
+        }
+        resolverVendedores(importacion);
+
+        List<Fila> filas = new ArrayList<>(importacion.pendientes.size());
+        for (Fila fila : importacion.pendientes) {
+            if (importacion.vendedoresInexistentes.contains(fila.sellerId())) {
+                importacion.rechazar(fila.linea(), "Usuario con ID " + fila.sellerId() + " no encontrado");
+            } else {
+                filas.add(fila);
+            }
+        }
+        importacion.pendientes.clear();
+        if (filas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> ids = insertarProductos(filas);
+                insertarImagenes(filas, ids);
+                eventPublisher.publishEvent(new ProductosImportadosEvent(ids));
+            });
+            importacion.resultado.setImportadas(importacion.resultado.getImportadas() + filas.size());
+        } catch (DataAccessException e) {
+            // El lote se revierte completo; se informa cada fila para que puedan reenviarse
+            String causa = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            for (Fila fila : filas) {
+                importacion.rechazar(fila.linea(), "Lote rechazado por la base de datos: " + causa);
+            }
+        }
+    }
+
+    private void resolverVendedores(Importacion importacion) {
+        Set<Long> desconocidos = importacion.pendientes.stream()
+            .map(Fila::sellerId)
+            .filter(id -> !importacion.vendedoresExistentes.contains(id) && !importacion.vendedoresInexistentes.contains(id))
+            .collect(Collectors.toSet());
+        if (desconocidos.isEmpty()) {
+            return;
+        }
+
+        List<Long> existentes = usuarioRepository.findIdsByIdIn(desconocidos);
+        importacion.vendedoresExistentes.addAll(existentes);
+        desconocidos.removeAll(existentes);
+        importacion.vendedoresInexistentes.addAll(desconocidos);
+    }
+
+    // Los ids se reservan por bloque en id_generador, la misma fila de la que toma Hibernate,
+    // para que los inserts JDBC no choquen con los productos creados por la API
+    private List<Long> insertarProductos(List<Fila> filas) {
+        long primerId = idGeneradorDAO.reservar("producto", filas.size());
+        List<Long> ids = LongStream.range(primerId, primerId + filas.size()).boxed().collect(Collectors.toList());
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_PRODUCTO, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Fila fila = filas.get(i);
+                ps.setLong(1, ids.get(i));
+                ps.setString(2, fila.title());
+                ps.setBigDecimal(3, fila.price());
+                ps.setString(4, fila.currency());
+                ps.setString(5, fila.condition().name());
+                ps.setBoolean(6, fila.freeShipping());
+                ps.setObject(7, fila.categoriaId(), Types.BIGINT);
+                ps.setLong(8, fila.sellerId());
+                ps.setString(9, fila.location());
+                ps.setString(10, fila.description());
+                ps.setInt(11, fila.stock());
+                ps.setObject(12, fila.installmentsQuantity(), Types.INTEGER);
+                ps.setBigDecimal(13, fila.installmentsAmount());
+                ps.setTimestamp(14, ahora);
+                ps.setTimestamp(15, ahora);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return filas.size();
+            }
+        });
+        return ids;
+    }
+
+    private void insertarImagenes(List<Fila> filas, List<Long> ids) {
+        int cantidad = filas.stream().mapToInt(fila -> fila.imagenes().size()).sum();
+        if (cantidad == 0) {
+            return;
+        }
+
+        long siguienteId = idGeneradorDAO.reservar("producto_imagen", cantidad);
+        List<Object[]> imagenes = new ArrayList<>(cantidad);
+        for (int i = 0; i < filas.size(); i++) {
+            List<String> urls = filas.get(i).imagenes();
+            for (int orden = 0; orden < urls.size(); orden++) {
+                imagenes.add(new Object[]{siguienteId++, ids.get(i), urls.get(orden), orden});
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_IMAGEN, imagenes);
+    }
+
+    // Mismos valores por defecto que createProducto (moneda ARS, stock 100, condición nueva)
+    private Fila validar(ProductoDTO dto, int linea, Map<String, Long> categoriaPorNombre) {
+        if (dto.getTitle() == null || dto.getTitle().isBlank()) {
+            throw new IllegalArgumentException("title es requerido");
+        }
+        if (dto.getTitle().length() > MAX_TITULO) {
+            throw new IllegalArgumentException("title supera los " + MAX_TITULO + " caracteres");
+        }
+        if (dto.getPrice() == null || dto.getPrice().signum() < 0) {
+            throw new IllegalArgumentException("price es requerido y no puede ser negativo");
+        }
+        if (dto.getSellerId() == null) {
+            throw new IllegalArgumentException("seller_id es requerido para crear un producto");
+        }
+        if (dto.getLocation() != null && dto.getLocation().length() > MAX_UBICACION) {
+            throw new IllegalArgumentException("location supera los " + MAX_UBICACION + " caracteres");
+        }
+
+        Long categoriaId = null;
+        if (dto.getCategory() != null && !dto.getCategory().isBlank()) {
+            categoriaId = categoriaPorNombre.get(dto.getCategory());
+            if (categoriaId == null) {
+                throw new IllegalArgumentException("Categoría no encontrada: " + dto.getCategory());
+            }
+        }
+
+        Producto.ConditionType condition = Producto.ConditionType.new_;
+        if (dto.getCondition() != null) {
+            try {
+                condition = Producto.ConditionType.valueOf(dto.getCondition());
+            } catch (IllegalArgumentException e) {
+                condition = Producto.ConditionType.new_;
+            }
+        }
+
+        Integer installmentsQuantity = null;
+        BigDecimal installmentsAmount = null;
+        if (dto.getInstallments() != null) {
+            installmentsQuantity = dto.getInstallments().quantity();
+            installmentsAmount = dto.getInstallments().amount();
+        }
+
+        List<String> imagenes = new ArrayList<>();
+        if (dto.getImages() != null) {
+            for (String url : dto.getImages()) {
+                if (url != null && !url.isBlank()) {
+                    if (url.trim().length() > MAX_URL_IMAGEN) {
+                        throw new IllegalArgumentException("URL de imagen supera los " + MAX_URL_IMAGEN + " caracteres");
+                    }
+                    imagenes.add(url.trim());
+                }
+            }
+        }
+
+        return new Fila(linea, dto.getTitle(), dto.getPrice(),
+            dto.getCurrency() != null ? dto.getCurrency() : "ARS", condition,
+            Boolean.TRUE.equals(dto.getFreeShipping()), categoriaId, dto.getSellerId(),
+            dto.getLocation(), dto.getDescription(), dto.getStock() != null ? dto.getStock() : 100,
+            installmentsQuantity, installmentsAmount, imagenes);
+    }
+
+    private ProductoDTO desdeJson(String linea) {
+        try {
+            return objectMapper.readValue(linea, ProductoDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    // Columnas reconocidas: title, price, currency, condition, free_shipping, category, seller_id, location,
+    // description, stock, installments_quantity, installments_amount, images (URLs separadas por '|')
+    private ProductoDTO desdeCsv(String linea, Map<String, Integer> columnas) {
+        List<String> valores = parsearLineaCsv(linea);
+        ProductoDTO dto = new ProductoDTO();
+        dto.setTitle(valor(valores, columnas, "title"));
+        dto.setPrice(decimal(valor(valores, columnas, "price"), "price"));
+        dto.setCurrency(valor(valores, columnas, "currency"));
+        dto.setCondition(valor(valores, columnas, "condition"));
+        String freeShipping = valor(valores, columnas, "free_shipping");
+        dto.setFreeShipping(freeShipping != null ? Boolean.parseBoolean(freeShipping) : null);
+        dto.setCategory(valor(valores, columnas, "category"));
+        String sellerId = valor(valores, columnas, "seller_id");
+        dto.setSellerId(sellerId != null ? entero(sellerId, "seller_id").longValue() : null);
+        dto.setLocation(valor(valores, columnas, "location"));
+        dto.setDescription(valor(valores, columnas, "description"));
+        String stock = valor(valores, columnas, "stock");
+        dto.setStock(stock != null ? entero(stock, "stock").intValue() : null);
+
+        String cuotas = valor(valores, columnas, "installments_quantity");
+        String montoCuota = valor(valores, columnas, "installments_amount");
+        if (cuotas != null || montoCuota != null) {
+            dto.setInstallments(new InstallmentsDTO(
+                cuotas != null ? entero(cuotas, "installments_quantity").intValue() : null,
+                decimal(montoCuota, "installments_amount")));
+        }
+
+        String imagenes = valor(valores, columnas, "images");
+        if (imagenes != null) {
+            dto.setImages(Arrays.asList(imagenes.split(SEPARADOR_IMAGENES)));
+        }
+        return dto;
+    }
+
+    private Map<String, Integer> leerEncabezado(String linea) {
+        List<String> nombres = parsearLineaCsv(linea);
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < nombres.size(); i++) {
+            columnas.put(nombres.get(i).trim().toLowerCase(), i);
+        }
+        if (!columnas.containsKey("title") || !columnas.containsKey("price") || !columnas.containsKey("seller_id")) {
+            throw new BadRequestException("El encabezado CSV debe incluir las columnas title, price y seller_id");
+        }
+        return columnas;
+    }
+
+    private String valor(List<String> valores, Map<String, Integer> columnas, String columna) {
+        Integer indice = columnas.get(columna);
+        if (indice == null || indice >= valores.size()) {
+            return null;
+        }
+        String valor = valores.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private BigDecimal decimal(String valor, String columna) {
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(columna + " no es un número válido: " + valor);
+        }
+    }
+
+    private Long entero(String valor, String columna) {
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(columna + " no es un entero válido: " + valor);
+        }
+    }
+
+    // CSV de una línea por registro: separador coma, campos opcionalmente entre comillas dobles
+    // y comillas escapadas duplicándolas. No se admiten saltos de línea dentro de un campo.
+    private static List<String> parsearLineaCsv(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar en la línea CSV");
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+}
@@ -1,26 +1,63 @@
 package com.api.e_commerce.service;
 
+import com.api.e_commerce.cache.FavoritosCache;
+import com.api.e_commerce.cache.ProductoCache;
+import com.api.e_commerce.dao.ProductoDAO;
+import com.api.e_commerce.datasource.LecturaPrimaria;
+import com.api.e_commerce.dto.producto.BusquedaFacetadaDTO;
+import com.api.e_commerce.dto.producto.CamposProducto;
+import com.api.e_commerce.dto.producto.FiltroProductos;
+import com.api.e_commerce.dto.producto.InstallmentsDTO;
+import com.api.e_commerce.dto.producto.ProductoCardDTO;
 import com.api.e_commerce.dto.producto.ProductoDTO;
+import com.api.e_commerce.dto.producto.SellerDTO;
+import com.api.e_commerce.dto.producto.SugerenciaDTO;
+import com.api.e_commerce.dto.producto.ValoresCanonicos;
 import com.api.e_commerce.dto.CategoriaDTO;
+import com.api.e_commerce.dto.Cursor;
+import com.api.e_commerce.dto.CursorSliceDTO;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.exception.BadRequestException;
 import com.api.e_commerce.exception.ProductoNotFoundException;
 import com.api.e_commerce.exception.UsuarioNotFoundException;
 import com.api.e_commerce.model.Producto;
 import com.api.e_commerce.model.ProductoImagen;
+import com.api.e_commerce.model.ProductoTag;
 import com.api.e_commerce.model.Categoria;
 import com.api.e_commerce.model.Usuario;
-import com.api.e_commerce.repository.FavoritoRepository;
 import com.api.e_commerce.repository.ProductoRepository;
 import com.api.e_commerce.repository.ProductoImagenRepository;
+import com.api.e_commerce.repository.ProductoTagRepository;
 import com.api.e_commerce.repository.UsuarioRepository;
+import com.api.e_commerce.search.CatalogoColumnar;
+import com.api.e_commerce.search.ProductoSearchIndex;
+import com.api.e_commerce.search.RelacionadosIndex;
+import com.api.e_commerce.search.SugerenciasIndex;
+import com.api.e_commerce.search.TagIndex;
+import com.api.e_commerce.search.TextNormalizer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,144 +65,605 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class ProductoService {
     
+    private static final int MAX_TAGS_CONSULTA = 10;
+    private static final int MAX_TAMANIO_CURSOR = 100;
+    private static final int MAX_RELACIONADOS = 50;
+    
     private final ProductoRepository productoRepository;
     private final ProductoImagenRepository productoImagenRepository;
-    private final FavoritoRepository favoritoRepository;
+    private final ProductoTagRepository productoTagRepository;
     private final UsuarioRepository usuarioRepository;
     private final CategoriaService categoriaService;
+    private final ProductoSearchIndex productoSearchIndex;
+    private final ProductoCache productoCache;
+    private final FavoritosCache favoritosCache;
+    private final RelacionadosIndex relacionadosIndex;
+    private final CatalogoColumnar catalogoColumnar;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductoDAO productoDAO;
+    private final SugerenciasIndex sugerenciasIndex;
+    private final TagIndex tagIndex;
+    private final LecturaPrimaria lecturaPrimaria;
     
     public Page<ProductoDTO> getAllProductos(Pageable pageable) {
         Page<Producto> productos = productoRepository.findAll(pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, null));
+        return convertToProductoDTOPage(productos, null);
     }
     
     public Page<ProductoDTO> getAllProductos(Long usuarioId, Pageable pageable) {
+        return getAllProductos(usuarioId, pageable, CamposProducto.TODOS);
+    }
+    
+    // Con ?fields= solo de columnas de tarjeta se resuelve con la proyección, sin entidades ni imágenes
+    public Page<ProductoDTO> getAllProductos(Long usuarioId, Pageable pageable, CamposProducto campos) {
+        if (campos.soloTarjeta()) {
+            return productoRepository.findCards(pageable).map(this::cardComoDTO);
+        }
         Page<Producto> productos = productoRepository.findAll(pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, usuarioId));
+        return convertToProductoDTOPage(productos, usuarioId, campos);
     }
     
     public Page<ProductoDTO> searchProductos(String query, Pageable pageable) {
-        Page<Producto> productos = productoRepository.findByTitleContainingIgnoreCase(query, pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, null));
+        return searchProductos(query, null, pageable);
     }
     
     public Page<ProductoDTO> searchProductos(String query, Long usuarioId, Pageable pageable) {
-        Page<Producto> productos = productoRepository.findByTitleContainingIgnoreCase(query, pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, usuarioId));
+        return searchProductos(query, usuarioId, pageable, CamposProducto.TODOS);
+    }
+    
+    public Page<ProductoDTO> searchProductos(String query, Long usuarioId, Pageable pageable, CamposProducto campos) {
+        Optional<ProductoSearchIndex.Resultado> resultado =
+            productoSearchIndex.buscar(query, (int) pageable.getOffset(), pageable.getPageSize());
+        
+        if (resultado.isEmpty()) {
+            // Índice todavía cargando o consulta sin términos indexables: se usa la consulta original
+            if (campos.soloTarjeta()) {
+                return productoRepository.findCardsByTitle(query, pageable).map(this::cardComoDTO);
+            }
+            Page<Producto> productos = productoRepository.findByTitleContainingIgnoreCase(query, pageable);
+            return convertToProductoDTOPage(productos, usuarioId, campos);
+        }
+        
+        return new PageImpl<>(toProductoDTOsEnOrden(resultado.get().getIds(), usuarioId, campos),
+            pageable, resultado.get().getTotal());
     }
     
     public Page<ProductoDTO> getProductosByCategoria(String categoria, Pageable pageable) {
         Page<Producto> productos = productoRepository.findByCategoriaName(categoria, pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, null));
+        return convertToProductoDTOPage(productos, null);
     }
     
     public Page<ProductoDTO> getProductosByCategoria(String categoria, Long usuarioId, Pageable pageable) {
+        return getProductosByCategoria(categoria, usuarioId, pageable, CamposProducto.TODOS);
+    }
+    
+    public Page<ProductoDTO> getProductosByCategoria(String categoria, Long usuarioId, Pageable pageable,
+                                                     CamposProducto campos) {
+        if (campos.soloTarjeta()) {
+            return productoRepository.findCardsByCategoriaName(categoria, pageable).map(this::cardComoDTO);
+        }
+        if (campos.isTodos() && productoDAO.isActiva(ProductoDAO.POR_CATEGORIA)) {
+            return marcarFavoritos(productoDAO.getByCategoria(categoria, pageable), usuarioId);
+        }
         Page<Producto> productos = productoRepository.findByCategoriaName(categoria, pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, usuarioId));
+        return convertToProductoDTOPage(productos, usuarioId, campos);
     }
     
     public Page<ProductoDTO> getProductosByVendedor(Long vendedorId, Pageable pageable) {
+        return getProductosByVendedor(vendedorId, pageable, CamposProducto.TODOS);
+    }
+    
+    public Page<ProductoDTO> getProductosByVendedor(Long vendedorId, Pageable pageable, CamposProducto campos) {
+        if (campos.soloTarjeta()) {
+            return productoRepository.findCardsBySellerId(vendedorId, pageable).map(this::cardComoDTO);
+        }
+        if (campos.isTodos() && productoDAO.isActiva(ProductoDAO.POR_VENDEDOR)) {
+            return productoDAO.getByVendedor(vendedorId, pageable);
+        }
         Page<Producto> productos = productoRepository.findBySellerId(vendedorId, pageable);
-        return productos.map(producto -> convertToProductoDTO(producto, null));
+        return convertToProductoDTOPage(productos, null, campos);
+    }
+    
+    // Navegación por tags: todos = true exige todos los tags (AND), false alcanza con alguno (OR)
+    public Page<ProductoDTO> getProductosByTags(List<String> tags, boolean todos, Long usuarioId, Pageable pageable,
+                                                CamposProducto campos) {
+        List<String> pedidos = tags.stream()
+            .filter(Objects::nonNull)
+            .map(String::trim)
+            .filter(tag -> !tag.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+        if (pedidos.isEmpty() || pedidos.size() > MAX_TAGS_CONSULTA) {
+            throw new BadRequestException("Se necesitan entre 1 y " + MAX_TAGS_CONSULTA + " tags");
+        }
+        
+        Optional<TagIndex.Resultado> resultado =
+            tagIndex.buscar(pedidos, todos, pageable.getOffset(), pageable.getPageSize());
+        if (resultado.isEmpty()) {
+            // Índice todavía cargando: la colación de la base ya compara sin mayúsculas ni acentos
+            Page<Producto> productos = productoRepository.findByTags(pedidos, todos ? pedidos.size() : 1, pageable);
+            return convertToProductoDTOPage(productos, usuarioId, campos);
+        }
+        
+        return new PageImpl<>(toProductoDTOsEnOrden(resultado.get().getIds(), usuarioId, campos),
+            pageable, resultado.get().getTotal());
+    }
+    
+    // Listados como tarjetas: solo las columnas de la grilla, sin imágenes, favoritos ni mapas del DTO completo
+    public Page<ProductoCardDTO> getProductoCards(Pageable pageable) {
+        return productoRepository.findCards(pageable).map(this::completarThumbnail);
+    }
+    
+    public Page<ProductoCardDTO> getProductoCardsByCategoria(String categoria, Pageable pageable) {
+        return productoRepository.findCardsByCategoriaName(categoria, pageable).map(this::completarThumbnail);
+    }
+    
+    public Page<ProductoCardDTO> getProductoCardsByVendedor(Long vendedorId, Pageable pageable) {
+        return productoRepository.findCardsBySellerId(vendedorId, pageable).map(this::completarThumbnail);
+    }
+    
+    public Page<ProductoCardDTO> searchProductoCards(String query, Pageable pageable) {
+        Optional<ProductoSearchIndex.Resultado> resultado =
+            productoSearchIndex.buscar(query, (int) pageable.getOffset(), pageable.getPageSize());
+        
+        if (resultado.isEmpty()) {
+            return productoRepository.findCardsByTitle(query, pageable).map(this::completarThumbnail);
+        }
+        
+        return new PageImpl<>(findCardsEnOrden(resultado.get().getIds()), pageable, resultado.get().getTotal());
+    }
+    
+    // Autocompletado del buscador; mientras el índice carga, sugiere títulos con la búsqueda por LIKE
+    public List<SugerenciaDTO> getSugerencias(String prefijo, int limit) {
+        int cantidad = Math.max(1, Math.min(limit, SugerenciasIndex.MAX_SUGERENCIAS));
+        return sugerenciasIndex.sugerir(prefijo, cantidad).orElseGet(() ->
+            productoRepository.findCardsByTitle(prefijo, PageRequest.of(0, cantidad)).stream()
+                .map(card -> new SugerenciaDTO(card.getTitle(), SugerenciaDTO.PRODUCTO, card.getId()))
+                .collect(Collectors.toList()));
+    }
+    
+    // Listado filtrado servido desde el catálogo columnar en memoria
+    public Page<ProductoDTO> filtrarProductos(FiltroProductos filtro, Long usuarioId, Pageable pageable) {
+        return filtrarProductos(filtro, usuarioId, pageable, CamposProducto.TODOS);
+    }
+    
+    public Page<ProductoDTO> filtrarProductos(FiltroProductos filtro, Long usuarioId, Pageable pageable,
+                                              CamposProducto campos) {
+        Optional<CatalogoColumnar.Resultado> resultado =
+            catalogoColumnar.filtrar(filtro, pageable.getOffset(), pageable.getPageSize());
+        
+        if (resultado.isEmpty()) {
+            return convertToProductoDTOPage(filtrarEnBase(filtro, pageable), usuarioId, campos);
+        }
+        
+        return new PageImpl<>(toProductoDTOsEnOrden(resultado.get().getIds(), usuarioId, campos),
+            pageable, resultado.get().getTotal());
+    }
+    
+    // Mientras el catálogo columnar carga, los mismos filtros en la base. El texto se resuelve con el mismo
+    // índice invertido que usa el catálogo (todas las palabras, en título, descripción o tags); solo si
+    // el índice tampoco está listo queda el LIKE sobre el título.
+    private Page<Producto> filtrarEnBase(FiltroProductos filtro, Pageable pageable) {
+        Pageable ordenado = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), toSort(filtro.getOrden()));
+        boolean conTexto = filtro.getSearch() != null && !filtro.getSearch().isBlank();
+        Optional<Set<Long>> porTexto = conTexto ? productoSearchIndex.coincidencias(filtro.getSearch()) : Optional.empty();
+        
+        if (porTexto.isPresent()) {
+            if (porTexto.get().isEmpty()) {
+                return Page.empty(ordenado);
+            }
+            return productoRepository.findProductosWithAllFiltersByIdIn(
+                porTexto.get(), filtro.getCategory(), filtro.getMinPrice(), filtro.getMaxPrice(),
+                filtro.getCondition(), filtro.getFreeShipping(), filtro.getEnStock(), ordenado);
+        }
+        return productoRepository.findProductosWithAllFilters(
+            conTexto ? filtro.getSearch() : null, filtro.getCategory(), filtro.getMinPrice(), filtro.getMaxPrice(),
+            filtro.getCondition(), filtro.getFreeShipping(), filtro.getEnStock(), ordenado);
+    }
+    
+    // Página de resultados y conteos por faceta en una sola pasada sobre el catálogo en memoria
+    public BusquedaFacetadaDTO buscarConFacetas(FiltroProductos filtro, Long usuarioId, Pageable pageable) {
+        Optional<CatalogoColumnar.Resultado> resultado =
+            catalogoColumnar.filtrarConFacetas(filtro, pageable.getOffset(), pageable.getPageSize());
+        
+        if (resultado.isEmpty()) {
+            // Sin catálogo en memoria no hay facetas; se devuelve solo la página
+            return new BusquedaFacetadaDTO(filtrarProductos(filtro, usuarioId, pageable), null);
+        }
+        
+        List<Producto> productos = findAllByIdEnOrden(resultado.get().getIds());
+        Page<ProductoDTO> pagina = new PageImpl<>(
+            convertToProductoDTOs(productos, usuarioId), pageable, resultado.get().getTotal());
+        return new BusquedaFacetadaDTO(pagina, resultado.get().getFacetas());
+    }
+    
+    // Listados por cursor: orden por más recientes, sin OFFSET ni COUNT(*)
+    public CursorSliceDTO<ProductoDTO> getAllProductosCursor(String cursor, int size, Long usuarioId) {
+        validarTamanio(size);
+        Cursor desde = decodeCursorFecha(cursor);
+        Pageable limite = PageRequest.of(0, size);
+        Slice<Producto> productos = desde == null ?
+            productoRepository.findRecientes(limite) :
+            productoRepository.findRecientesDespuesDe(parseFecha(desde), desde.getId(), limite);
+        return toCursorSlice(productos, usuarioId);
+    }
+    
+    public CursorSliceDTO<ProductoDTO> getProductosByCategoriaCursor(String categoria, String cursor, int size, Long usuarioId) {
+        validarTamanio(size);
+        Cursor desde = decodeCursorFecha(cursor);
+        Pageable limite = PageRequest.of(0, size);
+        Slice<Producto> productos = desde == null ?
+            productoRepository.findRecientesByCategoriaName(categoria, limite) :
+            productoRepository.findRecientesByCategoriaNameDespuesDe(
+                categoria, parseFecha(desde), desde.getId(), limite);
+        return toCursorSlice(productos, usuarioId);
+    }
+    
+    public CursorSliceDTO<ProductoDTO> getProductosByVendedorCursor(Long vendedorId, String cursor, int size) {
+        validarTamanio(size);
+        Cursor desde = decodeCursorFecha(cursor);
+        Pageable limite = PageRequest.of(0, size);
+        Slice<Producto> productos = desde == null ?
+            productoRepository.findRecientesBySellerId(vendedorId, limite) :
+            productoRepository.findRecientesBySellerIdDespuesDe(
+                vendedorId, parseFecha(desde), desde.getId(), limite);
+        return toCursorSlice(productos, null);
+    }
+    
+    // La búsqueda pagina por relevancia (puntaje, id) sobre el índice en memoria. Si la primera página
+    // se sirvió con la consulta LIKE (índice cargando), el cursor sigue ese mismo orden por fecha.
+    public CursorSliceDTO<ProductoDTO> searchProductosCursor(String query, String cursor, int size, Long usuarioId) {
+        validarTamanio(size);
+        Cursor desde = Cursor.decode(cursor);
+        
+        if (desde == null || desde.getOrden() == Cursor.Orden.RELEVANCIA) {
+            Optional<ProductoSearchIndex.Resultado> resultado = desde == null ?
+                productoSearchIndex.buscar(query, 0, size + 1) :
+                productoSearchIndex.buscarDespuesDe(query, parsePuntaje(desde), desde.getId(), size + 1);
+            
+            if (resultado.isPresent()) {
+                List<Long> ids = resultado.get().getIds();
+                boolean hasNext = ids.size() > size;
+                List<Long> pagina = hasNext ? ids.subList(0, size) : ids;
+                
+                String next = hasNext ?
+                    new Cursor(Cursor.Orden.RELEVANCIA, resultado.get().getPuntajes().get(size - 1).toString(),
+                        pagina.get(size - 1)).encode() :
+                    null;
+                List<ProductoDTO> dtos = convertToProductoDTOs(findAllByIdEnOrden(pagina), usuarioId);
+                return new CursorSliceDTO<>(dtos, dtos.size(), hasNext, next);
+            }
+            if (desde != null) {
+                throw new BadRequestException("Cursor inválido");
+            }
+        }
+        
+        Pageable limite = PageRequest.of(0, size);
+        Slice<Producto> productos = desde == null ?
+            productoRepository.findRecientesByTitle(query, limite) :
+            productoRepository.findRecientesByTitleDespuesDe(
+                query, parseFecha(desde), desde.getId(), limite);
+        return toCursorSlice(productos, usuarioId);
     }
     
     public ProductoDTO getProductoById(Long id) {
-        Producto producto = productoRepository.findById(id)
-            .orElseThrow(() -> new ProductoNotFoundException(id));
-        return convertToProductoDTO(producto, null);
+        return getProductoById(id, null);
     }
     
     public ProductoDTO getProductoById(Long id, Long usuarioId) {
-        Producto producto = productoRepository.findById(id)
-            .orElseThrow(() -> new ProductoNotFoundException(id));
-        return convertToProductoDTO(producto, usuarioId);
+        // La carga va a la primaria: tras una invalidación, una réplica atrasada cachearía el dato viejo
+        ProductoDTO base = productoCache.get(id, productoId -> lecturaPrimaria.leer(() -> {
+            if (productoDAO.isActiva(ProductoDAO.POR_ID)) {
+                return productoDAO.getById(productoId)
+                    .orElseThrow(() -> new ProductoNotFoundException(productoId));
+            }
+            Producto producto = productoRepository.findById(productoId)
+                .orElseThrow(() -> new ProductoNotFoundException(productoId));
+            return convertToProductoDTO(producto, null);
+        }));
+        
+        // La entrada cacheada es compartida: el favorito del usuario se marca sobre una copia
+        return copiarConFavorito(base, favoritosCache.esFavorito(usuarioId, id));
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        return productoCache.getStats();
     }
     
     public List<ProductoDTO> getProductosRelacionados(Long productoId, int limit) {
+        if (limit < 1 || limit > MAX_RELACIONADOS) {
+            throw new BadRequestException("limit tiene que estar entre 1 y " + MAX_RELACIONADOS);
+        }
+        
+        if (relacionadosIndex.isReady() && relacionadosIndex.contiene(productoId)) {
+            List<Long> ids = relacionadosIndex.relacionados(productoId, limit);
+            return convertToProductoDTOs(findAllByIdEnOrden(ids), null);
+        }
+        
         Producto producto = productoRepository.findById(productoId)
             .orElseThrow(() -> new ProductoNotFoundException(productoId));
         
-        // Buscar productos de la misma categoría (limitado)
-        List<Producto> relacionados = productoRepository.findByCategoriaAndIdNot(producto.getCategoria(), productoId);
+        // Buscar productos de la misma categoría (limitado en la consulta)
+        List<Producto> relacionados = productoRepository.findByCategoriaAndIdNot(
+            producto.getCategoria(), productoId, PageRequest.of(0, limit));
         
-        return relacionados.stream()
-            .limit(limit)
-            .map(p -> convertToProductoDTO(p, null))
+        return convertToProductoDTOs(relacionados, null);
+    }
+    
+    public Page<ProductoDTO> convertToProductoDTOPage(Page<Producto> productos, Long usuarioId) {
+        return convertToProductoDTOPage(productos, usuarioId, CamposProducto.TODOS);
+    }
+    
+    public Page<ProductoDTO> convertToProductoDTOPage(Page<Producto> productos, Long usuarioId, CamposProducto campos) {
+        List<ProductoDTO> dtos = convertToProductoDTOs(productos.getContent(), usuarioId, campos);
+        return new PageImpl<>(dtos, productos.getPageable(), productos.getTotalElements());
+    }
+    
+    private Sort toSort(FiltroProductos.Orden orden) {
+        if (orden == FiltroProductos.Orden.precio_asc) {
+            return Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"));
+        }
+        if (orden == FiltroProductos.Orden.precio_desc) {
+            return Sort.by(Sort.Order.desc("price"), Sort.Order.asc("id"));
+        }
+        return Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    }
+    
+    private CursorSliceDTO<ProductoDTO> toCursorSlice(Slice<Producto> productos, Long usuarioId) {
+        List<ProductoDTO> dtos = convertToProductoDTOs(productos.getContent(), usuarioId);
+        String next = null;
+        if (productos.hasNext()) {
+            Producto ultimo = productos.getContent().get(productos.getNumberOfElements() - 1);
+            next = new Cursor(Cursor.Orden.FECHA, ultimo.getCreatedAt().toString(), ultimo.getId()).encode();
+        }
+        return new CursorSliceDTO<>(dtos, dtos.size(), productos.hasNext(), next);
+    }
+    
+    private void validarTamanio(int size) {
+        if (size < 1 || size > MAX_TAMANIO_CURSOR) {
+            throw new BadRequestException("size tiene que estar entre 1 y " + MAX_TAMANIO_CURSOR);
+        }
+    }
+    
+    private Cursor decodeCursorFecha(String cursor) {
+        Cursor desde = Cursor.decode(cursor);
+        if (desde != null && desde.getOrden() != Cursor.Orden.FECHA) {
+            throw new BadRequestException("Cursor inválido");
+        }
+        return desde;
+    }
+    
+    private LocalDateTime parseFecha(Cursor cursor) {
+        try {
+            return LocalDateTime.parse(cursor.getSortKey());
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+    
+    private float parsePuntaje(Cursor cursor) {
+        try {
+            return Float.parseFloat(cursor.getSortKey());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Cursor inválido");
+        }
+    }
+    
+    private ProductoDTO copiarConFavorito(ProductoDTO base, boolean esFavorito) {
+        ProductoDTO dto = new ProductoDTO();
+        dto.setId(base.getId());
+        dto.setTitle(base.getTitle());
+        dto.setDescription(base.getDescription());
+        dto.setPrice(base.getPrice());
+        dto.setCurrency(base.getCurrency());
+        dto.setCondition(base.getCondition());
+        dto.setFreeShipping(base.getFreeShipping());
+        dto.setThumbnail(base.getThumbnail());
+        dto.setCategoria(base.getCategoria());
+        dto.setCategory(base.getCategory());
+        dto.setSellerId(base.getSellerId());
+        dto.setLocation(base.getLocation());
+        dto.setStock(base.getStock());
+        dto.setImages(base.getImages());
+        dto.setTags(base.getTags());
+        dto.setSeller(base.getSeller());
+        dto.setInstallments(base.getInstallments());
+        dto.setCreatedAt(base.getCreatedAt());
+        dto.setUpdatedAt(base.getUpdatedAt());
+        dto.setEsFavorito(esFavorito);
+        return dto;
+    }
+    
+    // findAllById no respeta el orden pedido; se reordena según la lista de ids
+    private List<Producto> findAllByIdEnOrden(List<Long> ids) {
+        Map<Long, Producto> porId = productoRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Producto::getId, p -> p));
+        return ids.stream()
+            .map(porId::get)
+            .filter(Objects::nonNull)
             .collect(Collectors.toList());
     }
     
+    private List<ProductoCardDTO> findCardsEnOrden(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductoCardDTO> porId = productoRepository.findCardsByIdIn(ids).stream()
+            .collect(Collectors.toMap(ProductoCardDTO::getId, c -> c));
+        return ids.stream()
+            .map(porId::get)
+            .filter(Objects::nonNull)
+            .map(this::completarThumbnail)
+            .collect(Collectors.toList());
+    }
+    
+    // Ids resueltos por un índice en memoria: tarjetas si alcanzan para los campos pedidos, si no entidades
+    private List<ProductoDTO> toProductoDTOsEnOrden(List<Long> ids, Long usuarioId, CamposProducto campos) {
+        if (campos.soloTarjeta()) {
+            return findCardsEnOrden(ids).stream().map(this::cardComoDTO).collect(Collectors.toList());
+        }
+        return convertToProductoDTOs(findAllByIdEnOrden(ids), usuarioId, campos);
+    }
+    
+    // Los DTOs de ProductoDAO son propios de esta respuesta, así que se marcan directamente
+    private Page<ProductoDTO> marcarFavoritos(Page<ProductoDTO> productos, Long usuarioId) {
+        for (ProductoDTO dto : productos.getContent()) {
+            dto.setEsFavorito(favoritosCache.esFavorito(usuarioId, dto.getId()));
+        }
+        return productos;
+    }
+    
+    private ProductoDTO cardComoDTO(ProductoCardDTO card) {
+        completarThumbnail(card);
+        ProductoDTO dto = new ProductoDTO();
+        dto.setId(card.getId());
+        dto.setTitle(card.getTitle());
+        dto.setPrice(card.getPrice());
+        dto.setCurrency(card.getCurrency());
+        dto.setThumbnail(card.getThumbnail());
+        dto.setFreeShipping(card.getFreeShipping());
+        dto.setCategory(card.getCategory());
+        return dto;
+    }
+    
+    private ProductoCardDTO completarThumbnail(ProductoCardDTO card) {
+        if (card.getThumbnail() == null) {
+            card.setThumbnail(ProductoDTO.THUMBNAIL_PLACEHOLDER);
+        }
+        return card;
+    }
+    
+    // Arma los DTOs de una página completa con una sola consulta de imágenes; los favoritos
+    // se marcan desde memoria, en lugar de dos consultas por producto
+    public List<ProductoDTO> convertToProductoDTOs(List<Producto> productos, Long usuarioId) {
+        return convertToProductoDTOs(productos, usuarioId, CamposProducto.TODOS);
+    }
+    
+    // Las imágenes y los favoritos solo se buscan si se pidieron esos campos
+    public List<ProductoDTO> convertToProductoDTOs(List<Producto> productos, Long usuarioId, CamposProducto campos) {
+        if (productos.isEmpty()) {
+            return List.of();
+        }
+        
+        boolean conImagenes = campos.incluye("images") || campos.incluye("thumbnail");
+        boolean conFavorito = campos.incluye("esFavorito");
+        boolean conTags = campos.incluye("tags");
+        List<Long> ids = productos.stream()
+            .map(Producto::getId)
+            .collect(Collectors.toList());
+        
+        Map<Long, List<String>> imagenesPorProducto = new HashMap<>();
+        if (conImagenes) {
+            for (ProductoImagen imagen : productoImagenRepository.findByProductoIdIn(ids)) {
+                imagenesPorProducto.computeIfAbsent(imagen.getProductoId(), k -> new ArrayList<>())
+                    .add(imagen.getImageUrl());
+            }
+        }
+        Map<Long, List<String>> tagsPorProducto = conTags ?
+            agruparTags(productoTagRepository.findByProductoIdIn(ids)) : Map.of();
+        
+        List<ProductoDTO> dtos = new ArrayList<>(productos.size());
+        for (Producto producto : productos) {
+            ProductoDTO dto = buildProductoDTO(
+                producto,
+                conImagenes ? imagenesPorProducto.getOrDefault(producto.getId(), List.of()) : null,
+                conFavorito && favoritosCache.esFavorito(usuarioId, producto.getId()),
+                campos
+            );
+            if (conTags) {
+                dto.setTags(tagsPorProducto.getOrDefault(producto.getId(), List.of()));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+    
     public ProductoDTO convertToProductoDTO(Producto producto) {
         return convertToProductoDTO(producto, null);
     }
     
     public ProductoDTO convertToProductoDTO(Producto producto, Long usuarioId) {
+        List<String> imagenesUrls = productoImagenRepository.findByProductoIdOrderByOrden(producto.getId()).stream()
+            .map(ProductoImagen::getImageUrl)
+            .collect(Collectors.toList());
+        ProductoDTO dto = buildProductoDTO(producto, imagenesUrls, favoritosCache.esFavorito(usuarioId, producto.getId()));
+        dto.setTags(agruparTags(productoTagRepository.findByProductoId(producto.getId()))
+            .getOrDefault(producto.getId(), List.of()));
+        return dto;
+    }
+    
+    private Map<Long, List<String>> agruparTags(List<ProductoTag> tags) {
+        return tags.stream().collect(Collectors.groupingBy(ProductoTag::getProductoId,
+            Collectors.mapping(ProductoTag::getTagName, Collectors.toList())));
+    }
+    
+    private ProductoDTO buildProductoDTO(Producto producto, List<String> imagenesUrls, boolean esFavorito) {
+        return buildProductoDTO(producto, imagenesUrls, esFavorito, CamposProducto.TODOS);
+    }
+    
+    // imagenesUrls es null cuando no se cargaron (no se pidieron images ni thumbnail)
+    private ProductoDTO buildProductoDTO(Producto producto, List<String> imagenesUrls, boolean esFavorito,
+                                         CamposProducto campos) {
         ProductoDTO dto = new ProductoDTO();
         dto.setId(producto.getId());
         dto.setTitle(producto.getTitle());
         dto.setDescription(producto.getDescription());
         dto.setPrice(producto.getPrice());
-        dto.setCurrency(producto.getCurrency());
+        dto.setCurrency(ValoresCanonicos.canonico(producto.getCurrency()));
         dto.setCondition(producto.getConditionType() != null ? producto.getConditionType().name() : "new");
         dto.setFreeShipping(producto.getFreeShipping());
         
         if (producto.getCategoria() != null) {
-            CategoriaDTO categoriaDTO = new CategoriaDTO(
-                producto.getCategoria().getId(),
-                producto.getCategoria().getName(),
-                producto.getCategoria().getDescription(),
-                producto.getCategoria().getImage()
-            );
-            dto.setCategoria(categoriaDTO);
-            dto.setCategory(producto.getCategoria().getName());
+            if (campos.incluye("categoria")) {
+                CategoriaDTO categoriaDTO = new CategoriaDTO(
+                    producto.getCategoria().getId(),
+                    producto.getCategoria().getName(),
+                    producto.getCategoria().getDescription(),
+                    producto.getCategoria().getImage()
+                );
+                dto.setCategoria(categoriaDTO);
+            }
+            dto.setCategory(ValoresCanonicos.canonico(producto.getCategoria().getName()));
         }
         
         dto.setSellerId(producto.getSeller() != null ? producto.getSeller().getId() : null);
         dto.setLocation(producto.getLocation());
         dto.setStock(producto.getStock());
         dto.setCreatedAt(producto.getCreatedAt());
+        dto.setUpdatedAt(producto.getUpdatedAt() != null ? producto.getUpdatedAt() : producto.getCreatedAt());
         
-        // Cargar imágenes desde el repositorio
-        List<ProductoImagen> imagenes = productoImagenRepository.findByProductoIdOrderByOrden(producto.getId());
-        if (imagenes != null && !imagenes.isEmpty()) {
-            List<String> imagenesUrls = imagenes.stream()
-                .map(ProductoImagen::getImageUrl)
-                .collect(Collectors.toList());
+        if (imagenesUrls != null && !imagenesUrls.isEmpty()) {
             dto.setImages(imagenesUrls);
             
             // Usar la primera imagen como thumbnail
             dto.setThumbnail(imagenesUrls.get(0));
-        } else {
+        } else if (imagenesUrls != null) {
             // Si no hay imágenes, usar placeholder
-            dto.setThumbnail("https://via.placeholder.com/150");
+            dto.setThumbnail(ProductoDTO.THUMBNAIL_PLACEHOLDER);
             dto.setImages(List.of());
         }
         
         // Información del vendedor
-        if (producto.getSeller() != null) {
-            Map<String, Object> seller = new HashMap<>();
-            seller.put("nickname", producto.getSeller().getFirstName() + "_STORE");
-            seller.put("reputation", "bronze");
-            dto.setSeller(seller);
+        if (producto.getSeller() != null && campos.incluye("seller")) {
+            dto.setSeller(toSellerDTO(producto.getSeller()));
         }
         
         // Información de cuotas
-        if (producto.getInstallmentsQuantity() != null && producto.getInstallmentsAmount() != null) {
-            Map<String, Object> installments = new HashMap<>();
-            installments.put("quantity", producto.getInstallmentsQuantity());
-            installments.put("amount", producto.getInstallmentsAmount());
-            dto.setInstallments(installments);
+        if (producto.getInstallmentsQuantity() != null && producto.getInstallmentsAmount() != null
+                && campos.incluye("installments")) {
+            dto.setInstallments(new InstallmentsDTO(producto.getInstallmentsQuantity(), producto.getInstallmentsAmount()));
         }
         
-        // Verificar si es favorito
-        if (usuarioId != null) {
-            dto.setEsFavorito(favoritoRepository.existsByUsuarioIdAndProductoId(usuarioId, producto.getId()));
-        } else {
-            dto.setEsFavorito(false);
-        }
+        dto.setEsFavorito(esFavorito);
         
         return dto;
     }
     
+    private SellerDTO toSellerDTO(Usuario seller) {
+        return SellerDTO.de(seller.getSellerNickname(), seller.getFirstName(),
+            seller.getSellerReputation() != null ? seller.getSellerReputation().name() : null);
+    }
+    
     @Transactional
     public ProductoDTO createProducto(ProductoDTO productoDTO) {
         // Validar que el seller_id existe en la tabla usuario
@@ -186,6 +684,11 @@ public class ProductoService {
         if (productoDTO.getImages() != null && !productoDTO.getImages().isEmpty()) {
             saveProductoImages(savedProducto.getId(), productoDTO.getImages());
         }
+        if (productoDTO.getTags() != null && !productoDTO.getTags().isEmpty()) {
+            sincronizarTags(savedProducto.getId(), productoDTO.getTags());
+        }
+        
+        eventPublisher.publishEvent(new ProductoChangedEvent(savedProducto.getId(), ProductoChangedEvent.Type.CREATED));
         
         return convertToProductoDTO(savedProducto, null);
     }
@@ -244,29 +747,28 @@ public class ProductoService {
         
         // Actualizar installments si se proporcionan
         if (productoDTO.getInstallments() != null) {
-            Object quantity = productoDTO.getInstallments().get("quantity");
-            Object amount = productoDTO.getInstallments().get("amount");
-            
-            if (quantity instanceof Integer) {
-                productoExistente.setInstallmentsQuantity((Integer) quantity);
+            if (productoDTO.getInstallments().quantity() != null) {
+                productoExistente.setInstallmentsQuantity(productoDTO.getInstallments().quantity());
             }
-            if (amount instanceof Number) {
-                productoExistente.setInstallmentsAmount(java.math.BigDecimal.valueOf(((Number) amount).doubleValue()));
+            if (productoDTO.getInstallments().amount() != null) {
+                productoExistente.setInstallmentsAmount(productoDTO.getInstallments().amount());
             }
         }
         
+        // Explícito: un cambio solo de imágenes no ensucia la entidad y @PreUpdate no correría
+        productoExistente.setUpdatedAt(LocalDateTime.now());
         Producto productoActualizado = productoRepository.save(productoExistente);
         
         // Actualizar imágenes si se proporcionan
         if (productoDTO.getImages() != null) {
-            // Eliminar imágenes existentes
-            productoImagenRepository.deleteByProductoId(id);
-            // Guardar nuevas imágenes
-            if (!productoDTO.getImages().isEmpty()) {
-                saveProductoImages(id, productoDTO.getImages());
-            }
+            sincronizarImagenes(id, productoDTO.getImages());
+        }
+        if (productoDTO.getTags() != null) {
+            sincronizarTags(id, productoDTO.getTags());
         }
         
+        eventPublisher.publishEvent(new ProductoChangedEvent(id, ProductoChangedEvent.Type.UPDATED));
+        
         return convertToProductoDTO(productoActualizado, null);
     }
     
@@ -278,6 +780,8 @@ public class ProductoService {
         
         // Eliminar el producto
         productoRepository.delete(producto);
+        
+        eventPublisher.publishEvent(new ProductoChangedEvent(id, ProductoChangedEvent.Type.DELETED));
     }
     
     private Producto convertToProducto(ProductoDTO dto) {
@@ -314,21 +818,15 @@ public class ProductoService {
         
         // Mapear installments
         if (dto.getInstallments() != null) {
-            Object quantity = dto.getInstallments().get("quantity");
-            Object amount = dto.getInstallments().get("amount");
-            
-            if (quantity instanceof Integer) {
-                producto.setInstallmentsQuantity((Integer) quantity);
-            }
-            if (amount instanceof Number) {
-                producto.setInstallmentsAmount(java.math.BigDecimal.valueOf(((Number) amount).doubleValue()));
-            }
+            producto.setInstallmentsQuantity(dto.getInstallments().quantity());
+            producto.setInstallmentsAmount(dto.getInstallments().amount());
         }
         
         return producto;
     }
     
     private void saveProductoImages(Long productoId, List<String> imageUrls) {
+        List<ProductoImagen> imagenes = new ArrayList<>();
         for (int i = 0; i < imageUrls.size(); i++) {
             String imageUrl = imageUrls.get(i);
             if (imageUrl != null && !imageUrl.trim().isEmpty()) {
@@ -336,8 +834,83 @@ public class ProductoService {
                 imagen.setProductoId(productoId);
                 imagen.setImageUrl(imageUrl.trim());
                 imagen.setOrden(i);
-                productoImagenRepository.save(imagen);
+                imagenes.add(imagen);
+            }
+        }
+        productoImagenRepository.saveAll(imagenes);
+    }
+    
+    // Compara la lista ordenada de URLs con las filas guardadas: las que siguen se conservan (actualizando
+    // su orden solo si cambió), las nuevas se insertan y las que ya no están se borran en una sola sentencia.
+    // Los inserts y updates salen en batch al hacer flush.
+    private void sincronizarImagenes(Long productoId, List<String> imageUrls) {
+        Map<String, Deque<ProductoImagen>> existentesPorUrl = new HashMap<>();
+        for (ProductoImagen imagen : productoImagenRepository.findImagenesByProductoId(productoId)) {
+            existentesPorUrl.computeIfAbsent(imagen.getImageUrl(), url -> new ArrayDeque<>()).add(imagen);
+        }
+        
+        List<ProductoImagen> nuevas = new ArrayList<>();
+        for (int i = 0; i < imageUrls.size(); i++) {
+            String imageUrl = imageUrls.get(i);
+            if (imageUrl == null || imageUrl.trim().isEmpty()) {
+                continue;
+            }
+            Deque<ProductoImagen> mismaUrl = existentesPorUrl.get(imageUrl.trim());
+            ProductoImagen existente = mismaUrl != null ? mismaUrl.poll() : null;
+            if (existente == null) {
+                ProductoImagen imagen = new ProductoImagen();
+                imagen.setProductoId(productoId);
+                imagen.setImageUrl(imageUrl.trim());
+                imagen.setOrden(i);
+                nuevas.add(imagen);
+            } else if (!Integer.valueOf(i).equals(existente.getOrden())) {
+                // Entidad administrada: el cambio se escribe en el flush
+                existente.setOrden(i);
+            }
+        }
+        
+        List<Long> sobrantes = existentesPorUrl.values().stream()
+            .flatMap(Deque::stream)
+            .map(ProductoImagen::getId)
+            .collect(Collectors.toList());
+        if (!sobrantes.isEmpty()) {
+            productoImagenRepository.deleteByIdIn(sobrantes);
+        }
+        if (!nuevas.isEmpty()) {
+            productoImagenRepository.saveAll(nuevas);
+        }
+    }
+    
+    // Igual que las imágenes: se conservan los tags que siguen, se insertan los nuevos y se borran los que
+    // ya no están. Dos tags que solo difieren en mayúsculas o acentos cuentan como uno (así los indexa TagIndex).
+    private void sincronizarTags(Long productoId, List<String> tags) {
+        Map<String, String> pedidos = new LinkedHashMap<>();
+        for (String tag : tags) {
+            if (tag != null && !tag.trim().isEmpty()) {
+                pedidos.putIfAbsent(TextNormalizer.normalizarFrase(tag), tag.trim());
+            }
+        }
+        
+        List<Long> sobrantes = new ArrayList<>();
+        for (ProductoTag existente : productoTagRepository.findByProductoId(productoId)) {
+            if (pedidos.remove(TextNormalizer.normalizarFrase(existente.getTagName())) == null) {
+                sobrantes.add(existente.getId());
             }
         }
+        
+        if (!sobrantes.isEmpty()) {
+            productoTagRepository.deleteByIdIn(sobrantes);
+        }
+        List<ProductoTag> nuevos = pedidos.values().stream()
+            .map(tag -> {
+                ProductoTag productoTag = new ProductoTag();
+                productoTag.setProductoId(productoId);
+                productoTag.setTagName(tag);
+                return productoTag;
+            })
+            .collect(Collectors.toList());
+        if (!nuevos.isEmpty()) {
+            productoTagRepository.saveAll(nuevos);
+        }
     }
 }
@@ -0,0 +1,371 @@
+package com.api.e_commerce.stock;
+
+import com.api.e_commerce.dto.producto.ProductoStockView;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.event.ProductosImportadosEvent;
+import com.api.e_commerce.event.StockDescontadoEvent;
+import com.api.e_commerce.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Reservas de stock de los carritos, activadas con stock.reservas.enabled. Agregar un producto al carrito
+// reserva esas unidades por ttl-minutes (se renueva con cada alta del mismo producto); mientras tanto no
+// se le pueden reservar a otro usuario. El control es en memoria y sin locks: por producto se guarda en un
+// solo long el stock leído de la base y el total reservado, y reservar es un compareAndSet.
+// El stock se relee de la base cuando el producto cambia y cada reconciliacion-ms. Las reservas no se
+// guardan: tras un reinicio los carritos conservan sus ítems pero sin unidades apartadas, y el checkout
+// siempre vuelve a controlar contra producto.stock. Con más de una instancia de la API tiene que quedar apagado.
+@Slf4j
+@Component
+public class ReservasStock {
+
+    private static final int LOTE_RECONCILIACION = 1000;
+    // Estado de un contador que se sacó del mapa: quien lo encuentre tiene que buscar (o crear) otro
+    private static final long RETIRADO = Long.MIN_VALUE;
+
+    // Stock en los 32 bits altos, reservado en los bajos
+    private static final class Contador {
+        private final AtomicLong estado;
+
+        Contador(int stock) {
+            this.estado = new AtomicLong(empaquetar(stock, 0));
+        }
+    }
+
+    // Unidades de un producto apartadas para un usuario
+    private static final class Reserva {
+        private final Long usuarioId;
+        private final Long productoId;
+        private int cantidad;
+        private long venceMs;
+
+        Reserva(Long usuarioId, Long productoId) {
+            this.usuarioId = usuarioId;
+            this.productoId = productoId;
+        }
+    }
+
+    private final ProductoRepository productoRepository;
+    private final boolean activo;
+    private final long ttlMs;
+    private final long tickMs;
+    private final long reconciliacionMs;
+
+    // productoId -> stock y reservado
+    private final Map<Long, Contador> contadores = new ConcurrentHashMap<>();
+    // usuarioId -> (productoId -> reserva); cada mapa interno se modifica con su monitor tomado
+    private final Map<Long, Map<Long, Reserva>> reservas = new ConcurrentHashMap<>();
+
+    private RuedaDeTiempo<Reserva> vencimientos;
+    private ScheduledExecutorService tareas;
+
+    public ReservasStock(ProductoRepository productoRepository,
+                         @Value("${stock.reservas.enabled:false}") boolean activo,
+                         @Value("${stock.reservas.ttl-minutes:15}") long ttlMinutos,
+                         @Value("${stock.reservas.tick-ms:1000}") long tickMs,
+                         @Value("${stock.reservas.reconciliacion-ms:30000}") long reconciliacionMs) {
+        this.productoRepository = productoRepository;
+        this.activo = activo;
+        this.ttlMs = TimeUnit.MINUTES.toMillis(ttlMinutos);
+        this.tickMs = tickMs;
+        this.reconciliacionMs = reconciliacionMs;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!activo) {
+            return;
+        }
+        // Una vuelta de la rueda cubre el TTL: cada reserva se mira una sola vez, al vencer
+        int ranuras = (int) Math.max(1, ttlMs / tickMs + 1);
+        vencimientos = new RuedaDeTiempo<>(tickMs, ranuras, System.currentTimeMillis());
+        tareas = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "reservas-stock");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        tareas.scheduleWithFixedDelay(this::vencer, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        tareas.scheduleWithFixedDelay(this::reconciliarProgramado, reconciliacionMs, reconciliacionMs,
+            TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (tareas != null) {
+            tareas.shutdownNow();
+        }
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    // Aparta cantidad unidades más del producto para el usuario y renueva el vencimiento de su reserva.
+    // false si no hay tantas libres (stock menos lo reservado por todos) o el producto no existe.
+    public boolean reservar(Long usuarioId, Long productoId, int cantidad) {
+        while (true) {
+            Map<Long, Reserva> delUsuario = reservas.computeIfAbsent(usuarioId, id -> new HashMap<>());
+            synchronized (delUsuario) {
+                if (reservas.get(usuarioId) != delUsuario) {
+                    continue;
+                }
+                if (!apartar(productoId, cantidad)) {
+                    quitarSiVacio(usuarioId, delUsuario);
+                    return false;
+                }
+                Reserva reserva = delUsuario.computeIfAbsent(productoId, id -> new Reserva(usuarioId, productoId));
+                reserva.cantidad += cantidad;
+                renovar(reserva);
+                return true;
+            }
+        }
+    }
+
+    // Lleva la reserva del producto a exactamente cantidad unidades (cambio de cantidad en el carrito).
+    // false si para subirla no alcanzan las libres; en ese caso la reserva queda como estaba.
+    public boolean fijar(Long usuarioId, Long productoId, int cantidad) {
+        while (true) {
+            Map<Long, Reserva> delUsuario = reservas.computeIfAbsent(usuarioId, id -> new HashMap<>());
+            synchronized (delUsuario) {
+                if (reservas.get(usuarioId) != delUsuario) {
+                    continue;
+                }
+                Reserva reserva = delUsuario.computeIfAbsent(productoId, id -> new Reserva(usuarioId, productoId));
+                int diferencia = cantidad - reserva.cantidad;
+                if (diferencia > 0 && !apartar(productoId, diferencia)) {
+                    if (reserva.cantidad == 0) {
+                        delUsuario.remove(productoId);
+                        quitarSiVacio(usuarioId, delUsuario);
+                    }
+                    return false;
+                }
+                if (diferencia < 0) {
+                    devolver(productoId, -diferencia);
+                }
+                reserva.cantidad = cantidad;
+                renovar(reserva);
+                return true;
+            }
+        }
+    }
+
+    // Devuelve unidades de la reserva (p. ej. si el alta en el carrito falló después de reservar)
+    public void liberar(Long usuarioId, Long productoId, int cantidad) {
+        Map<Long, Reserva> delUsuario = reservas.get(usuarioId);
+        if (delUsuario == null) {
+            return;
+        }
+        synchronized (delUsuario) {
+            Reserva reserva = delUsuario.get(productoId);
+            if (reserva == null) {
+                return;
+            }
+            int devueltas = Math.min(cantidad, reserva.cantidad);
+            reserva.cantidad -= devueltas;
+            devolver(productoId, devueltas);
+            if (reserva.cantidad == 0) {
+                delUsuario.remove(productoId);
+                quitarSiVacio(usuarioId, delUsuario);
+            }
+        }
+    }
+
+    public void liberar(Long usuarioId, Long productoId) {
+        liberar(usuarioId, productoId, Integer.MAX_VALUE);
+    }
+
+    public void liberarTodo(Long usuarioId) {
+        Map<Long, Reserva> delUsuario = reservas.remove(usuarioId);
+        if (delUsuario == null) {
+            return;
+        }
+        synchronized (delUsuario) {
+            delUsuario.values().forEach(reserva -> devolver(reserva.productoId, reserva.cantidad));
+            delUsuario.clear();
+        }
+    }
+
+    // Unidades que todavía se pueden reservar (puede ser negativo si el stock bajó por debajo de lo reservado)
+    public int disponible(Long productoId) {
+        while (true) {
+            long estado = contador(productoId).estado.get();
+            if (estado != RETIRADO) {
+                return stock(estado) - reservado(estado);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductoChanged(ProductoChangedEvent event) {
+        if (activo && contadores.containsKey(event.getProductoId())) {
+            reconciliar(List.of(event.getProductoId()));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        if (activo) {
+            reconciliar(event.getProductoIds().stream().filter(contadores::containsKey).collect(Collectors.toList()));
+        }
+    }
+
+    // Una venta baja el stock: el contador lo toma ya, sin esperar a la reconciliación periódica
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStockDescontado(StockDescontadoEvent event) {
+        if (activo) {
+            reconciliar(event.getProductoIds().stream().filter(contadores::containsKey).collect(Collectors.toList()));
+        }
+    }
+
+    // compareAndSet sobre el contador del producto: sin locks aunque muchos carritos compitan por el mismo
+    private boolean apartar(Long productoId, int cantidad) {
+        while (true) {
+            Contador contador = contador(productoId);
+            long estado = contador.estado.get();
+            if (estado == RETIRADO) {
+                continue;
+            }
+            if (stock(estado) - reservado(estado) < cantidad) {
+                return false;
+            }
+            if (contador.estado.compareAndSet(estado, empaquetar(stock(estado), reservado(estado) + cantidad))) {
+                return true;
+            }
+        }
+    }
+
+    private void devolver(Long productoId, int cantidad) {
+        if (cantidad == 0) {
+            return;
+        }
+        while (true) {
+            Contador contador = contador(productoId);
+            long estado = contador.estado.get();
+            if (estado == RETIRADO) {
+                continue;
+            }
+            int reservado = Math.max(0, reservado(estado) - cantidad);
+            if (contador.estado.compareAndSet(estado, empaquetar(stock(estado), reservado))) {
+                return;
+            }
+        }
+    }
+
+    // El contador se crea la primera vez que se reserva el producto, con el stock de la base (0 si no existe)
+    private Contador contador(Long productoId) {
+        Contador contador = contadores.get(productoId);
+        if (contador != null) {
+            return contador;
+        }
+        int stock = productoRepository.findStockByIdIn(List.of(productoId)).stream()
+            .findFirst()
+            .map(ProductoStockView::getStock)
+            .orElse(0);
+        Contador nuevo = new Contador(stock);
+        Contador anterior = contadores.putIfAbsent(productoId, nuevo);
+        return anterior != null ? anterior : nuevo;
+    }
+
+    // Con el monitor de delUsuario tomado. Quien lo tenía en la mano y lo encuentra fuera del mapa reintenta.
+    private void quitarSiVacio(Long usuarioId, Map<Long, Reserva> delUsuario) {
+        if (delUsuario.isEmpty()) {
+            reservas.remove(usuarioId, delUsuario);
+        }
+    }
+
+    private void renovar(Reserva reserva) {
+        reserva.venceMs = System.currentTimeMillis() + ttlMs;
+        // La entrada anterior de la rueda queda y se ignora al llegar (ver vencer)
+        vencimientos.programar(reserva, reserva.venceMs);
+    }
+
+    private void vencer() {
+        try {
+            long ahora = System.currentTimeMillis();
+            vencimientos.avanzar(ahora, reserva -> {
+                Map<Long, Reserva> delUsuario = reservas.get(reserva.usuarioId);
+                if (delUsuario == null) {
+                    return;
+                }
+                synchronized (delUsuario) {
+                    // Otra reserva del mismo producto (se liberó y se volvió a crear) o una renovada siguen vigentes
+                    if (delUsuario.get(reserva.productoId) != reserva || reserva.venceMs > ahora) {
+                        return;
+                    }
+                    delUsuario.remove(reserva.productoId);
+                    devolver(reserva.productoId, reserva.cantidad);
+                    quitarSiVacio(reserva.usuarioId, delUsuario);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Reservas de stock: falló el vencimiento de reservas", e);
+        }
+    }
+
+    private void reconciliarProgramado() {
+        try {
+            reconciliar(new ArrayList<>(contadores.keySet()));
+        } catch (RuntimeException e) {
+            log.error("Reservas de stock: falló la reconciliación con la base", e);
+        }
+    }
+
+    // Toma el stock actual de la base sin tocar lo reservado. Los contadores sin reservas se retiran:
+    // se vuelven a crear (y a leer) con la próxima reserva del producto.
+    private void reconciliar(List<Long> productoIds) {
+        for (int desde = 0; desde < productoIds.size(); desde += LOTE_RECONCILIACION) {
+            List<Long> lote = productoIds.subList(desde, Math.min(desde + LOTE_RECONCILIACION, productoIds.size()));
+            Map<Long, Integer> stocks = productoRepository.findStockByIdIn(lote).stream()
+                .collect(Collectors.toMap(ProductoStockView::getId, ProductoStockView::getStock));
+            for (Long productoId : lote) {
+                Contador contador = contadores.get(productoId);
+                if (contador == null) {
+                    continue;
+                }
+                int stock = stocks.getOrDefault(productoId, 0);
+                while (true) {
+                    long estado = contador.estado.get();
+                    if (estado == RETIRADO) {
+                        break;
+                    }
+                    if (reservado(estado) == 0) {
+                        if (contador.estado.compareAndSet(estado, RETIRADO)) {
+                            contadores.remove(productoId, contador);
+                            break;
+                        }
+                    } else if (contador.estado.compareAndSet(estado, empaquetar(stock, reservado(estado)))) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static long empaquetar(int stock, int reservado) {
+        return ((long) stock << 32) | (reservado & 0xFFFFFFFFL);
+    }
+
+    private static int stock(long estado) {
+        return (int) (estado >> 32);
+    }
+
+    private static int reservado(long estado) {
+        return (int) estado;
+    }
+}
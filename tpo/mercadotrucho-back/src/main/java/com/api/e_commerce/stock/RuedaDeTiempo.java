@@ -0,0 +1,69 @@
+package com.api.e_commerce.stock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+// Rueda de tiempo (hashed timing wheel) para vencimientos: programar es O(1) sin locks y cada tick
+// revisa solo la ranura que le toca, en lugar de recorrer todos los elementos pendientes.
+// Un vencimiento más lejano que una vuelta completa queda en su ranura y se saltea hasta su vuelta.
+// No hay cancelación: quien recibe el vencimiento decide si sigue vigente (por ejemplo, si se renovó).
+class RuedaDeTiempo<T> {
+
+    private static final class Entrada<T> {
+        private final T elemento;
+        private final long venceMs;
+
+        Entrada(T elemento, long venceMs) {
+            this.elemento = elemento;
+            this.venceMs = venceMs;
+        }
+    }
+
+    private final long tickMs;
+    private final List<Queue<Entrada<T>>> ranuras;
+    // Último tick procesado; solo lo escribe el hilo que llama a avanzar
+    private volatile long tickActual;
+
+    RuedaDeTiempo(long tickMs, int cantidadRanuras, long ahoraMs) {
+        this.tickMs = tickMs;
+        this.ranuras = new ArrayList<>(cantidadRanuras);
+        for (int i = 0; i < cantidadRanuras; i++) {
+            ranuras.add(new ConcurrentLinkedQueue<>());
+        }
+        this.tickActual = ahoraMs / tickMs;
+    }
+
+    // Va a la ranura del primer tick que termina en venceMs o después, así al procesarla ya está vencido
+    // (con la del tick en que cae, casi siempre seguiría vigente y esperaría una vuelta entera). Un
+    // vencimiento dentro de un tick ya procesado va al siguiente.
+    void programar(T elemento, long venceMs) {
+        long tick = Math.max(Math.floorDiv(venceMs + tickMs - 1, tickMs), tickActual + 1);
+        ranuras.get((int) Math.floorMod(tick, (long) ranuras.size())).add(new Entrada<>(elemento, venceMs));
+    }
+
+    // Entrega los elementos vencidos hasta ahoraMs. Un solo hilo a la vez.
+    void avanzar(long ahoraMs, Consumer<T> vencido) {
+        long hasta = ahoraMs / tickMs;
+        // Si el hilo se atrasó más de una vuelta alcanza con recorrer cada ranura una vez
+        long desde = Math.max(tickActual + 1, hasta - ranuras.size() + 1);
+        for (long tick = desde; tick <= hasta; tick++) {
+            Queue<Entrada<T>> ranura = ranuras.get((int) Math.floorMod(tick, (long) ranuras.size()));
+            // Solo las que estaban al empezar: las que se reprograman a esta ranura se ven en la próxima vuelta
+            for (int i = ranura.size(); i > 0; i--) {
+                Entrada<T> entrada = ranura.poll();
+                if (entrada == null) {
+                    break;
+                }
+                if (entrada.venceMs <= ahoraMs) {
+                    vencido.accept(entrada.elemento);
+                } else {
+                    ranura.add(entrada);
+                }
+            }
+        }
+        tickActual = hasta;
+    }
+}
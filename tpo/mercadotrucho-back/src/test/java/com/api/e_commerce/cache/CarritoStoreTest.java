@@ -0,0 +1,95 @@
+package com.api.e_commerce.cache;
+
+import com.api.e_commerce.dao.CarritoDAO;
+import com.api.e_commerce.dao.IdGeneradorDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Recuperación del log al arrancar: lo que quedó escrito antes de una caída se reaplica y se vuelca
+class CarritoStoreTest {
+
+    private static final Long USUARIO_ID = 7L;
+    private static final Long CARRITO_ID = 70L;
+    private static final Long PEDIDO_ID = 5L;
+
+    @TempDir
+    Path directorio;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private CarritoDAO carritoDAO;
+    private CarritoStore carritoStore;
+
+    @BeforeEach
+    void setUp() {
+        carritoDAO = mock(CarritoDAO.class);
+        LocalDateTime creado = LocalDateTime.now().minusDays(1);
+        when(carritoDAO.cargar(CARRITO_ID))
+            .thenReturn(Optional.of(new CarritoEnMemoria(CARRITO_ID, USUARIO_ID, creado, creado)));
+        when(carritoDAO.cargarItems(CARRITO_ID)).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (carritoStore != null) {
+            carritoStore.cerrar();
+        }
+    }
+
+    @Test
+    void checkoutConfirmadoNoDevuelveLosItemsComprados() throws Exception {
+        escribirPonerYCheckout();
+        when(carritoDAO.existePedido(PEDIDO_ID)).thenReturn(true);
+
+        assertTrue(recuperado().getItems().isEmpty());
+    }
+
+    @Test
+    void checkoutSinPedidoConfirmadoDejaElCarrito() throws Exception {
+        escribirPonerYCheckout();
+        when(carritoDAO.existePedido(PEDIDO_ID)).thenReturn(false);
+
+        List<CarritoEnMemoria.Item> items = recuperado().getItems();
+        assertEquals(1, items.size());
+        assertEquals(100L, items.get(0).getProductoId());
+    }
+
+    // Lo que deja un checkout que cayó entre el commit del pedido y el vaciado en memoria
+    private void escribirPonerYCheckout() throws Exception {
+        LocalDateTime momento = LocalDateTime.now();
+        try (CarritoLog log = new CarritoLog(directorio, false, objectMapper)) {
+            log.escribir(new CarritoLog.Registro(CarritoLog.Operacion.PONER, USUARIO_ID, CARRITO_ID, 1L, 100L, 2,
+                new BigDecimal("10.00"), momento, momento, null));
+            log.escribir(new CarritoLog.Registro(CarritoLog.Operacion.CHECKOUT, USUARIO_ID, CARRITO_ID, null, null,
+                null, null, null, momento, PEDIDO_ID));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CarritoEnMemoria recuperado() throws Exception {
+        carritoStore = new CarritoStore(carritoDAO, mock(IdGeneradorDAO.class), objectMapper,
+            mock(PlatformTransactionManager.class), true, directorio.toString(), false, 60_000, 30);
+        carritoStore.iniciar();
+
+        ArgumentCaptor<List<CarritoEnMemoria>> volcados = ArgumentCaptor.forClass(List.class);
+        verify(carritoDAO).guardar(volcados.capture());
+        assertEquals(1, volcados.getValue().size());
+        return volcados.getValue().get(0);
+    }
+}
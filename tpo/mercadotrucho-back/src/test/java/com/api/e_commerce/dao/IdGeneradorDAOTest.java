@@ -0,0 +1,110 @@
+package com.api.e_commerce.dao;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// La fila de id_generador es un AtomicLong y el FOR UPDATE, un lock que se toma al abrir la transacción
+// y se suelta en el commit
+class IdGeneradorDAOTest {
+
+    private final AtomicLong fila = new AtomicLong(1);
+    private JdbcTemplate jdbcTemplate;
+    private IdGeneradorDAO idGeneradorDAO;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq("carrito_item")))
+            .thenAnswer(invocation -> fila.get());
+        when(jdbcTemplate.update(anyString(), any(Long.class), eq("carrito_item")))
+            .thenAnswer(invocation -> {
+                fila.set(invocation.getArgument(1));
+                return 1;
+            });
+
+        ReentrantLock filaBloqueada = new ReentrantLock();
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            filaBloqueada.lock();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> {
+            filaBloqueada.unlock();
+            return null;
+        }).when(transactionManager).commit(any());
+
+        idGeneradorDAO = new IdGeneradorDAO(jdbcTemplate, transactionManager, mock(EntityManagerFactory.class));
+    }
+
+    @Test
+    void reservarDevuelveElPrimeroYCorreLaFila() {
+        assertEquals(1, idGeneradorDAO.reservar("carrito_item", 10));
+        assertEquals(11, idGeneradorDAO.reservar("carrito_item", 5));
+        assertEquals(16, fila.get());
+    }
+
+    @Test
+    void siguienteVaALaBaseUnaVezPorBloque() {
+        for (long esperado = 1; esperado <= 120; esperado++) {
+            assertEquals(esperado, idGeneradorDAO.siguiente("carrito_item"));
+        }
+
+        // 120 ids en bloques de 50: tres reservas
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Long.class), eq("carrito_item"));
+        assertEquals(151, fila.get());
+    }
+
+    @Test
+    void hilosConcurrentesNoRepitenIds() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> tareas = new ArrayList<>();
+            for (int h = 0; h < 8; h++) {
+                tareas.add(hilos.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        ids.add(idGeneradorDAO.siguiente("carrito_item"));
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> distintos = new HashSet<>();
+            for (Future<List<Long>> tarea : tareas) {
+                distintos.addAll(tarea.get());
+            }
+            assertEquals(8 * 500, distintos.size());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void entidadSinGenerador() {
+        assertThrows(IllegalArgumentException.class, () -> idGeneradorDAO.reservar("producto_cambio", 1));
+    }
+}
@@ -0,0 +1,171 @@
+package com.api.e_commerce.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RuteoDataSourceTest {
+
+    private static final String REPLICA = "replica-1";
+
+    private ReplicaMonitor monitor;
+    private RuteoDataSource ruteo;
+
+    @BeforeEach
+    void setUp() {
+        monitor = mock(ReplicaMonitor.class);
+        when(monitor.elegir()).thenReturn(new ReplicaMonitor.Replica(REPLICA, mock(DataSource.class)));
+        ruteo = new RuteoDataSource(monitor, new EscriturasRecientes(60_000));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.clear();
+        new ArrayList<>(TransactionSynchronizationManager.getResourceMap().keySet())
+            .forEach(TransactionSynchronizationManager::unbindResourceIfPossible);
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sinTransaccionVaALaPrimaria() {
+        assertEquals(RuteoDataSource.PRIMARIA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void escrituraVaALaPrimaria() {
+        iniciarTransaccion(false);
+        assertEquals(RuteoDataSource.PRIMARIA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void lecturaDeUnRequestVaAUnaReplica() {
+        iniciarTransaccion(true);
+        assertEquals(REPLICA, ruteo.determineCurrentLookupKey());
+        assertTrue(RuteoDataSource.enReplica());
+    }
+
+    @Test
+    void laMarcaDeReplicaSeQuitaAlTerminarLaTransaccion() {
+        iniciarTransaccion(true);
+        ruteo.determineCurrentLookupKey();
+        completar(TransactionSynchronization.STATUS_COMMITTED);
+        assertFalse(RuteoDataSource.enReplica());
+    }
+
+    @Test
+    void lecturaFueraDeUnRequestVaALaPrimaria() {
+        RequestContextHolder.resetRequestAttributes();
+        iniciarTransaccion(true);
+        assertEquals(RuteoDataSource.PRIMARIA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void lecturaForzadaVaALaPrimaria() {
+        iniciarTransaccion(true);
+        assertEquals(RuteoDataSource.PRIMARIA, RuteoDataSource.enPrimaria(ruteo::determineCurrentLookupKey));
+        assertFalse(RuteoDataSource.enReplica());
+        // Fuera de enPrimaria vuelve a elegirse réplica
+        assertEquals(REPLICA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void sinReplicasDisponiblesVaALaPrimaria() {
+        when(monitor.elegir()).thenReturn(null);
+        iniciarTransaccion(true);
+        assertEquals(RuteoDataSource.PRIMARIA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void elUsuarioQueEscribioLeeDeLaPrimaria() {
+        autenticar();
+        escribirYConfirmar();
+
+        iniciarTransaccion(true);
+        assertEquals(RuteoDataSource.PRIMARIA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void unaEscrituraRevertidaNoAbreLaVentana() {
+        autenticar();
+        iniciarTransaccion(false);
+        ruteo.determineCurrentLookupKey();
+        completar(TransactionSynchronization.STATUS_ROLLED_BACK);
+        tearDownTransaccion();
+
+        iniciarTransaccion(true);
+        assertEquals(REPLICA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void otroUsuarioSigueLeyendoDeLaReplica() {
+        autenticar();
+        escribirYConfirmar();
+
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("otro@mail.com", null, AuthorityUtils.NO_AUTHORITIES));
+        iniciarTransaccion(true);
+        assertEquals(REPLICA, ruteo.determineCurrentLookupKey());
+    }
+
+    @Test
+    void lasEscriturasAnonimasNoFijanLaPrimaria() {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+            "clave", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        escribirYConfirmar();
+
+        iniciarTransaccion(true);
+        assertEquals(REPLICA, ruteo.determineCurrentLookupKey());
+    }
+
+    private void autenticar() {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("usuario@mail.com", null, AuthorityUtils.NO_AUTHORITIES));
+    }
+
+    private void escribirYConfirmar() {
+        iniciarTransaccion(false);
+        ruteo.determineCurrentLookupKey();
+        completar(TransactionSynchronization.STATUS_COMMITTED);
+        tearDownTransaccion();
+    }
+
+    private void iniciarTransaccion(boolean readOnly) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private void completar(int status) {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            sincronizacion.afterCompletion(status);
+        }
+    }
+
+    private void tearDownTransaccion() {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.clear();
+    }
+}
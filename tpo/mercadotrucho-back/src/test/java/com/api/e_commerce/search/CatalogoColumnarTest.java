@@ -0,0 +1,198 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.datasource.LecturaPrimaria;
+import com.api.e_commerce.dto.producto.FacetasDTO;
+import com.api.e_commerce.dto.producto.FiltroProductos;
+import com.api.e_commerce.dto.producto.ProductoFiltroView;
+import com.api.e_commerce.event.StockDescontadoEvent;
+import com.api.e_commerce.model.Categoria;
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// El catálogo arranca vacío (la base no devuelve nada) y los productos se ponen a mano
+class CatalogoColumnarTest {
+
+    private static final LocalDateTime AHORA = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private ProductoRepository productoRepository;
+    private CatalogoColumnar catalogo;
+
+    @BeforeEach
+    void setUp() {
+        productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findFiltroByIdGreaterThan(anyLong(), any())).thenReturn(List.of());
+        catalogo = new CatalogoColumnar(productoRepository, mock(ProductoSearchIndex.class),
+            new LecturaPrimaria(mock(PlatformTransactionManager.class)));
+        catalogo.construir();
+
+        catalogo.poner(producto(1L, "Celulares", "100000", 5, true, Producto.ConditionType.new_, 1));
+        catalogo.poner(producto(2L, "Celulares", "300000", 0, false, Producto.ConditionType.used, 2));
+        catalogo.poner(producto(3L, "Notebooks", "800000", 2, true, Producto.ConditionType.new_, 3));
+        catalogo.poner(producto(4L, "Notebooks", "1500000", 1, false, Producto.ConditionType.used, 4));
+        catalogo.poner(producto(5L, "Celulares", "40000", 3, false, Producto.ConditionType.new_, 5));
+    }
+
+    @Test
+    void paginaDespuesDelUltimoResultadoVieneVaciaConElTotal() {
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(new FiltroProductos(), 1_000_000_000L, 10).orElseThrow();
+
+        assertTrue(resultado.getIds().isEmpty());
+        assertEquals(5, resultado.getTotal());
+    }
+
+    @Test
+    void offsetMasAllaDeUnIntNoDesborda() {
+        long offset = (long) Integer.MAX_VALUE * 10;
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrarConFacetas(new FiltroProductos(), offset, 10).orElseThrow();
+
+        assertTrue(resultado.getIds().isEmpty());
+        assertEquals(5, resultado.getTotal());
+    }
+
+    @Test
+    void ultimaPaginaIncompleta() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setOrden(FiltroProductos.Orden.precio_asc);
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(filtro, 4, 10).orElseThrow();
+
+        assertEquals(List.of(4L), resultado.getIds());
+    }
+
+    @Test
+    void categoriaYStockFiltranJuntos() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategory("Celulares");
+        filtro.setEnStock(true);
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(filtro, 0, 10).orElseThrow();
+
+        assertEquals(List.of(5L, 1L), resultado.getIds());
+        assertEquals(2, resultado.getTotal());
+    }
+
+    @Test
+    void rangoDePrecioIncluyeLosExtremos() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setMinPrice(100_000);
+        filtro.setMaxPrice(800_000);
+
+        assertEquals(List.of(3L, 2L, 1L), catalogo.filtrar(filtro, 0, 10).orElseThrow().getIds());
+    }
+
+    @Test
+    void envioGratisYCondicionSonBitsets() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setFreeShipping(false);
+        filtro.setCondition(Producto.ConditionType.used);
+        filtro.setOrden(FiltroProductos.Orden.precio_desc);
+
+        assertEquals(List.of(4L, 2L), catalogo.filtrar(filtro, 0, 10).orElseThrow().getIds());
+    }
+
+    @Test
+    void categoriaDesconocidaNoDevuelveNada() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategory("Inexistente");
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(filtro, 0, 10).orElseThrow();
+
+        assertTrue(resultado.getIds().isEmpty());
+        assertEquals(0, resultado.getTotal());
+    }
+
+    @Test
+    void unaVentaReleeElStock() {
+        ProductoFiltroView vendido = mock(ProductoFiltroView.class);
+        when(vendido.getId()).thenReturn(1L);
+        when(vendido.getCategoriaName()).thenReturn("Celulares");
+        when(vendido.getPrice()).thenReturn(new BigDecimal("100000"));
+        when(vendido.getStock()).thenReturn(0);
+        when(vendido.getFreeShipping()).thenReturn(true);
+        when(vendido.getConditionType()).thenReturn(Producto.ConditionType.new_);
+        when(vendido.getCreatedAt()).thenReturn(AHORA.plusMinutes(1));
+        when(productoRepository.findFiltroByIdIn(List.of(1L))).thenReturn(List.of(vendido));
+
+        catalogo.onStockDescontado(new StockDescontadoEvent(List.of(1L)));
+
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategory("Celulares");
+        filtro.setEnStock(true);
+        assertEquals(List.of(5L), catalogo.filtrar(filtro, 0, 10).orElseThrow().getIds());
+    }
+
+    @Test
+    void cadaFacetaSeCuentaSinSuPropioFiltro() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setCategory("Celulares");
+        filtro.setFreeShipping(true);
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrarConFacetas(filtro, 0, 10).orElseThrow();
+        FacetasDTO facetas = resultado.getFacetas();
+
+        assertEquals(List.of(1L), resultado.getIds());
+        // Categorías: solo con envío gratis (1 y 3)
+        assertEquals(Map.of("Celulares", 1L, "Notebooks", 1L), facetas.getCategorias());
+        // Envío: solo Celulares (1, 2 y 5)
+        assertEquals(Map.of("true", 1L, "false", 2L), facetas.getEnvioGratis());
+        // Condición y precio: con los dos filtros (solo el 1)
+        assertEquals(Map.of("new_", 1L, "used", 0L), facetas.getCondicion());
+        assertEquals(List.of(0L, 1L, 0L, 0L, 0L),
+            facetas.getPrecios().stream().map(FacetasDTO.RangoPrecio::getCantidad).toList());
+    }
+
+    @Test
+    void elFiltroDeStockSeAplicaATodasLasFacetas() {
+        FiltroProductos filtro = new FiltroProductos();
+        filtro.setEnStock(true);
+
+        FacetasDTO facetas = catalogo.filtrarConFacetas(filtro, 0, 10).orElseThrow().getFacetas();
+
+        assertEquals(Map.of("Celulares", 2L, "Notebooks", 2L), facetas.getCategorias());
+        assertEquals(Map.of("new_", 3L, "used", 1L), facetas.getCondicion());
+    }
+
+    @Test
+    void rangosDePrecioConSusLimites() {
+        List<FacetasDTO.RangoPrecio> precios =
+            catalogo.filtrarConFacetas(new FiltroProductos(), 0, 10).orElseThrow().getFacetas().getPrecios();
+
+        assertEquals(List.of(
+            new FacetasDTO.RangoPrecio(null, 50_000, 1),
+            new FacetasDTO.RangoPrecio(50_000, 200_000, 1),
+            new FacetasDTO.RangoPrecio(200_000, 500_000, 1),
+            new FacetasDTO.RangoPrecio(500_000, 1_000_000, 1),
+            new FacetasDTO.RangoPrecio(1_000_000, null, 1)), precios);
+    }
+
+    private static Producto producto(Long id, String categoria, String precio, int stock, boolean envioGratis,
+                                     Producto.ConditionType condicion, int minutos) {
+        Categoria cat = new Categoria();
+        cat.setName(categoria);
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setCategoria(cat);
+        producto.setPrice(new BigDecimal(precio));
+        producto.setStock(stock);
+        producto.setFreeShipping(envioGratis);
+        producto.setConditionType(condicion);
+        producto.setCreatedAt(AHORA.plusMinutes(minutos));
+        return producto;
+    }
+}
@@ -0,0 +1,81 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.repository.ProductoRepository;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Paginado por cursor (puntaje, id): recorrer todas las páginas da la misma lista que una sola consulta
+class ProductoSearchIndexTest {
+
+    private ProductoSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findTextoByIdGreaterThan(anyLong(), any())).thenReturn(List.of());
+        index = new ProductoSearchIndex(productoRepository, mock(ProductoTagRepository.class));
+        index.construir();
+
+        // Varios empates de puntaje: el cursor los separa por id
+        index.indexar(producto(1L, "Celular Samsung", "usado"), List.of());
+        index.indexar(producto(2L, "Funda", "para celular"), List.of());
+        index.indexar(producto(3L, "Celular Motorola", "nuevo"), List.of("celular"));
+        index.indexar(producto(4L, "Cargador", "celular y tablet"), List.of());
+        index.indexar(producto(5L, "Celular Xiaomi", "nuevo"), List.of());
+        index.indexar(producto(6L, "Auriculares", "inalambricos"), List.of("celular"));
+        index.indexar(producto(7L, "Celular Nokia", "clasico"), List.of());
+    }
+
+    @Test
+    void recorrerPorCursorNoSaltaNiRepite() {
+        List<Long> completa = index.buscar("celular", 0, 100).orElseThrow().getIds();
+        assertEquals(7, completa.size());
+
+        List<Long> recorrida = new ArrayList<>();
+        ProductoSearchIndex.Resultado pagina = index.buscar("celular", 0, 2).orElseThrow();
+        while (!pagina.getIds().isEmpty()) {
+            recorrida.addAll(pagina.getIds());
+            int ultimo = pagina.getIds().size() - 1;
+            pagina = index.buscarDespuesDe("celular", pagina.getPuntajes().get(ultimo), pagina.getIds().get(ultimo), 2)
+                .orElseThrow();
+        }
+
+        assertEquals(completa, recorrida);
+    }
+
+    @Test
+    void unAltaAnteriorAlCursorNoSeRepite() {
+        ProductoSearchIndex.Resultado primera = index.buscar("celular", 0, 3).orElseThrow();
+        int ultimo = primera.getIds().size() - 1;
+
+        // Mismo puntaje que los primeros y un id mayor: queda antes del cursor
+        index.indexar(producto(8L, "Celular Alcatel", "nuevo"), List.of("celular"));
+        List<Long> siguiente = index.buscarDespuesDe("celular", primera.getPuntajes().get(ultimo),
+            primera.getIds().get(ultimo), 100).orElseThrow().getIds();
+
+        assertTrue(siguiente.stream().noneMatch(primera.getIds()::contains));
+        assertFalse(siguiente.contains(8L));
+        assertEquals(7 - primera.getIds().size(), siguiente.size());
+    }
+
+    private static Producto producto(Long id, String titulo, String descripcion) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setTitle(titulo);
+        producto.setDescription(descripcion);
+        return producto;
+    }
+}
@@ -0,0 +1,85 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.dto.producto.ProductoSugerenciaView;
+import com.api.e_commerce.dto.producto.SugerenciaDTO;
+import com.api.e_commerce.event.FavoritoChangedEvent;
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.repository.ProductoRepository;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// La popularidad ordena las sugerencias: favoritos para los productos, cantidad de productos para las categorías
+class SugerenciasIndexTest {
+
+    private SugerenciasIndex index;
+
+    @BeforeEach
+    void setUp() {
+        List<ProductoSugerenciaView> productos = List.of(
+            producto(1L, "Funda iPhone 15", "Celulares", 3L),
+            producto(2L, "Funda Samsung", "Celulares", 10L),
+            producto(3L, "Fuente de poder", "Computacion", 0L));
+        ProductoRepository productoRepository = mock(ProductoRepository.class);
+        when(productoRepository.findSugerenciaByIdGreaterThan(anyLong(), any())).thenReturn(productos);
+        ProductoTagRepository productoTagRepository = mock(ProductoTagRepository.class);
+        when(productoTagRepository.findByProductoIdIn(any())).thenReturn(List.of());
+
+        index = new SugerenciasIndex(productoRepository, productoTagRepository);
+        index.construir();
+    }
+
+    @Test
+    void elMasFavoritoVaPrimero() {
+        assertEquals(List.of("Funda Samsung", "Funda iPhone 15"), textos("fun"));
+        assertEquals(List.of("Funda Samsung", "Funda iPhone 15", "Fuente de poder"), textos("fu"));
+    }
+
+    @Test
+    void sumarFavoritosReordena() {
+        for (int i = 0; i < 8; i++) {
+            index.onFavoritoChanged(new FavoritoChangedEvent(50L + i, 1L, true));
+        }
+
+        assertEquals(List.of("Funda iPhone 15", "Funda Samsung"), textos("fun"));
+    }
+
+    @Test
+    void tambienDesdeCadaPalabra() {
+        assertEquals(List.of("Funda iPhone 15"), textos("IPH"));
+    }
+
+    @Test
+    void categoriasPorCantidadDeProductos() {
+        assertEquals(List.of("Celulares", "Computacion"), textos("c"));
+
+        index.onProductoChanged(new ProductoChangedEvent(1L, ProductoChangedEvent.Type.DELETED));
+        index.onProductoChanged(new ProductoChangedEvent(2L, ProductoChangedEvent.Type.DELETED));
+
+        assertEquals(List.of("Computacion"), textos("c"));
+    }
+
+    private List<String> textos(String prefijo) {
+        return index.sugerir(prefijo, SugerenciasIndex.MAX_SUGERENCIAS).orElseThrow().stream()
+            .map(SugerenciaDTO::getTexto)
+            .collect(Collectors.toList());
+    }
+
+    private static ProductoSugerenciaView producto(Long id, String titulo, String categoria, Long favoritos) {
+        ProductoSugerenciaView producto = mock(ProductoSugerenciaView.class);
+        when(producto.getId()).thenReturn(id);
+        when(producto.getTitle()).thenReturn(titulo);
+        when(producto.getCategoriaName()).thenReturn(categoria);
+        when(producto.getFavoritos()).thenReturn(favoritos);
+        return producto;
+    }
+}
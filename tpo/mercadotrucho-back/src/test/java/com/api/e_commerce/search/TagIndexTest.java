@@ -0,0 +1,131 @@
+package com.api.e_commerce.search;
+
+import com.api.e_commerce.event.ProductoChangedEvent;
+import com.api.e_commerce.model.ProductoTag;
+import com.api.e_commerce.repository.ProductoTagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagIndexTest {
+
+    private ProductoTagRepository productoTagRepository;
+    private TagIndex tagIndex;
+
+    @BeforeEach
+    void setUp() {
+        productoTagRepository = mock(ProductoTagRepository.class);
+        tagIndex = new TagIndex(productoTagRepository);
+    }
+
+    @Test
+    void paginaDespuesDelUltimoResultadoVieneVacia() {
+        cargar(tag(1L, 1L, "gamer"), tag(2L, 2L, "gamer"), tag(3L, 3L, "gamer"));
+
+        TagIndex.Resultado resultado = tagIndex.buscar(List.of("gamer"), true, 3, 10).orElseThrow();
+
+        assertTrue(resultado.getIds().isEmpty());
+        assertEquals(3, resultado.getTotal());
+    }
+
+    @Test
+    void offsetQueDesbordaUnIntNoRompe() {
+        cargar(tag(1L, 1L, "gamer"), tag(2L, 2L, "gamer"));
+
+        // page=300000000&size=10: el offset ya no entra en un int
+        TagIndex.Resultado resultado = tagIndex.buscar(List.of("gamer"), true, 3_000_000_000L, 10).orElseThrow();
+
+        assertTrue(resultado.getIds().isEmpty());
+        assertEquals(2, resultado.getTotal());
+    }
+
+    @Test
+    void paginaDelMasNuevoAlMasViejo() {
+        cargar(tag(1L, 1L, "gamer"), tag(2L, 2L, "gamer"), tag(3L, 3L, "gamer"));
+
+        assertEquals(List.of(2L, 1L), tagIndex.buscar(List.of("gamer"), true, 1, 10).orElseThrow().getIds());
+    }
+
+    @Test
+    void postingsConDiferenciasDeVariosBytes() {
+        TagIndex.Postings postings = new TagIndex.Postings();
+        long[] ids = {1L, 127L, 128L, 16_511L, 1L << 40, Long.MAX_VALUE};
+        for (long id : ids) {
+            postings.agregar(id);
+        }
+
+        assertArrayEquals(ids, postings.decodificar());
+        assertEquals(ids.length, postings.cantidad());
+    }
+
+    @Test
+    void postingsInsertaFueraDeOrdenSinRepetir() {
+        TagIndex.Postings postings = new TagIndex.Postings();
+        postings.agregar(500L);
+        postings.agregar(10L);
+        postings.agregar(300L);
+        postings.agregar(10L);
+        postings.agregar(500L);
+
+        assertArrayEquals(new long[] {10L, 300L, 500L}, postings.decodificar());
+    }
+
+    @Test
+    void postingsQuitaYSigueAgregandoAlFinal() {
+        TagIndex.Postings postings = new TagIndex.Postings();
+        postings.agregar(5L);
+        postings.agregar(200L);
+        postings.agregar(90_000L);
+
+        postings.quitar(200L);
+        postings.quitar(7L);
+        assertArrayEquals(new long[] {5L, 90_000L}, postings.decodificar());
+
+        // El último id tiene que seguir siendo 90000 para que el append codifique bien la diferencia
+        postings.agregar(90_001L);
+        postings.quitar(90_000L);
+        postings.quitar(5L);
+        postings.quitar(90_001L);
+        assertEquals(0, postings.cantidad());
+        postings.agregar(3L);
+        assertArrayEquals(new long[] {3L}, postings.decodificar());
+    }
+
+    @Test
+    void todosIntersectaYAlgunoUne() {
+        cargar(tag(1L, 1L, "gamer"), tag(2L, 1L, "rgb"), tag(3L, 2L, "gamer"), tag(4L, 3L, "rgb"));
+
+        assertEquals(List.of(1L), tagIndex.buscar(List.of("gamer", "rgb"), true, 0, 10).orElseThrow().getIds());
+        assertEquals(List.of(3L, 2L, 1L), tagIndex.buscar(List.of("gamer", "rgb"), false, 0, 10).orElseThrow().getIds());
+    }
+
+    @Test
+    void reindexarUnProductoCambiaSusListas() {
+        cargar(tag(1L, 1L, "gamer"), tag(2L, 2L, "gamer"));
+        when(productoTagRepository.findByProductoId(1L)).thenReturn(List.of(tag(5L, 1L, "oficina")));
+
+        tagIndex.onProductoChanged(new ProductoChangedEvent(1L, ProductoChangedEvent.Type.UPDATED));
+
+        assertEquals(List.of(2L), tagIndex.buscar(List.of("gamer"), true, 0, 10).orElseThrow().getIds());
+        assertEquals(List.of(1L), tagIndex.buscar(List.of("oficina"), true, 0, 10).orElseThrow().getIds());
+    }
+
+    private void cargar(ProductoTag... tags) {
+        // Menos que un lote: la carga termina en la primera consulta
+        when(productoTagRepository.findSiguientes(anyLong(), anyLong(), any())).thenReturn(List.of(tags));
+        tagIndex.construir();
+    }
+
+    private static ProductoTag tag(Long id, Long productoId, String nombre) {
+        return new ProductoTag(id, productoId, nombre, null);
+    }
+}
@@ -0,0 +1,175 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.cache.CarritoEnMemoria;
+import com.api.e_commerce.cache.CarritoStore;
+import com.api.e_commerce.dao.IdGeneradorDAO;
+import com.api.e_commerce.exception.CarritoNotFoundException;
+import com.api.e_commerce.exception.InsufficientStockException;
+import com.api.e_commerce.model.Carrito;
+import com.api.e_commerce.model.CarritoItem;
+import com.api.e_commerce.model.Producto;
+import com.api.e_commerce.repository.CarritoItemRepository;
+import com.api.e_commerce.repository.CarritoRepository;
+import com.api.e_commerce.repository.ProductoRepository;
+import com.api.e_commerce.repository.UsuarioRepository;
+import com.api.e_commerce.stock.ReservasStock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Las reservas de stock siguen al carrito: se devuelven solo cuando el cambio quedó confirmado
+class CarritoServiceTest {
+
+    private static final Long USUARIO_ID = 7L;
+    private static final Long ITEM_ID = 1L;
+    private static final Long PRODUCTO_ID = 100L;
+
+    private CarritoRepository carritoRepository;
+    private CarritoItemRepository carritoItemRepository;
+    private ProductoRepository productoRepository;
+    private CarritoStore carritoStore;
+    private ReservasStock reservasStock;
+    private CarritoEnMemoria carrito;
+    private CarritoService carritoService;
+
+    @BeforeEach
+    void setUp() {
+        carritoRepository = mock(CarritoRepository.class);
+        carritoItemRepository = mock(CarritoItemRepository.class);
+        productoRepository = mock(ProductoRepository.class);
+        carritoStore = mock(CarritoStore.class);
+        reservasStock = mock(ReservasStock.class);
+        when(reservasStock.isActivo()).thenReturn(true);
+        when(reservasStock.fijar(anyLong(), anyLong(), anyInt())).thenReturn(true);
+        when(reservasStock.reservar(anyLong(), anyLong(), anyInt())).thenReturn(true);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        carritoService = new CarritoService(carritoRepository, carritoItemRepository,
+            productoRepository, mock(UsuarioRepository.class), mock(IdGeneradorDAO.class),
+            carritoStore, reservasStock, new TransactionTemplate(transactionManager));
+
+        // Carrito en memoria con un ítem de 3 unidades; conCarrito ejecuta la operación sobre él
+        carrito = mock(CarritoEnMemoria.class);
+        CarritoEnMemoria.Item item = new CarritoEnMemoria.Item(ITEM_ID, PRODUCTO_ID, 3, BigDecimal.TEN,
+            LocalDateTime.now());
+        when(carrito.buscarItem(ITEM_ID)).thenReturn(item);
+        when(carrito.copiar()).thenReturn(new CarritoEnMemoria(70L, USUARIO_ID, LocalDateTime.now(), LocalDateTime.now()));
+        when(carritoStore.conCarrito(eq(USUARIO_ID), any(), any())).thenAnswer(invocation ->
+            invocation.<Function<CarritoEnMemoria, Object>>getArgument(2).apply(carrito));
+    }
+
+    @Test
+    void vaciarUnCarritoQueNoExisteNoLiberaLasReservas() {
+        when(carritoRepository.findByUsuarioId(USUARIO_ID)).thenReturn(Optional.empty());
+
+        assertThrows(CarritoNotFoundException.class, () -> carritoService.clearCarrito(USUARIO_ID));
+
+        verify(reservasStock, never()).liberarTodo(any());
+    }
+
+    @Test
+    void quitarQueNoLlegaAlLogNoLiberaLaReserva() {
+        when(carritoStore.isActivo()).thenReturn(true);
+        doThrow(new UncheckedIOException(new IOException("disco lleno"))).when(carritoStore).quitar(carrito, ITEM_ID);
+
+        assertThrows(UncheckedIOException.class, () -> carritoService.removeItemFromCarrito(USUARIO_ID, ITEM_ID));
+
+        verify(reservasStock, never()).liberar(any(), any());
+    }
+
+    @Test
+    void bajarLaCantidadDevuelveUnidadesDespuesDelLog() {
+        when(carritoStore.isActivo()).thenReturn(true);
+
+        carritoService.updateItemQuantity(USUARIO_ID, ITEM_ID, 1);
+
+        var orden = inOrder(carritoStore, reservasStock);
+        orden.verify(carritoStore).cambiarCantidad(carrito, ITEM_ID, 1);
+        orden.verify(reservasStock).fijar(USUARIO_ID, PRODUCTO_ID, 1);
+    }
+
+    @Test
+    void bajarLaCantidadSinLogNoTocaLaReserva() {
+        when(carritoStore.isActivo()).thenReturn(true);
+        doThrow(new UncheckedIOException(new IOException("disco lleno"))).when(carritoStore)
+            .cambiarCantidad(carrito, ITEM_ID, 1);
+
+        assertThrows(UncheckedIOException.class, () -> carritoService.updateItemQuantity(USUARIO_ID, ITEM_ID, 1));
+
+        verify(reservasStock, never()).fijar(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void subirLaCantidadSinLogDeshaceLaReserva() {
+        when(carritoStore.isActivo()).thenReturn(true);
+        doThrow(new UncheckedIOException(new IOException("disco lleno"))).when(carritoStore)
+            .cambiarCantidad(carrito, ITEM_ID, 5);
+
+        assertThrows(UncheckedIOException.class, () -> carritoService.updateItemQuantity(USUARIO_ID, ITEM_ID, 5));
+
+        var orden = inOrder(reservasStock);
+        orden.verify(reservasStock).fijar(USUARIO_ID, PRODUCTO_ID, 5);
+        orden.verify(reservasStock).fijar(USUARIO_ID, PRODUCTO_ID, 3);
+    }
+
+    @Test
+    void altaSinStockEnLaBaseInformaLoQueHayYDevuelveLaReserva() {
+        Carrito enBase = new Carrito();
+        enBase.setId(70L);
+        when(carritoRepository.findByUsuarioIdParaActualizar(USUARIO_ID)).thenReturn(Optional.of(enBase));
+        // El upsert no afecta filas: la cantidad final superaría el stock
+        when(carritoItemRepository.agregarOSumar(anyLong(), eq(70L), eq(PRODUCTO_ID), eq(2))).thenReturn(0);
+        Producto producto = new Producto();
+        producto.setTitle("Funda");
+        producto.setStock(4);
+        when(productoRepository.findById(PRODUCTO_ID)).thenReturn(Optional.of(producto));
+        CarritoItem actual = new CarritoItem();
+        actual.setCantidad(3);
+        when(carritoItemRepository.findByCarritoIdAndProductoId(70L, PRODUCTO_ID)).thenReturn(Optional.of(actual));
+
+        InsufficientStockException error = assertThrows(InsufficientStockException.class,
+            () -> carritoService.addItemToCarrito(USUARIO_ID, PRODUCTO_ID, 2));
+
+        assertEquals("Stock insuficiente para Funda. Disponible: 4, Solicitado: 5", error.getMessage());
+        verify(carritoRepository, never()).save(any());
+        verify(reservasStock).liberar(USUARIO_ID, PRODUCTO_ID, 2);
+    }
+
+    @Test
+    void altaConfirmadaNoLeeElProducto() {
+        Carrito enBase = new Carrito();
+        enBase.setId(70L);
+        when(carritoRepository.findByUsuarioIdParaActualizar(USUARIO_ID)).thenReturn(Optional.of(enBase));
+        when(carritoItemRepository.agregarOSumar(anyLong(), eq(70L), eq(PRODUCTO_ID), eq(2))).thenReturn(1);
+
+        carritoService.addItemToCarrito(USUARIO_ID, PRODUCTO_ID, 2);
+
+        verify(productoRepository, never()).findById(any());
+        verify(carritoRepository).save(enBase);
+        verify(reservasStock, never()).liberar(any(), any(), anyInt());
+    }
+}
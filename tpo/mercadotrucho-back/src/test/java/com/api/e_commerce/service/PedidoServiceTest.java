@@ -0,0 +1,178 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.cache.CarritoStore;
+import com.api.e_commerce.dao.StockDAO;
+import com.api.e_commerce.dto.carrito.CarritoItemView;
+import com.api.e_commerce.dto.pedido.PedidoDTO;
+import com.api.e_commerce.dto.pedido.PedidoItemDTO;
+import com.api.e_commerce.exception.BadRequestException;
+import com.api.e_commerce.exception.CarritoModificadoException;
+import com.api.e_commerce.exception.InsufficientStockException;
+import com.api.e_commerce.model.Carrito;
+import com.api.e_commerce.model.Pedido;
+import com.api.e_commerce.repository.CarritoItemRepository;
+import com.api.e_commerce.repository.CarritoRepository;
+import com.api.e_commerce.repository.PedidoItemRepository;
+import com.api.e_commerce.repository.PedidoRepository;
+import com.api.e_commerce.repository.UsuarioRepository;
+import com.api.e_commerce.stock.ReservasStock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Checkout con el carrito en la base (carrito.write-behind apagado). La transacción es un mock del
+// PlatformTransactionManager: se verifica si terminó en commit o en rollback.
+class PedidoServiceTest {
+
+    private static final Long USUARIO_ID = 7L;
+    private static final Long CARRITO_ID = 70L;
+
+    private PedidoRepository pedidoRepository;
+    private PedidoItemRepository pedidoItemRepository;
+    private CarritoRepository carritoRepository;
+    private CarritoItemRepository carritoItemRepository;
+    private StockDAO stockDAO;
+    private ReservasStock reservasStock;
+    private PlatformTransactionManager transactionManager;
+    private SimpleTransactionStatus transaccion;
+    private PedidoService pedidoService;
+
+    @BeforeEach
+    void setUp() {
+        pedidoRepository = mock(PedidoRepository.class);
+        pedidoItemRepository = mock(PedidoItemRepository.class);
+        carritoRepository = mock(CarritoRepository.class);
+        carritoItemRepository = mock(CarritoItemRepository.class);
+        stockDAO = mock(StockDAO.class);
+        reservasStock = mock(ReservasStock.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        transaccion = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(transaccion);
+
+        pedidoService = new PedidoService(pedidoRepository, pedidoItemRepository, carritoRepository,
+            carritoItemRepository, mock(UsuarioRepository.class), stockDAO, mock(CarritoStore.class),
+            reservasStock, mock(ApplicationEventPublisher.class), transactionManager);
+
+        Carrito carrito = new Carrito();
+        carrito.setId(CARRITO_ID);
+        when(carritoRepository.findByUsuarioIdParaActualizar(USUARIO_ID)).thenReturn(Optional.of(carrito));
+        when(pedidoRepository.save(any(Pedido.class))).thenAnswer(invocation -> {
+            Pedido pedido = invocation.getArgument(0);
+            pedido.setId(1L);
+            return pedido;
+        });
+    }
+
+    @Test
+    void checkoutCreaElPedidoYVaciaElCarrito() {
+        List<CarritoItemView> items = List.of(item(2L, 200L, 1, "5.00"), item(1L, 100L, 2, "10.00"));
+        when(carritoItemRepository.findVistaByCarritoId(CARRITO_ID)).thenReturn(items);
+        when(stockDAO.descontar(any())).thenReturn(new int[] {1, 1});
+        when(carritoItemRepository.deleteByIdIn(anyCollection())).thenReturn(2);
+
+        PedidoDTO pedido = pedidoService.checkout(USUARIO_ID);
+
+        assertEquals(new BigDecimal("25.00"), pedido.getTotal());
+        assertEquals(List.of(100L, 200L), pedido.getItems().stream().map(PedidoItemDTO::getProductoId).toList());
+        verify(stockDAO).descontar(new TreeMap<>(Map.of(100L, 2, 200L, 1)));
+        verify(carritoItemRepository).deleteByIdIn(List.of(2L, 1L));
+        verify(transactionManager).commit(transaccion);
+        verify(reservasStock).liberarTodo(USUARIO_ID);
+    }
+
+    @Test
+    void sinStockNoQuedaNadaHecho() {
+        List<CarritoItemView> items = List.of(item(1L, 100L, 2, "10.00"), item(2L, 200L, 1, "5.00"));
+        when(carritoItemRepository.findVistaByCarritoId(CARRITO_ID)).thenReturn(items);
+        when(stockDAO.descontar(any())).thenReturn(new int[] {1, 0});
+
+        assertThrows(InsufficientStockException.class, () -> pedidoService.checkout(USUARIO_ID));
+
+        verify(pedidoRepository, never()).save(any());
+        verify(carritoItemRepository, never()).deleteByIdIn(anyCollection());
+        verify(transactionManager).rollback(transaccion);
+        verify(transactionManager, never()).commit(any());
+        verify(reservasStock, never()).liberarTodo(any());
+    }
+
+    @Test
+    void carritoVacioNoTocaElStock() {
+        when(carritoItemRepository.findVistaByCarritoId(CARRITO_ID)).thenReturn(List.of());
+
+        assertThrows(BadRequestException.class, () -> pedidoService.checkout(USUARIO_ID));
+
+        verify(stockDAO, never()).descontar(any());
+        verify(pedidoRepository, never()).save(any());
+        verify(transactionManager).rollback(transaccion);
+    }
+
+    @Test
+    void dosItemsDelMismoProductoSeDescuentanJuntos() {
+        List<CarritoItemView> items = List.of(item(1L, 100L, 2, "10.00"), item(2L, 100L, 3, "10.00"));
+        when(carritoItemRepository.findVistaByCarritoId(CARRITO_ID)).thenReturn(items);
+        when(stockDAO.descontar(any())).thenReturn(new int[] {1});
+        when(carritoItemRepository.deleteByIdIn(anyCollection())).thenReturn(2);
+
+        PedidoDTO pedido = pedidoService.checkout(USUARIO_ID);
+
+        verify(stockDAO).descontar(new TreeMap<>(Map.of(100L, 5)));
+        assertEquals(1, pedido.getItems().size());
+        assertEquals(5, pedido.getItems().get(0).getQuantity());
+        assertEquals(new BigDecimal("50.00"), pedido.getTotal());
+    }
+
+    @Test
+    void otroCheckoutYaSeLlevoLosItemsHaceRollback() {
+        List<CarritoItemView> items = List.of(item(1L, 100L, 2, "10.00"), item(2L, 200L, 1, "5.00"));
+        when(carritoItemRepository.findVistaByCarritoId(CARRITO_ID)).thenReturn(items);
+        when(stockDAO.descontar(any())).thenReturn(new int[] {1, 1});
+        // El otro checkout borró uno de los dos ítems antes que este
+        when(carritoItemRepository.deleteByIdIn(anyCollection())).thenReturn(1);
+
+        assertThrows(CarritoModificadoException.class, () -> pedidoService.checkout(USUARIO_ID));
+
+        verify(transactionManager).rollback(transaccion);
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void elCarritoSeLeeConLaFilaBloqueada() {
+        List<CarritoItemView> items = List.of(item(1L, 100L, 2, "10.00"));
+        when(carritoItemRepository.findVistaByCarritoId(CARRITO_ID)).thenReturn(items);
+        when(stockDAO.descontar(any())).thenReturn(new int[] {1});
+        when(carritoItemRepository.deleteByIdIn(anyCollection())).thenReturn(1);
+
+        pedidoService.checkout(USUARIO_ID);
+
+        verify(carritoRepository).findByUsuarioIdParaActualizar(USUARIO_ID);
+        verify(carritoRepository, never()).findByUsuarioId(any());
+    }
+
+    private static CarritoItemView item(Long id, Long productoId, int cantidad, String precio) {
+        CarritoItemView item = mock(CarritoItemView.class);
+        when(item.getId()).thenReturn(id);
+        when(item.getProductoId()).thenReturn(productoId);
+        when(item.getTitle()).thenReturn("Producto " + productoId);
+        when(item.getCantidad()).thenReturn(cantidad);
+        when(item.getPrecioUnitario()).thenReturn(new BigDecimal(precio));
+        when(item.getStock()).thenReturn(10);
+        return item;
+    }
+}
@@ -0,0 +1,135 @@
+package com.api.e_commerce.service;
+
+import com.api.e_commerce.dao.IdGeneradorDAO;
+import com.api.e_commerce.dto.producto.ImportacionResultadoDTO;
+import com.api.e_commerce.exception.BadRequestException;
+import com.api.e_commerce.model.Categoria;
+import com.api.e_commerce.repository.CategoriaRepository;
+import com.api.e_commerce.repository.UsuarioRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Importación CSV sin base: los inserts batch se capturan del JdbcTemplate y se leen con un PreparedStatement mock
+class ProductoImportServiceTest {
+
+    private static final Long VENDEDOR_ID = 9L;
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductoImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        IdGeneradorDAO idGeneradorDAO = mock(IdGeneradorDAO.class);
+        when(idGeneradorDAO.reservar(anyString(), anyInt())).thenReturn(1000L);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        Categoria celulares = new Categoria();
+        celulares.setId(3L);
+        celulares.setName("Celulares");
+        CategoriaRepository categoriaRepository = mock(CategoriaRepository.class);
+        when(categoriaRepository.findAll()).thenReturn(List.of(celulares));
+        UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+        when(usuarioRepository.findIdsByIdIn(any())).thenReturn(List.of(VENDEDOR_ID));
+
+        importService = new ProductoImportService(jdbcTemplate, idGeneradorDAO, transactionManager,
+            categoriaRepository, usuarioRepository, new ObjectMapper(), mock(ApplicationEventPublisher.class), 500);
+    }
+
+    @Test
+    void camposEntreComillasConComasYComillasEscapadas() throws Exception {
+        importService.importar(csv(
+            "title,price,seller_id,category,stock,images,description",
+            "\"Funda, con coma\",1500.50,9,Celulares,5,http://a|http://b,\"dice \"\"hola\"\"\""),
+            ProductoImportService.Formato.CSV);
+
+        ArgumentCaptor<BatchPreparedStatementSetter> productos = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), productos.capture());
+        PreparedStatement ps = mock(PreparedStatement.class);
+        productos.getValue().setValues(ps, 0);
+
+        verify(ps).setLong(1, 1000L);
+        verify(ps).setString(2, "Funda, con coma");
+        verify(ps).setBigDecimal(3, new BigDecimal("1500.50"));
+        verify(ps).setString(4, "ARS");
+        verify(ps).setObject(eq(7), eq(3L), anyInt());
+        verify(ps).setLong(8, VENDEDOR_ID);
+        verify(ps).setString(10, "dice \"hola\"");
+        verify(ps).setInt(11, 5);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> imagenes = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("INSERT INTO producto_imagen (id, producto_id, image_url, orden) VALUES (?, ?, ?, ?)"),
+            imagenes.capture());
+        assertEquals(List.of("http://a", "http://b"),
+            imagenes.getValue().stream().map(fila -> (String) fila[2]).collect(Collectors.toList()));
+    }
+
+    @Test
+    void cadaFilaInvalidaSeInformaConSuLinea() throws Exception {
+        ImportacionResultadoDTO resultado = importService.importar(csv(
+            "title,price,seller_id,category",
+            "Funda,100,9,Celulares",
+            "Sin precio,,9,",
+            "Cargador,abc,9,",
+            "",
+            "Cable,100,9,Inexistente",
+            "Mouse,200,99,",
+            "\"Sin cerrar,300,9,"),
+            ProductoImportService.Formato.CSV);
+
+        assertEquals(6, resultado.getProcesadas());
+        assertEquals(1, resultado.getImportadas());
+        assertEquals(5, resultado.getRechazadas());
+        List<ImportacionResultadoDTO.ErrorFila> errores = resultado.getErrores().stream()
+            .sorted(Comparator.comparingInt(ImportacionResultadoDTO.ErrorFila::getLinea))
+            .collect(Collectors.toList());
+        assertEquals(List.of(3, 4, 6, 7, 8), errores.stream().map(ImportacionResultadoDTO.ErrorFila::getLinea)
+            .collect(Collectors.toList()));
+        assertEquals("price es requerido y no puede ser negativo", errores.get(0).getMensaje());
+        assertEquals("price no es un número válido: abc", errores.get(1).getMensaje());
+        assertEquals("Categoría no encontrada: Inexistente", errores.get(2).getMensaje());
+        assertEquals("Usuario con ID 99 no encontrado", errores.get(3).getMensaje());
+        assertEquals("Comillas sin cerrar en la línea CSV", errores.get(4).getMensaje());
+    }
+
+    @Test
+    void encabezadoSinColumnasRequeridas() {
+        assertThrows(BadRequestException.class, () -> importService.importar(csv("title,price", "Funda,100"),
+            ProductoImportService.Formato.CSV));
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    private static InputStream csv(String... lineas) {
+        return new ByteArrayInputStream(String.join("\n", lineas).getBytes(StandardCharsets.UTF_8));
+    }
+}
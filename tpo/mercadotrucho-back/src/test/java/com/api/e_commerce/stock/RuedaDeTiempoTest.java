@@ -0,0 +1,105 @@
+package com.api.e_commerce.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// El reloj es falso: cada avanzar recibe el "ahora" del test, de a un tick como lo llama ReservasStock
+class RuedaDeTiempoTest {
+
+    private static final long TICK_MS = 1000;
+    private static final long TTL_MS = 10_000;
+
+    private RuedaDeTiempo<String> rueda;
+    private long reloj;
+    private Map<String, Long> vencidos;
+
+    @BeforeEach
+    void setUp() {
+        reloj = 0;
+        rueda = new RuedaDeTiempo<>(TICK_MS, (int) (TTL_MS / TICK_MS + 1), reloj);
+        vencidos = new HashMap<>();
+    }
+
+    @Test
+    void venceEnElTickQueTerminaDespuesDelVencimiento() {
+        reloj = 500;
+        rueda.programar("a", reloj + TTL_MS);
+
+        avanzarHasta(40_000);
+
+        assertEquals(11_000L, vencidos.get("a"));
+    }
+
+    @Test
+    void venceJustoEnElBordeDeUnTick() {
+        rueda.programar("a", TTL_MS);
+
+        avanzarHasta(40_000);
+
+        assertEquals(TTL_MS, vencidos.get("a"));
+    }
+
+    @Test
+    void ningunVencimientoSeAtrasaMasDeUnTick() {
+        List<Long> vencimientos = new ArrayList<>();
+        for (long desfase = 0; desfase < 3 * TICK_MS; desfase += 50) {
+            long venceMs = desfase + TTL_MS;
+            vencimientos.add(venceMs);
+            rueda.programar("r" + desfase, venceMs);
+        }
+
+        avanzarHasta(60_000);
+
+        for (long venceMs : vencimientos) {
+            Long vencio = vencidos.get("r" + (venceMs - TTL_MS));
+            assertTrue(vencio != null && vencio >= venceMs && vencio < venceMs + TICK_MS,
+                "venceMs=" + venceMs + " vencio=" + vencio);
+        }
+    }
+
+    @Test
+    void vencimientoEnUnTickYaProcesadoSaleEnElSiguiente() {
+        avanzarHasta(5_000);
+        rueda.programar("a", 3_500);
+
+        avanzarHasta(40_000);
+
+        assertEquals(6_000L, vencidos.get("a"));
+    }
+
+    @Test
+    void vencimientoMasLejanoQueUnaVueltaEsperaSuVuelta() {
+        rueda.programar("a", 25_300);
+
+        avanzarHasta(60_000);
+
+        assertEquals(26_000L, vencidos.get("a"));
+    }
+
+    @Test
+    void unAtrasoDeVariasVueltasEntregaTodoLoVencido() {
+        rueda.programar("a", 2_000);
+        rueda.programar("b", 9_999);
+        rueda.programar("c", 50_001);
+
+        reloj = 50_000;
+        rueda.avanzar(reloj, elemento -> vencidos.put(elemento, reloj));
+
+        assertEquals(Map.of("a", 50_000L, "b", 50_000L), vencidos);
+    }
+
+    private void avanzarHasta(long hastaMs) {
+        while (reloj < hastaMs) {
+            reloj = (reloj / TICK_MS + 1) * TICK_MS;
+            rueda.avanzar(reloj, elemento -> vencidos.put(elemento, reloj));
+        }
+    }
+}